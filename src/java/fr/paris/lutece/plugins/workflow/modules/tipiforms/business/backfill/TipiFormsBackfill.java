@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill;
+
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents the progress of the backfill of a task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask}: the form responses of its form are
+ * processed by increasing id, so that the backfill can be resumed after the last processed form response
+ * 
+ */
+public class TipiFormsBackfill
+{
+    /**
+     * Status of a running backfill
+     */
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    /**
+     * Status of a backfill stopped by a user
+     */
+    public static final String STATUS_STOPPED = "STOPPED";
+
+    /**
+     * Status of a backfill which has processed all the form responses
+     */
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * Status of a backfill interrupted by an error
+     */
+    public static final String STATUS_FAILED = "FAILED";
+
+    private int _nIdTask;
+    private int _nIdForm;
+    private String _strStatus;
+    private int _nLastIdFormResponse;
+    private int _nProcessedCount;
+    private int _nFailureCount;
+    private Timestamp _dateStart;
+    private Timestamp _dateUpdate;
+    private String _strRunId;
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Sets the task id
+     *
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        _nIdTask = nIdTask;
+    }
+
+    /**
+     * Gives the form id
+     * 
+     * @return the id
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Sets the form id
+     *
+     * @param nIdForm
+     *            the id to set
+     */
+    public void setIdForm( int nIdForm )
+    {
+        _nIdForm = nIdForm;
+    }
+
+    /**
+     * Gives the status
+     * 
+     * @return the status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the status
+     *
+     * @param strStatus
+     *            the status to set
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Gives the id of the last processed form response
+     * 
+     * @return the id
+     */
+    public int getLastIdFormResponse( )
+    {
+        return _nLastIdFormResponse;
+    }
+
+    /**
+     * Sets the id of the last processed form response
+     *
+     * @param nLastIdFormResponse
+     *            the id to set
+     */
+    public void setLastIdFormResponse( int nLastIdFormResponse )
+    {
+        _nLastIdFormResponse = nLastIdFormResponse;
+    }
+
+    /**
+     * Gives the number of processed form responses
+     * 
+     * @return the number
+     */
+    public int getProcessedCount( )
+    {
+        return _nProcessedCount;
+    }
+
+    /**
+     * Sets the number of processed form responses
+     *
+     * @param nProcessedCount
+     *            the number to set
+     */
+    public void setProcessedCount( int nProcessedCount )
+    {
+        _nProcessedCount = nProcessedCount;
+    }
+
+    /**
+     * Gives the number of failed form responses
+     * 
+     * @return the number
+     */
+    public int getFailureCount( )
+    {
+        return _nFailureCount;
+    }
+
+    /**
+     * Sets the number of failed form responses
+     *
+     * @param nFailureCount
+     *            the number to set
+     */
+    public void setFailureCount( int nFailureCount )
+    {
+        _nFailureCount = nFailureCount;
+    }
+
+    /**
+     * Gives the date of the first start
+     * 
+     * @return the date
+     */
+    public Timestamp getDateStart( )
+    {
+        return _dateStart;
+    }
+
+    /**
+     * Sets the date of the first start
+     *
+     * @param dateStart
+     *            the date to set
+     */
+    public void setDateStart( Timestamp dateStart )
+    {
+        _dateStart = dateStart;
+    }
+
+    /**
+     * Gives the date of the last progress
+     * 
+     * @return the date
+     */
+    public Timestamp getDateUpdate( )
+    {
+        return _dateUpdate;
+    }
+
+    /**
+     * Sets the date of the last progress
+     *
+     * @param dateUpdate
+     *            the date to set
+     */
+    public void setDateUpdate( Timestamp dateUpdate )
+    {
+        _dateUpdate = dateUpdate;
+    }
+
+    /**
+     * Gives the id of the run owning the backfill. Only this run saves its progress
+     * 
+     * @return the id
+     */
+    public String getRunId( )
+    {
+        return _strRunId;
+    }
+
+    /**
+     * Sets the id of the run owning the backfill
+     *
+     * @param strRunId
+     *            the id to set
+     */
+    public void setRunId( String strRunId )
+    {
+        _strRunId = strRunId;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsBackfill} objects
+ */
+public class TipiFormsBackfillDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_bf ( id_task, id_form, status, last_id_response, processed_count, failure_count, date_start, date_update, run_id ) VALUES ( ?,?,?,?,?,?,?,?,? ) ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = " SELECT id_task, id_form, status, last_id_response, processed_count, failure_count, date_start, date_update, run_id FROM workflow_task_tipiformsprovider_bf WHERE id_task = ? ";
+    private static final String SQL_QUERY_UPDATE_BY_RUN = " UPDATE workflow_task_tipiformsprovider_bf SET id_form = ?, status = ?, last_id_response = ?, processed_count = ?, failure_count = ?, date_start = ?, date_update = ? WHERE id_task = ? AND run_id = ? ";
+    private static final String SQL_QUERY_CLAIM = " UPDATE workflow_task_tipiformsprovider_bf SET run_id = ?, date_update = ? WHERE id_task = ? AND ( status <> ? OR date_update < ? ) ";
+    private static final String SQL_QUERY_UPDATE_STATUS = " UPDATE workflow_task_tipiformsprovider_bf SET status = ? WHERE id_task = ? AND status = ? ";
+    private static final String SQL_QUERY_DELETE = " DELETE FROM workflow_task_tipiformsprovider_bf WHERE id_task = ? ";
+    private static final String SQL_QUERY_SELECT_FORM_RESPONSES_TO_PROVIDE = " SELECT fr.id_response FROM forms_response fr WHERE fr.id_form = ? AND fr.id_response > ? "
+            + " AND NOT EXISTS ( SELECT rh.id_history FROM workflow_resource_history rh WHERE rh.id_resource = fr.id_response AND rh.resource_type = ? AND rh.id_action = ? ) "
+            + " ORDER BY fr.id_response LIMIT ? ";
+
+    /**
+     * Inserts a backfill
+     * 
+     * @param backfill
+     *            the backfill to insert
+     */
+    public void insert( TipiFormsBackfill backfill )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, backfill.getIdTask( ) );
+        nIndex = objectToData( nIndex, backfill, daoUtil );
+        daoUtil.setString( ++nIndex, backfill.getRunId( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Loads the backfill of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the backfill, or {@code null} if not found
+     */
+    public TipiFormsBackfill load( int nIdTask )
+    {
+        TipiFormsBackfill backfill = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            backfill = new TipiFormsBackfill( );
+            backfill.setIdTask( daoUtil.getInt( "id_task" ) );
+            backfill.setIdForm( daoUtil.getInt( "id_form" ) );
+            backfill.setStatus( daoUtil.getString( "status" ) );
+            backfill.setLastIdFormResponse( daoUtil.getInt( "last_id_response" ) );
+            backfill.setProcessedCount( daoUtil.getInt( "processed_count" ) );
+            backfill.setFailureCount( daoUtil.getInt( "failure_count" ) );
+            backfill.setDateStart( daoUtil.getTimestamp( "date_start" ) );
+            backfill.setDateUpdate( daoUtil.getTimestamp( "date_update" ) );
+            backfill.setRunId( daoUtil.getString( "run_id" ) );
+        }
+
+        daoUtil.close( );
+
+        return backfill;
+    }
+
+    /**
+     * Updates a backfill, only if it is still owned by its run: the progress of a run whose backfill has been claimed by another run is ignored
+     * 
+     * @param backfill
+     *            the backfill to update
+     */
+    public void store( TipiFormsBackfill backfill )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_BY_RUN, TipiPlugin.getPlugin( ) );
+
+        int nIndex = objectToData( 0, backfill, daoUtil );
+        daoUtil.setInt( ++nIndex, backfill.getIdTask( ) );
+        daoUtil.setString( ++nIndex, backfill.getRunId( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Claims the backfill of the specified task for the specified run. The backfill is claimed only if it is not running, or if its running run has not
+     * saved its progress since the specified date: its node is then considered as stopped. The claim succeeds if the run id is stored afterwards
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param strRunId
+     *            the id of the run
+     * @param dateClaim
+     *            the date of the claim
+     * @param dateExpiry
+     *            the date before which the progress of a running run is considered as lost
+     */
+    public void claim( int nIdTask, String strRunId, Timestamp dateClaim, Timestamp dateExpiry )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setString( ++nIndex, strRunId );
+        daoUtil.setTimestamp( ++nIndex, dateClaim );
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setString( ++nIndex, TipiFormsBackfill.STATUS_RUNNING );
+        daoUtil.setTimestamp( ++nIndex, dateExpiry );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Changes the status of the backfill of the specified task, if it has the specified status
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param strStatus
+     *            the new status
+     * @param strExpectedStatus
+     *            the expected status
+     */
+    public void updateStatus( int nIdTask, String strStatus, String strExpectedStatus )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_STATUS, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setString( ++nIndex, strStatus );
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setString( ++nIndex, strExpectedStatus );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes the backfill of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void delete( int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Selects the next form responses of the specified form on which the specified action has never been performed, by increasing id. The tables of the
+     * form responses and of the resource histories must be in the same database as the table of the backfills
+     * 
+     * @param nIdForm
+     *            the form id
+     * @param strResourceType
+     *            the resource type of the form responses
+     * @param nIdAction
+     *            the action id
+     * @param nIdFormResponseAfter
+     *            the id after which the form responses are selected
+     * @param nLimit
+     *            the maximum number of form responses
+     * @return the form response ids
+     */
+    public List<Integer> selectFormResponsesToProvide( int nIdForm, String strResourceType, int nIdAction, int nIdFormResponseAfter, int nLimit )
+    {
+        List<Integer> listIdFormResponse = new ArrayList<Integer>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_FORM_RESPONSES_TO_PROVIDE, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, nIdForm );
+        daoUtil.setInt( ++nIndex, nIdFormResponseAfter );
+        daoUtil.setString( ++nIndex, strResourceType );
+        daoUtil.setInt( ++nIndex, nIdAction );
+        daoUtil.setInt( ++nIndex, nLimit );
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listIdFormResponse.add( daoUtil.getInt( 1 ) );
+        }
+
+        daoUtil.close( );
+
+        return listIdFormResponse;
+    }
+
+    /**
+     * Populates the specified {@code DAOUtil} with the specified backfill, the task id excepted
+     * 
+     * @param nStartIndex
+     *            the start index
+     * @param backfill
+     *            the backfill
+     * @param daoUtil
+     *            the {@code DAOUtil} to populate
+     * @return the last used index
+     */
+    private int objectToData( int nStartIndex, TipiFormsBackfill backfill, DAOUtil daoUtil )
+    {
+        int nIndex = nStartIndex;
+
+        daoUtil.setInt( ++nIndex, backfill.getIdForm( ) );
+        daoUtil.setString( ++nIndex, backfill.getStatus( ) );
+        daoUtil.setInt( ++nIndex, backfill.getLastIdFormResponse( ) );
+        daoUtil.setInt( ++nIndex, backfill.getProcessedCount( ) );
+        daoUtil.setInt( ++nIndex, backfill.getFailureCount( ) );
+        daoUtil.setTimestamp( ++nIndex, backfill.getDateStart( ) );
+        daoUtil.setTimestamp( ++nIndex, backfill.getDateUpdate( ) );
+
+        return nIndex;
+    }
+}
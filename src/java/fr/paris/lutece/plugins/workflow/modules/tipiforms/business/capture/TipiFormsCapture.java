@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.capture;
+
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents the values of a form response captured at submission time for the task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask}
+ * 
+ */
+public class TipiFormsCapture
+{
+    private int _nIdFormResponse;
+    private int _nIdTask;
+    private String _strRefDet;
+    private String _strAmount;
+    private String _strEmail;
+    private Timestamp _dateCapture;
+
+    /**
+     * Gives the form response id
+     * 
+     * @return the id
+     */
+    public int getIdFormResponse( )
+    {
+        return _nIdFormResponse;
+    }
+
+    /**
+     * Sets the form response id
+     *
+     * @param nIdFormResponse
+     *            the id to set
+     */
+    public void setIdFormResponse( int nIdFormResponse )
+    {
+        _nIdFormResponse = nIdFormResponse;
+    }
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Sets the task id
+     *
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        _nIdTask = nIdTask;
+    }
+
+    /**
+     * Gives the RefDet
+     * 
+     * @return the RefDet
+     */
+    public String getRefDet( )
+    {
+        return _strRefDet;
+    }
+
+    /**
+     * Sets the RefDet
+     *
+     * @param strRefDet
+     *            the RefDet to set
+     */
+    public void setRefDet( String strRefDet )
+    {
+        _strRefDet = strRefDet;
+    }
+
+    /**
+     * Gives the amount
+     * 
+     * @return the amount
+     */
+    public String getAmount( )
+    {
+        return _strAmount;
+    }
+
+    /**
+     * Sets the amount
+     *
+     * @param strAmount
+     *            the amount to set
+     */
+    public void setAmount( String strAmount )
+    {
+        _strAmount = strAmount;
+    }
+
+    /**
+     * Gives the email
+     * 
+     * @return the email
+     */
+    public String getEmail( )
+    {
+        return _strEmail;
+    }
+
+    /**
+     * Sets the email
+     *
+     * @param strEmail
+     *            the email to set
+     */
+    public void setEmail( String strEmail )
+    {
+        _strEmail = strEmail;
+    }
+
+    /**
+     * Gives the date of the capture
+     * 
+     * @return the date
+     */
+    public Timestamp getDateCapture( )
+    {
+        return _dateCapture;
+    }
+
+    /**
+     * Sets the date of the capture
+     *
+     * @param dateCapture
+     *            the date to set
+     */
+    public void setDateCapture( Timestamp dateCapture )
+    {
+        _dateCapture = dateCapture;
+    }
+
+    /**
+     * Tests whether all the values are captured. A value is not captured anymore when the question it comes from is replaced in the configuration of the
+     * task
+     * 
+     * @return {@code true} if the RefDet, the amount and the email are captured, {@code false} otherwise
+     */
+    public boolean isComplete( )
+    {
+        return _strRefDet != null && _strAmount != null && _strEmail != null;
+    }
+}
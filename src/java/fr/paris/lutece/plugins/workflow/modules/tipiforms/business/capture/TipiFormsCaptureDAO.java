@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.capture;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsCapture} objects
+ */
+public class TipiFormsCaptureDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_capture ( id_response, id_task, ref_det, amount, email, date_capture ) VALUES ( ?,?,?,?,?,? ) ";
+    private static final String SQL_QUERY_FIND_UP_TO_DATE = " SELECT c.id_response, c.id_task, c.ref_det, c.amount, c.email, c.date_capture FROM workflow_task_tipiformsprovider_capture c "
+            + " INNER JOIN forms_response fr ON fr.id_response = c.id_response "
+            + " WHERE c.id_response = ? AND c.id_task = ? AND ( fr.update_date IS NULL OR c.date_capture >= fr.update_date ) ";
+    private static final String SQL_QUERY_DELETE = " DELETE FROM workflow_task_tipiformsprovider_capture WHERE id_response = ? AND id_task = ? ";
+    private static final String SQL_QUERY_DELETE_BY_FORM_RESPONSE = " DELETE FROM workflow_task_tipiformsprovider_capture WHERE id_response = ? ";
+    private static final String SQL_QUERY_DELETE_BY_TASK = " DELETE FROM workflow_task_tipiformsprovider_capture WHERE id_task = ? ";
+    private static final String SQL_QUERY_CLEAR_REF_DET_BY_TASK = " UPDATE workflow_task_tipiformsprovider_capture SET ref_det = NULL WHERE id_task = ? ";
+    private static final String SQL_QUERY_CLEAR_AMOUNT_BY_TASK = " UPDATE workflow_task_tipiformsprovider_capture SET amount = NULL WHERE id_task = ? ";
+    private static final String SQL_QUERY_CLEAR_EMAIL_BY_TASK = " UPDATE workflow_task_tipiformsprovider_capture SET email = NULL WHERE id_task = ? ";
+
+    /**
+     * Inserts a capture
+     * 
+     * @param capture
+     *            the capture to insert
+     */
+    public void insert( TipiFormsCapture capture )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, capture.getIdFormResponse( ) );
+        daoUtil.setInt( ++nIndex, capture.getIdTask( ) );
+        daoUtil.setString( ++nIndex, capture.getRefDet( ) );
+        daoUtil.setString( ++nIndex, capture.getAmount( ) );
+        daoUtil.setString( ++nIndex, capture.getEmail( ) );
+        daoUtil.setTimestamp( ++nIndex, capture.getDateCapture( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Loads the capture of the specified form response for the specified task, if the form response has not been modified since the capture. The table of
+     * the form responses must be in the same database as the table of the captures
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdTask
+     *            the task id
+     * @return the capture, or {@code null} if not found or out of date
+     */
+    public TipiFormsCapture loadUpToDate( int nIdFormResponse, int nIdTask )
+    {
+        TipiFormsCapture capture = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_UP_TO_DATE, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdFormResponse );
+        daoUtil.setInt( 2, nIdTask );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            capture = new TipiFormsCapture( );
+            capture.setIdFormResponse( daoUtil.getInt( "id_response" ) );
+            capture.setIdTask( daoUtil.getInt( "id_task" ) );
+            capture.setRefDet( daoUtil.getString( "ref_det" ) );
+            capture.setAmount( daoUtil.getString( "amount" ) );
+            capture.setEmail( daoUtil.getString( "email" ) );
+            capture.setDateCapture( daoUtil.getTimestamp( "date_capture" ) );
+        }
+
+        daoUtil.close( );
+
+        return capture;
+    }
+
+    /**
+     * Deletes the capture of the specified form response for the specified task
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdTask
+     *            the task id
+     */
+    public void delete( int nIdFormResponse, int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdFormResponse );
+        daoUtil.setInt( 2, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes the captures of the specified form response
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     */
+    public void deleteByFormResponse( int nIdFormResponse )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_FORM_RESPONSE, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdFormResponse );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes the captures of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void deleteByTask( int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_TASK, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Clears the specified values of the captures of the specified task. The other values of the captures are kept
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param bRefDet
+     *            {@code true} to clear the RefDet
+     * @param bAmount
+     *            {@code true} to clear the amount
+     * @param bEmail
+     *            {@code true} to clear the email
+     */
+    public void clearByTask( int nIdTask, boolean bRefDet, boolean bAmount, boolean bEmail )
+    {
+        if ( bRefDet )
+        {
+            executeByTask( SQL_QUERY_CLEAR_REF_DET_BY_TASK, nIdTask );
+        }
+
+        if ( bAmount )
+        {
+            executeByTask( SQL_QUERY_CLEAR_AMOUNT_BY_TASK, nIdTask );
+        }
+
+        if ( bEmail )
+        {
+            executeByTask( SQL_QUERY_CLEAR_EMAIL_BY_TASK, nIdTask );
+        }
+    }
+
+    /**
+     * Executes the specified update on the captures of the specified task
+     * 
+     * @param strSql
+     *            the SQL of the update
+     * @param nIdTask
+     *            the task id
+     */
+    private static void executeByTask( String strSql, int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( strSql, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+}
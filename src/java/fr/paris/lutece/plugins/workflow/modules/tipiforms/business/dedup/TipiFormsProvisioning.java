@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.dedup;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents the last TIPI provisioning performed by the task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask} for a resource. It is used to detect
+ * the replayed executions, and to skip the resources already provisioned by a backfill
+ * 
+ */
+public class TipiFormsProvisioning implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private int _nIdTask;
+    private int _nIdResource;
+    private String _strProvisioningKey;
+    private int _nIdHistory;
+    private Timestamp _dateProvisioning;
+    private boolean _bBackfill;
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Sets the task id
+     *
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        _nIdTask = nIdTask;
+    }
+
+    /**
+     * Gives the resource id
+     * 
+     * @return the id
+     */
+    public int getIdResource( )
+    {
+        return _nIdResource;
+    }
+
+    /**
+     * Sets the resource id
+     *
+     * @param nIdResource
+     *            the id to set
+     */
+    public void setIdResource( int nIdResource )
+    {
+        _nIdResource = nIdResource;
+    }
+
+    /**
+     * Gives the provisioning key, computed from the RefDet, the amount and the email
+     * 
+     * @return the key
+     */
+    public String getProvisioningKey( )
+    {
+        return _strProvisioningKey;
+    }
+
+    /**
+     * Sets the provisioning key
+     *
+     * @param strProvisioningKey
+     *            the key to set
+     */
+    public void setProvisioningKey( String strProvisioningKey )
+    {
+        _strProvisioningKey = strProvisioningKey;
+    }
+
+    /**
+     * Gives the id of the resource history of the provisioning
+     * 
+     * @return the id
+     */
+    public int getIdHistory( )
+    {
+        return _nIdHistory;
+    }
+
+    /**
+     * Sets the id of the resource history of the provisioning
+     *
+     * @param nIdHistory
+     *            the id to set
+     */
+    public void setIdHistory( int nIdHistory )
+    {
+        _nIdHistory = nIdHistory;
+    }
+
+    /**
+     * Gives the date of the provisioning
+     * 
+     * @return the date
+     */
+    public Timestamp getDateProvisioning( )
+    {
+        return _dateProvisioning;
+    }
+
+    /**
+     * Sets the date of the provisioning
+     *
+     * @param dateProvisioning
+     *            the date to set
+     */
+    public void setDateProvisioning( Timestamp dateProvisioning )
+    {
+        _dateProvisioning = dateProvisioning;
+    }
+
+    /**
+     * Tests whether the provisioning has been performed by a backfill
+     * 
+     * @return {@code true} if the provisioning has been performed by a backfill, {@code false} otherwise
+     */
+    public boolean isBackfill( )
+    {
+        return _bBackfill;
+    }
+
+    /**
+     * Sets whether the provisioning has been performed by a backfill
+     *
+     * @param bBackfill
+     *            {@code true} if the provisioning has been performed by a backfill, {@code false} otherwise
+     */
+    public void setBackfill( boolean bBackfill )
+    {
+        _bBackfill = bBackfill;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.dedup;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsProvisioning} objects
+ */
+public class TipiFormsProvisioningDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_dedup ( id_task, id_resource, provisioning_key, id_history, date_provisioning, backfill ) VALUES ( ?,?,?,?,?,? ) ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = " SELECT id_task, id_resource, provisioning_key, id_history, date_provisioning, backfill FROM workflow_task_tipiformsprovider_dedup WHERE id_task = ? AND id_resource = ? ";
+    private static final String SQL_QUERY_DELETE = " DELETE FROM workflow_task_tipiformsprovider_dedup WHERE id_task = ? AND id_resource = ? ";
+    private static final String SQL_QUERY_DELETE_BY_TASK = " DELETE FROM workflow_task_tipiformsprovider_dedup WHERE id_task = ? ";
+
+    /**
+     * Inserts a provisioning
+     * 
+     * @param provisioning
+     *            the provisioning to insert
+     */
+    public void insert( TipiFormsProvisioning provisioning )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, provisioning.getIdTask( ) );
+        daoUtil.setInt( ++nIndex, provisioning.getIdResource( ) );
+        daoUtil.setString( ++nIndex, provisioning.getProvisioningKey( ) );
+        daoUtil.setInt( ++nIndex, provisioning.getIdHistory( ) );
+        daoUtil.setTimestamp( ++nIndex, provisioning.getDateProvisioning( ) );
+        daoUtil.setBoolean( ++nIndex, provisioning.isBackfill( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Loads the last provisioning of the specified task for the specified resource
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     * @return the provisioning, or {@code null} if not found
+     */
+    public TipiFormsProvisioning load( int nIdTask, int nIdResource )
+    {
+        TipiFormsProvisioning provisioning = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.setInt( 2, nIdResource );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            provisioning = new TipiFormsProvisioning( );
+            provisioning.setIdTask( daoUtil.getInt( "id_task" ) );
+            provisioning.setIdResource( daoUtil.getInt( "id_resource" ) );
+            provisioning.setProvisioningKey( daoUtil.getString( "provisioning_key" ) );
+            provisioning.setIdHistory( daoUtil.getInt( "id_history" ) );
+            provisioning.setDateProvisioning( daoUtil.getTimestamp( "date_provisioning" ) );
+            provisioning.setBackfill( daoUtil.getBoolean( "backfill" ) );
+        }
+
+        daoUtil.close( );
+
+        return provisioning;
+    }
+
+    /**
+     * Deletes the last provisioning of the specified task for the specified resource
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     */
+    public void delete( int nIdTask, int nIdResource )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.setInt( 2, nIdResource );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes all the provisionings of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void deleteByTask( int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_TASK, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution;
+
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents the outcome of an execution of the task {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask
+ * TipiFormsProviderTask} for a resource history
+ * 
+ */
+public class TipiFormsProviderExecution
+{
+    /**
+     * Status of an execution waiting to be processed
+     */
+    public static final String STATUS_PENDING = "PENDING";
+
+    /**
+     * Status of a successful execution
+     */
+    public static final String STATUS_SUCCESS = "SUCCESS";
+
+    /**
+     * Status of a failed execution
+     */
+    public static final String STATUS_FAILURE = "FAILURE";
+
+    /**
+     * Status of an execution skipped because it replays a previous provisioning
+     */
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+
+    private int _nIdHistory;
+    private int _nIdTask;
+    private String _strStatus;
+    private String _strErrorMessage;
+    private Timestamp _dateExecution;
+    private String _strRefDet;
+    private String _strAmount;
+    private String _strEmail;
+
+    /**
+     * Gives the resource history id
+     * 
+     * @return the id
+     */
+    public int getIdHistory( )
+    {
+        return _nIdHistory;
+    }
+
+    /**
+     * Sets the resource history id
+     *
+     * @param nIdHistory
+     *            the id to set
+     */
+    public void setIdHistory( int nIdHistory )
+    {
+        _nIdHistory = nIdHistory;
+    }
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Sets the task id
+     *
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        _nIdTask = nIdTask;
+    }
+
+    /**
+     * Gives the status
+     * 
+     * @return the status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the status
+     *
+     * @param strStatus
+     *            the status to set
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Gives the error message
+     * 
+     * @return the error message
+     */
+    public String getErrorMessage( )
+    {
+        return _strErrorMessage;
+    }
+
+    /**
+     * Sets the error message
+     *
+     * @param strErrorMessage
+     *            the error message to set
+     */
+    public void setErrorMessage( String strErrorMessage )
+    {
+        _strErrorMessage = strErrorMessage;
+    }
+
+    /**
+     * Gives the date of the execution
+     * 
+     * @return the date
+     */
+    public Timestamp getDateExecution( )
+    {
+        return _dateExecution;
+    }
+
+    /**
+     * Sets the date of the execution
+     *
+     * @param dateExecution
+     *            the date to set
+     */
+    public void setDateExecution( Timestamp dateExecution )
+    {
+        _dateExecution = dateExecution;
+    }
+
+    /**
+     * Gives the RefDet sent to the TIPI service
+     * 
+     * @return the RefDet, or {@code null} if nothing has been sent
+     */
+    public String getRefDet( )
+    {
+        return _strRefDet;
+    }
+
+    /**
+     * Sets the RefDet sent to the TIPI service
+     *
+     * @param strRefDet
+     *            the RefDet to set
+     */
+    public void setRefDet( String strRefDet )
+    {
+        _strRefDet = strRefDet;
+    }
+
+    /**
+     * Gives the amount sent to the TIPI service
+     * 
+     * @return the amount, or {@code null} if nothing has been sent
+     */
+    public String getAmount( )
+    {
+        return _strAmount;
+    }
+
+    /**
+     * Sets the amount sent to the TIPI service
+     *
+     * @param strAmount
+     *            the amount to set
+     */
+    public void setAmount( String strAmount )
+    {
+        _strAmount = strAmount;
+    }
+
+    /**
+     * Gives the email sent to the TIPI service
+     * 
+     * @return the email, or {@code null} if nothing has been sent
+     */
+    public String getEmail( )
+    {
+        return _strEmail;
+    }
+
+    /**
+     * Sets the email sent to the TIPI service
+     *
+     * @param strEmail
+     *            the email to set
+     */
+    public void setEmail( String strEmail )
+    {
+        _strEmail = strEmail;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsProviderExecution} objects
+ */
+public class TipiFormsProviderExecutionDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_exec ( id_history, id_task, status, error_message, date_execution, ref_det, amount, email ) VALUES ( ?,?,?,?,?,?,?,? ) ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = " SELECT id_history, id_task, status, error_message, date_execution, ref_det, amount, email FROM workflow_task_tipiformsprovider_exec WHERE id_history = ? AND id_task = ? ";
+    private static final String SQL_QUERY_UPDATE = " UPDATE workflow_task_tipiformsprovider_exec SET status = ?, error_message = ?, date_execution = ?, ref_det = ?, amount = ?, email = ? WHERE id_history = ? AND id_task = ? ";
+    private static final String SQL_QUERY_DELETE_BY_HISTORY = " DELETE FROM workflow_task_tipiformsprovider_exec WHERE id_history = ? AND id_task = ? ";
+    private static final String SQL_QUERY_DELETE_BY_TASK = " DELETE FROM workflow_task_tipiformsprovider_exec WHERE id_task = ? ";
+
+    /**
+     * Inserts an execution
+     * 
+     * @param execution
+     *            the execution to insert
+     */
+    public void insert( TipiFormsProviderExecution execution )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, execution.getIdHistory( ) );
+        daoUtil.setInt( ++nIndex, execution.getIdTask( ) );
+        daoUtil.setString( ++nIndex, execution.getStatus( ) );
+        daoUtil.setString( ++nIndex, execution.getErrorMessage( ) );
+        daoUtil.setTimestamp( ++nIndex, execution.getDateExecution( ) );
+        daoUtil.setString( ++nIndex, execution.getRefDet( ) );
+        daoUtil.setString( ++nIndex, execution.getAmount( ) );
+        daoUtil.setString( ++nIndex, execution.getEmail( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Loads the execution of the specified task for the specified resource history
+     * 
+     * @param nIdHistory
+     *            the resource history id
+     * @param nIdTask
+     *            the task id
+     * @return the execution, or {@code null} if not found
+     */
+    public TipiFormsProviderExecution load( int nIdHistory, int nIdTask )
+    {
+        TipiFormsProviderExecution execution = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdHistory );
+        daoUtil.setInt( 2, nIdTask );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            execution = dataToObject( daoUtil );
+        }
+
+        daoUtil.close( );
+
+        return execution;
+    }
+
+    /**
+     * Updates an execution
+     * 
+     * @param execution
+     *            the execution to update
+     */
+    public void store( TipiFormsProviderExecution execution )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setString( ++nIndex, execution.getStatus( ) );
+        daoUtil.setString( ++nIndex, execution.getErrorMessage( ) );
+        daoUtil.setTimestamp( ++nIndex, execution.getDateExecution( ) );
+        daoUtil.setString( ++nIndex, execution.getRefDet( ) );
+        daoUtil.setString( ++nIndex, execution.getAmount( ) );
+        daoUtil.setString( ++nIndex, execution.getEmail( ) );
+        daoUtil.setInt( ++nIndex, execution.getIdHistory( ) );
+        daoUtil.setInt( ++nIndex, execution.getIdTask( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes the execution of the specified task for the specified resource history
+     * 
+     * @param nIdHistory
+     *            the resource history id
+     * @param nIdTask
+     *            the task id
+     */
+    public void delete( int nIdHistory, int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_HISTORY, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdHistory );
+        daoUtil.setInt( 2, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Deletes all the executions of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void deleteByTask( int nIdTask )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_TASK, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Creates a {@code TipiFormsProviderExecution} object from the data of the specified {@code DAOUtil}
+     * 
+     * @param daoUtil
+     *            the {@code DAOUtil} containing the data
+     * @return a new {@code TipiFormsProviderExecution} object
+     */
+    private TipiFormsProviderExecution dataToObject( DAOUtil daoUtil )
+    {
+        TipiFormsProviderExecution execution = new TipiFormsProviderExecution( );
+
+        execution.setIdHistory( daoUtil.getInt( "id_history" ) );
+        execution.setIdTask( daoUtil.getInt( "id_task" ) );
+        execution.setStatus( daoUtil.getString( "status" ) );
+        execution.setErrorMessage( daoUtil.getString( "error_message" ) );
+        execution.setDateExecution( daoUtil.getTimestamp( "date_execution" ) );
+        execution.setRefDet( daoUtil.getString( "ref_det" ) );
+        execution.setAmount( daoUtil.getString( "amount" ) );
+        execution.setEmail( daoUtil.getString( "email" ) );
+
+        return execution;
+    }
+}
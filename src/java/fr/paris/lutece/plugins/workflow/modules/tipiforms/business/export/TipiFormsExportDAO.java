@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.export;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsExportRow} objects
+ */
+public class TipiFormsExportDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_SELECT_ROWS = " SELECT fr.id_response, fr.creation_date, e.status, e.date_execution, s.id_history AS id_history_sent, s.ref_det, s.amount, s.email "
+            + " FROM forms_response fr "
+            + " LEFT JOIN workflow_task_tipiformsprovider_exec e ON e.id_task = ? AND e.id_history = ( SELECT MAX( rh.id_history ) FROM workflow_resource_history rh "
+            + " INNER JOIN workflow_task_tipiformsprovider_exec le ON le.id_history = rh.id_history AND le.id_task = ? "
+            + " WHERE rh.id_resource = fr.id_response AND rh.resource_type = ? ) "
+            + " LEFT JOIN workflow_task_tipiformsprovider_exec s ON s.id_task = ? AND s.id_history = ( SELECT MAX( rh.id_history ) FROM workflow_resource_history rh "
+            + " INNER JOIN workflow_task_tipiformsprovider_exec ls ON ls.id_history = rh.id_history AND ls.id_task = ? AND ls.status IN ( 'SUCCESS', 'DUPLICATE' ) "
+            + " WHERE rh.id_resource = fr.id_response AND rh.resource_type = ? ) "
+            + " WHERE fr.id_form = ? AND fr.id_response > ? ORDER BY fr.id_response LIMIT ? ";
+
+    /**
+     * Selects the next export rows of the specified form for the specified task, by increasing form response id. The values are the ones recorded by the
+     * last successful or skipped execution of the task on the form response, and are empty if the values have never been sent. The tables of the form
+     * responses and of the resource histories must be in the same database as the table of the executions
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdForm
+     *            the form id
+     * @param strResourceType
+     *            the resource type of the form responses
+     * @param nIdFormResponseAfter
+     *            the id after which the form responses are selected
+     * @param nLimit
+     *            the maximum number of rows
+     * @return the rows
+     */
+    public List<TipiFormsExportRow> selectRows( int nIdTask, int nIdForm, String strResourceType, int nIdFormResponseAfter, int nLimit )
+    {
+        List<TipiFormsExportRow> listRow = new ArrayList<TipiFormsExportRow>( nLimit );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ROWS, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setString( ++nIndex, strResourceType );
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setInt( ++nIndex, nIdTask );
+        daoUtil.setString( ++nIndex, strResourceType );
+        daoUtil.setInt( ++nIndex, nIdForm );
+        daoUtil.setInt( ++nIndex, nIdFormResponseAfter );
+        daoUtil.setInt( ++nIndex, nLimit );
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            TipiFormsExportRow row = new TipiFormsExportRow( );
+            row.setIdFormResponse( daoUtil.getInt( "id_response" ) );
+            row.setDateCreation( daoUtil.getTimestamp( "creation_date" ) );
+            row.setIdHistorySent( daoUtil.getInt( "id_history_sent" ) );
+            row.setRefDet( daoUtil.getString( "ref_det" ) );
+            row.setAmount( daoUtil.getString( "amount" ) );
+            row.setEmail( daoUtil.getString( "email" ) );
+            row.setStatus( daoUtil.getString( "status" ) );
+            row.setDateExecution( daoUtil.getTimestamp( "date_execution" ) );
+
+            listRow.add( row );
+        }
+
+        daoUtil.close( );
+
+        return listRow;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.export;
+
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents a row of the export of the TIPI provisioning data of a form: the values of a form response sent to the TIPI service by a task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask}, and the status of the last
+ * execution of the task on the form response
+ * 
+ */
+public class TipiFormsExportRow
+{
+    private int _nIdFormResponse;
+    private Timestamp _dateCreation;
+    private int _nIdHistorySent;
+    private String _strRefDet;
+    private String _strAmount;
+    private String _strEmail;
+    private String _strStatus;
+    private Timestamp _dateExecution;
+
+    /**
+     * Gives the form response id
+     * 
+     * @return the id
+     */
+    public int getIdFormResponse( )
+    {
+        return _nIdFormResponse;
+    }
+
+    /**
+     * Sets the form response id
+     *
+     * @param nIdFormResponse
+     *            the id to set
+     */
+    public void setIdFormResponse( int nIdFormResponse )
+    {
+        _nIdFormResponse = nIdFormResponse;
+    }
+
+    /**
+     * Gives the creation date of the form response
+     * 
+     * @return the date
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Sets the creation date of the form response
+     * 
+     * @param dateCreation
+     *            the date to set
+     */
+    public void setDateCreation( Timestamp dateCreation )
+    {
+        _dateCreation = dateCreation;
+    }
+
+    /**
+     * Gives the id of the resource history of the last execution which sent the values to the TIPI service
+     * 
+     * @return the id, or {@code 0} if the values have never been sent
+     */
+    public int getIdHistorySent( )
+    {
+        return _nIdHistorySent;
+    }
+
+    /**
+     * Sets the id of the resource history of the last execution which sent the values to the TIPI service
+     * 
+     * @param nIdHistorySent
+     *            the id to set, or {@code 0} if the values have never been sent
+     */
+    public void setIdHistorySent( int nIdHistorySent )
+    {
+        _nIdHistorySent = nIdHistorySent;
+    }
+
+    /**
+     * Gives the RefDet
+     * 
+     * @return the RefDet
+     */
+    public String getRefDet( )
+    {
+        return _strRefDet;
+    }
+
+    /**
+     * Sets the RefDet
+     * 
+     * @param strRefDet
+     *            the RefDet to set
+     */
+    public void setRefDet( String strRefDet )
+    {
+        _strRefDet = strRefDet;
+    }
+
+    /**
+     * Gives the amount
+     * 
+     * @return the amount
+     */
+    public String getAmount( )
+    {
+        return _strAmount;
+    }
+
+    /**
+     * Sets the amount
+     * 
+     * @param strAmount
+     *            the amount to set
+     */
+    public void setAmount( String strAmount )
+    {
+        _strAmount = strAmount;
+    }
+
+    /**
+     * Gives the email
+     * 
+     * @return the email
+     */
+    public String getEmail( )
+    {
+        return _strEmail;
+    }
+
+    /**
+     * Sets the email
+     * 
+     * @param strEmail
+     *            the email to set
+     */
+    public void setEmail( String strEmail )
+    {
+        _strEmail = strEmail;
+    }
+
+    /**
+     * Gives the status of the last execution of the task on the form response
+     * 
+     * @return the status, or {@code null} if the task has never been executed on the form response
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the status of the last execution of the task on the form response
+     * 
+     * @param strStatus
+     *            the status to set
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Gives the date of the last execution of the task on the form response
+     * 
+     * @return the date, or {@code null} if the task has never been executed on the form response
+     */
+    public Timestamp getDateExecution( )
+    {
+        return _dateExecution;
+    }
+
+    /**
+     * Sets the date of the last execution of the task on the form response
+     * 
+     * @param dateExecution
+     *            the date to set
+     */
+    public void setDateExecution( Timestamp dateExecution )
+    {
+        _dateExecution = dateExecution;
+    }
+}
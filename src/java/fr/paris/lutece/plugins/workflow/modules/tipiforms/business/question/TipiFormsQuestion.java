@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * This class represents a question of a form, as displayed in the task configuration
+ * 
+ */
+public class TipiFormsQuestion implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private int _nIdQuestion;
+    private String _strTitle;
+    private int _nIdStep;
+    private String _strStepTitle;
+    private String _strEntryType;
+
+    /**
+     * Gives the question id
+     * 
+     * @return the id
+     */
+    public int getIdQuestion( )
+    {
+        return _nIdQuestion;
+    }
+
+    /**
+     * Sets the question id
+     *
+     * @param nIdQuestion
+     *            the id to set
+     */
+    public void setIdQuestion( int nIdQuestion )
+    {
+        _nIdQuestion = nIdQuestion;
+    }
+
+    /**
+     * Gives the question title
+     * 
+     * @return the title
+     */
+    public String getTitle( )
+    {
+        return _strTitle;
+    }
+
+    /**
+     * Sets the question title
+     *
+     * @param strTitle
+     *            the title to set
+     */
+    public void setTitle( String strTitle )
+    {
+        _strTitle = strTitle;
+    }
+
+    /**
+     * Gives the id of the step of the question
+     * 
+     * @return the id
+     */
+    public int getIdStep( )
+    {
+        return _nIdStep;
+    }
+
+    /**
+     * Sets the id of the step of the question
+     *
+     * @param nIdStep
+     *            the id to set
+     */
+    public void setIdStep( int nIdStep )
+    {
+        _nIdStep = nIdStep;
+    }
+
+    /**
+     * Gives the title of the step of the question
+     * 
+     * @return the title
+     */
+    public String getStepTitle( )
+    {
+        return _strStepTitle;
+    }
+
+    /**
+     * Sets the title of the step of the question
+     *
+     * @param strStepTitle
+     *            the title to set
+     */
+    public void setStepTitle( String strStepTitle )
+    {
+        _strStepTitle = strStepTitle;
+    }
+
+    /**
+     * Gives the entry type of the question (the bean name of the entry type service)
+     * 
+     * @return the entry type
+     */
+    public String getEntryType( )
+    {
+        return _strEntryType;
+    }
+
+    /**
+     * Sets the entry type of the question
+     *
+     * @param strEntryType
+     *            the entry type to set
+     */
+    public void setEntryType( String strEntryType )
+    {
+        _strEntryType = strEntryType;
+    }
+}
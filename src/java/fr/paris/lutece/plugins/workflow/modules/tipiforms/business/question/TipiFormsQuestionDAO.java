@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsQuestion} objects
+ */
+public class TipiFormsQuestionDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_SELECT_BY_FORM = " SELECT q.id_question, q.title, s.id_step, s.title AS step_title, et.class_name AS entry_type "
+            + " FROM forms_question q INNER JOIN forms_step s ON s.id_step = q.id_step "
+            + " LEFT OUTER JOIN genatt_entry e ON e.id_entry = q.id_entry LEFT OUTER JOIN genatt_entry_type et ON et.id_type = e.id_type "
+            + " WHERE s.id_form = ? ORDER BY s.id_step, q.id_question ";
+
+    // Other constants
+    private static final String PLUGIN_NAME_FORMS = "forms";
+
+    /**
+     * Loads all the questions of the specified form with one query
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the questions, ordered by step
+     */
+    public List<TipiFormsQuestion> selectByForm( int nIdForm )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_FORM, getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdForm );
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listQuestion.add( dataToObject( daoUtil ) );
+        }
+
+        daoUtil.close( );
+
+        return listQuestion;
+    }
+
+    /**
+     * Creates a {@code TipiFormsQuestion} object from the data of the specified {@code DAOUtil}
+     * 
+     * @param daoUtil
+     *            the {@code DAOUtil} containing the data
+     * @return a new {@code TipiFormsQuestion} object
+     */
+    private TipiFormsQuestion dataToObject( DAOUtil daoUtil )
+    {
+        TipiFormsQuestion question = new TipiFormsQuestion( );
+
+        question.setIdQuestion( daoUtil.getInt( "id_question" ) );
+        question.setTitle( daoUtil.getString( "title" ) );
+        question.setIdStep( daoUtil.getInt( "id_step" ) );
+        question.setStepTitle( daoUtil.getString( "step_title" ) );
+        question.setEntryType( daoUtil.getString( "entry_type" ) );
+
+        return question;
+    }
+
+    /**
+     * Gives the plugin owning the forms tables
+     * 
+     * @return the plugin
+     */
+    private Plugin getPlugin( )
+    {
+        return PluginService.getPlugin( PLUGIN_NAME_FORMS );
+    }
+}
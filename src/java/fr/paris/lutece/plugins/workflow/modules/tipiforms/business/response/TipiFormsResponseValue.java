@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response;
+
+/**
+ * 
+ * This class represents the value of a response given to a question of a form response. It is a flat projection of the form response graph: it carries
+ * the ids, the bean name of the entry type and the raw value only
+ * 
+ */
+public class TipiFormsResponseValue
+{
+    private int _nIdFormResponse;
+    private int _nIdQuestion;
+    private int _nIdQuestionResponse;
+    private int _nIdResponse;
+    private int _nIdEntry;
+    private String _strEntryType;
+    private String _strValue;
+
+    /**
+     * Gives the form response id
+     * 
+     * @return the id
+     */
+    public int getIdFormResponse( )
+    {
+        return _nIdFormResponse;
+    }
+
+    /**
+     * Sets the form response id
+     *
+     * @param nIdFormResponse
+     *            the id to set
+     */
+    public void setIdFormResponse( int nIdFormResponse )
+    {
+        _nIdFormResponse = nIdFormResponse;
+    }
+
+    /**
+     * Gives the question id
+     * 
+     * @return the id
+     */
+    public int getIdQuestion( )
+    {
+        return _nIdQuestion;
+    }
+
+    /**
+     * Sets the question id
+     *
+     * @param nIdQuestion
+     *            the id to set
+     */
+    public void setIdQuestion( int nIdQuestion )
+    {
+        _nIdQuestion = nIdQuestion;
+    }
+
+    /**
+     * Gives the id of the question response, that is one iteration of the question in the form response
+     * 
+     * @return the id
+     */
+    public int getIdQuestionResponse( )
+    {
+        return _nIdQuestionResponse;
+    }
+
+    /**
+     * Sets the id of the question response
+     *
+     * @param nIdQuestionResponse
+     *            the id to set
+     */
+    public void setIdQuestionResponse( int nIdQuestionResponse )
+    {
+        _nIdQuestionResponse = nIdQuestionResponse;
+    }
+
+    /**
+     * Gives the response id
+     * 
+     * @return the id
+     */
+    public int getIdResponse( )
+    {
+        return _nIdResponse;
+    }
+
+    /**
+     * Sets the response id
+     *
+     * @param nIdResponse
+     *            the id to set
+     */
+    public void setIdResponse( int nIdResponse )
+    {
+        _nIdResponse = nIdResponse;
+    }
+
+    /**
+     * Gives the entry id
+     * 
+     * @return the id
+     */
+    public int getIdEntry( )
+    {
+        return _nIdEntry;
+    }
+
+    /**
+     * Sets the entry id
+     *
+     * @param nIdEntry
+     *            the id to set
+     */
+    public void setIdEntry( int nIdEntry )
+    {
+        _nIdEntry = nIdEntry;
+    }
+
+    /**
+     * Gives the bean name of the entry type of the question
+     * 
+     * @return the bean name
+     */
+    public String getEntryType( )
+    {
+        return _strEntryType;
+    }
+
+    /**
+     * Sets the bean name of the entry type of the question
+     *
+     * @param strEntryType
+     *            the bean name to set
+     */
+    public void setEntryType( String strEntryType )
+    {
+        _strEntryType = strEntryType;
+    }
+
+    /**
+     * Gives the raw value of the response
+     * 
+     * @return the value
+     */
+    public String getValue( )
+    {
+        return _strValue;
+    }
+
+    /**
+     * Sets the raw value of the response
+     *
+     * @param strValue
+     *            the value to set
+     */
+    public void setValue( String strValue )
+    {
+        _strValue = strValue;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsResponseValue} objects. Only the responses of the requested questions are read, with the
+ * columns needed by the extraction. The few distinct entry type names are shared by all the loaded objects
+ */
+public class TipiFormsResponseValueDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_SELECT = " SELECT fqr.id_form_response, fqr.id_question, fqr.id_question_response, gr.id_response, gr.id_entry, gety.class_name, gr.response_value "
+            + " FROM forms_question_response fqr "
+            + " INNER JOIN forms_question_entry_response fqer ON fqer.id_question_response = fqr.id_question_response "
+            + " INNER JOIN genatt_response gr ON gr.id_response = fqer.id_entry_response "
+            + " INNER JOIN genatt_entry ge ON ge.id_entry = gr.id_entry "
+            + " INNER JOIN genatt_entry_type gety ON gety.id_type = ge.id_type ";
+    private static final String SQL_QUERY_SELECT_BY_FORM_RESPONSE = SQL_QUERY_SELECT + " WHERE fqr.id_form_response = ? AND fqr.id_question IN ( ?,?,? ) ";
+    private static final String SQL_QUERY_SELECT_BY_FORM_RESPONSE_LIST = SQL_QUERY_SELECT + " WHERE fqr.id_question IN ( ?,?,? ) AND fqr.id_form_response IN ( ";
+    private static final String SQL_PARAMETER = "?";
+    private static final String SQL_PARAMETER_SEPARATOR = ",";
+    private static final String SQL_CLOSING_PARENTHESIS = " ) ";
+
+    // Other constants
+    private static final String PLUGIN_NAME_FORMS = "forms";
+
+    private final Map<String, String> _mapEntryType = new ConcurrentHashMap<String, String>( );
+
+    /**
+     * Loads the response values of the specified form response for the specified questions
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdRefDetQuestion
+     *            the id of the question for the RefDet
+     * @param nIdAmountQuestion
+     *            the id of the question for the amount
+     * @param nIdEmailQuestion
+     *            the id of the question for the email
+     * @return the response values
+     */
+    public List<TipiFormsResponseValue> selectByFormResponse( int nIdFormResponse, int nIdRefDetQuestion, int nIdAmountQuestion, int nIdEmailQuestion )
+    {
+        List<TipiFormsResponseValue> listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_FORM_RESPONSE, getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, nIdFormResponse );
+        daoUtil.setInt( ++nIndex, nIdRefDetQuestion );
+        daoUtil.setInt( ++nIndex, nIdAmountQuestion );
+        daoUtil.setInt( ++nIndex, nIdEmailQuestion );
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listResponseValue.add( dataToObject( daoUtil ) );
+        }
+
+        daoUtil.close( );
+
+        return listResponseValue;
+    }
+
+    /**
+     * Loads the response values of the specified form responses for the specified questions
+     * 
+     * @param listIdFormResponse
+     *            the form response ids. Must not be empty
+     * @param nIdRefDetQuestion
+     *            the id of the question for the RefDet
+     * @param nIdAmountQuestion
+     *            the id of the question for the amount
+     * @param nIdEmailQuestion
+     *            the id of the question for the email
+     * @return the response values
+     */
+    public List<TipiFormsResponseValue> selectByFormResponseList( List<Integer> listIdFormResponse, int nIdRefDetQuestion, int nIdAmountQuestion,
+            int nIdEmailQuestion )
+    {
+        List<TipiFormsResponseValue> listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+        DAOUtil daoUtil = new DAOUtil( buildQueryWithInClause( SQL_QUERY_SELECT_BY_FORM_RESPONSE_LIST, listIdFormResponse.size( ) ), getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, nIdRefDetQuestion );
+        daoUtil.setInt( ++nIndex, nIdAmountQuestion );
+        daoUtil.setInt( ++nIndex, nIdEmailQuestion );
+
+        for ( Integer nIdFormResponse : listIdFormResponse )
+        {
+            daoUtil.setInt( ++nIndex, nIdFormResponse );
+        }
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listResponseValue.add( dataToObject( daoUtil ) );
+        }
+
+        daoUtil.close( );
+
+        return listResponseValue;
+    }
+
+    /**
+     * Builds a query ending with a {@code IN} clause containing the specified number of parameters
+     * 
+     * @param strQueryStart
+     *            the start of the query, ending with the opening of the {@code IN} clause
+     * @param nParameterCount
+     *            the number of parameters
+     * @return the query
+     */
+    private static String buildQueryWithInClause( String strQueryStart, int nParameterCount )
+    {
+        StringBuilder sbQuery = new StringBuilder( strQueryStart );
+
+        for ( int i = 0; i < nParameterCount; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbQuery.append( SQL_PARAMETER_SEPARATOR );
+            }
+
+            sbQuery.append( SQL_PARAMETER );
+        }
+
+        return sbQuery.append( SQL_CLOSING_PARENTHESIS ).toString( );
+    }
+
+    /**
+     * Creates a {@code TipiFormsResponseValue} object from the data of the specified {@code DAOUtil}
+     * 
+     * @param daoUtil
+     *            the {@code DAOUtil} containing the data
+     * @return a new {@code TipiFormsResponseValue} object
+     */
+    private TipiFormsResponseValue dataToObject( DAOUtil daoUtil )
+    {
+        TipiFormsResponseValue responseValue = new TipiFormsResponseValue( );
+
+        responseValue.setIdFormResponse( daoUtil.getInt( "id_form_response" ) );
+        responseValue.setIdQuestion( daoUtil.getInt( "id_question" ) );
+        responseValue.setIdQuestionResponse( daoUtil.getInt( "id_question_response" ) );
+        responseValue.setIdResponse( daoUtil.getInt( "id_response" ) );
+        responseValue.setIdEntry( daoUtil.getInt( "id_entry" ) );
+        responseValue.setEntryType( share( daoUtil.getString( "class_name" ) ) );
+        responseValue.setValue( daoUtil.getString( "response_value" ) );
+
+        return responseValue;
+    }
+
+    /**
+     * Gives the shared instance of the specified entry type name
+     * 
+     * @param strEntryType
+     *            the entry type name
+     * @return the shared instance
+     */
+    private String share( String strEntryType )
+    {
+        if ( strEntryType == null )
+        {
+            return null;
+        }
+
+        String strShared = _mapEntryType.putIfAbsent( strEntryType, strEntryType );
+
+        return ( strShared != null ) ? strShared : strEntryType;
+    }
+
+    /**
+     * Gives the plugin owning the forms tables
+     * 
+     * @return the plugin
+     */
+    private Plugin getPlugin( )
+    {
+        return PluginService.getPlugin( PLUGIN_NAME_FORMS );
+    }
+}
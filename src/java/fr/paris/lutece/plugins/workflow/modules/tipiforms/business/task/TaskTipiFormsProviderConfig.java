@@ -52,6 +52,7 @@ public class TaskTipiFormsProviderConfig extends TaskConfig
     private int _nIdAmountQuestion;
     @Min( 1 )
     private int _nIdEmailQuestion;
+    private int _nVersion;
 
     /**
      * Gives the form id
@@ -137,4 +138,25 @@ public class TaskTipiFormsProviderConfig extends TaskConfig
         _nIdEmailQuestion = idEmailQuestion;
     }
 
+    /**
+     * Gives the version of the configuration, incremented each time the configuration is stored
+     * 
+     * @return the version
+     */
+    public int getVersion( )
+    {
+        return _nVersion;
+    }
+
+    /**
+     * Sets the version of the configuration
+     *
+     * @param nVersion
+     *            the version to set
+     */
+    public void setVersion( int nVersion )
+    {
+        _nVersion = nVersion;
+    }
+
 }
@@ -33,20 +33,64 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache.TaskTipiFormsProviderConfigCacheService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics.TipiFormsProviderMetrics;
 import fr.paris.lutece.plugins.workflowcore.business.config.ITaskConfigDAO;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.DAOUtil;
 
 /**
- * This class provides Data Access methods for {@link TaskTipiFormsProviderConfig} objects
+ * This class provides Data Access methods for {@link TaskTipiFormsProviderConfig} objects. The configurations and the task ids of each form are kept in
+ * {@link TaskTipiFormsProviderConfigCacheService}, which is updated on each write. Each statement is timed in {@link TipiFormsProviderMetrics} and logged
+ * when it is slower than the threshold defined by the property {@value #PROPERTY_SLOW_STATEMENT_THRESHOLD}, optionally suffixed by the statement name.
+ * Each write increments the version of the configuration and the change stamp shared by all the configurations, so that the other nodes can detect it
  */
 public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFormsProviderConfig>
 {
     // SQL QUERY
-    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_cf ( id_task,  id_form, id_question_refdet, id_question_amount, id_question_email )  VALUES ( ?,?,?,?,? ) ";
-    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = " SELECT id_task, id_form, id_question_refdet, id_question_amount, id_question_email FROM workflow_task_tipiformsprovider_cf  WHERE id_task = ? ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE workflow_task_tipiformsprovider_cf SET id_form = ?, id_question_refdet = ?, id_question_amount = ?, id_question_email = ?  WHERE id_task = ? ";
+    private static final String SQL_QUERY_INSERT = " INSERT INTO workflow_task_tipiformsprovider_cf ( id_task,  id_form, id_question_refdet, id_question_amount, id_question_email, version )  VALUES ( ?,?,?,?,?,? ) ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = " SELECT id_task, id_form, id_question_refdet, id_question_amount, id_question_email, version FROM workflow_task_tipiformsprovider_cf  WHERE id_task = ? ";
+    private static final String SQL_QUERY_FIND_ALL = " SELECT id_task, id_form, id_question_refdet, id_question_amount, id_question_email, version FROM workflow_task_tipiformsprovider_cf ";
+    private static final String SQL_QUERY_FIND_BY_FORM = SQL_QUERY_FIND_ALL + " WHERE id_form = ? ";
+    private static final String SQL_QUERY_FIND_BY_QUESTION = SQL_QUERY_FIND_ALL
+            + " WHERE id_question_refdet = ? OR id_question_amount = ? OR id_question_email = ? ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE workflow_task_tipiformsprovider_cf SET id_form = ?, id_question_refdet = ?, id_question_amount = ?, id_question_email = ?, version = version + 1  WHERE id_task = ? ";
     private static final String SQL_QUERY_DELETE = " DELETE FROM workflow_task_tipiformsprovider_cf WHERE id_task = ? ";
+    private static final String SQL_QUERY_FIND_VERSIONS = " SELECT id_task, version FROM workflow_task_tipiformsprovider_cf ";
+    private static final String SQL_QUERY_FIND_CHANGE_STAMP = " SELECT stamp FROM workflow_task_tipiformsprovider_cs WHERE id_stamp = 1 ";
+    private static final String SQL_QUERY_INCREMENT_CHANGE_STAMP = " UPDATE workflow_task_tipiformsprovider_cs SET stamp = stamp + 1 WHERE id_stamp = 1 ";
+
+    // Properties
+    private static final String PROPERTY_SLOW_STATEMENT_THRESHOLD = "workflow-tipiforms.dao.slowStatementThreshold";
+
+    // Statements
+    private static final String STATEMENT_INSERT = "insert";
+    private static final String STATEMENT_LOAD = "load";
+    private static final String STATEMENT_LOAD_ALL = "loadAll";
+    private static final String STATEMENT_LOAD_BY_FORM = "loadByForm";
+    private static final String STATEMENT_LOAD_BY_QUESTION = "loadByQuestion";
+    private static final String STATEMENT_STORE = "store";
+    private static final String STATEMENT_DELETE = "delete";
+    private static final String STATEMENT_LOAD_VERSIONS = "loadVersions";
+    private static final String STATEMENT_LOAD_CHANGE_STAMP = "loadChangeStamp";
+    private static final String STATEMENT_INCREMENT_CHANGE_STAMP = "incrementChangeStamp";
+
+    // Other constants
+    private static final int DEFAULT_SLOW_STATEMENT_THRESHOLD = 200;
+    private static final int FIRST_VERSION = 1;
+    private static final String PARAMETER_ID_TASK = "id_task=";
+    private static final String PARAMETER_ID_FORM = "id_form=";
+    private static final String PARAMETER_ID_QUESTION = "id_question=";
+    private static final String PARAMETER_NONE = "-";
+    private static final String PROPERTY_SEPARATOR = ".";
 
     /**
      * {@inheritDoc}
@@ -54,16 +98,33 @@ public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFo
     @Override
     public void insert( TaskTipiFormsProviderConfig config )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, TipiPlugin.getPlugin( ) );
 
-        int nIndex = 0;
+            int nIndex = 0;
 
-        daoUtil.setInt( ++nIndex, config.getIdTask( ) );
+            daoUtil.setInt( ++nIndex, config.getIdTask( ) );
 
-        objectToData( nIndex, config, daoUtil );
+            nIndex = objectToData( nIndex, config, daoUtil );
+
+            daoUtil.setInt( ++nIndex, FIRST_VERSION );
+
+            daoUtil.executeUpdate( );
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_INSERT, SQL_QUERY_INSERT, PARAMETER_ID_TASK + config.getIdTask( ), lStart );
+        }
 
-        daoUtil.executeUpdate( );
-        daoUtil.close( );
+        incrementChangeStamp( );
+
+        config.setVersion( FIRST_VERSION );
+        getCache( ).put( config );
+        getCache( ).removeForms( );
     }
 
     /**
@@ -72,38 +133,232 @@ public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFo
     @Override
     public TaskTipiFormsProviderConfig load( int nIdTask )
     {
-        TaskTipiFormsProviderConfig config = null;
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, TipiPlugin.getPlugin( ) );
+        TaskTipiFormsProviderConfig config = getCache( ).get( nIdTask );
+
+        if ( config != null )
+        {
+            return config;
+        }
+
+        long lStart = System.nanoTime( );
 
-        daoUtil.setInt( 1, nIdTask );
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, TipiPlugin.getPlugin( ) );
+
+            daoUtil.setInt( 1, nIdTask );
+
+            daoUtil.executeQuery( );
 
-        daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                config = dataToObject( daoUtil );
+            }
 
-        if ( daoUtil.next( ) )
+            daoUtil.close( );
+        }
+        finally
         {
-            config = dataToObject( daoUtil );
+            monitor( STATEMENT_LOAD, SQL_QUERY_FIND_BY_PRIMARY_KEY, PARAMETER_ID_TASK + nIdTask, lStart );
         }
 
-        daoUtil.close( );
+        if ( config != null )
+        {
+            getCache( ).put( config );
+        }
 
         return config;
     }
 
+    /**
+     * Loads all the configurations with one query. The loaded configurations are put in the cache
+     * 
+     * @return the configurations
+     */
+    public List<TaskTipiFormsProviderConfig> loadAll( )
+    {
+        List<TaskTipiFormsProviderConfig> listConfig = new ArrayList<TaskTipiFormsProviderConfig>( );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_ALL, TipiPlugin.getPlugin( ) );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listConfig.add( dataToObject( daoUtil ) );
+            }
+
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_LOAD_ALL, SQL_QUERY_FIND_ALL, PARAMETER_NONE, lStart );
+        }
+
+        for ( TaskTipiFormsProviderConfig config : listConfig )
+        {
+            getCache( ).put( config );
+        }
+
+        return listConfig;
+    }
+
+    /**
+     * Loads the configurations using the specified form. The configurations are served by the cache when the task ids of the form are in it, and read
+     * with one query otherwise
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the configurations
+     */
+    public List<TaskTipiFormsProviderConfig> loadByForm( int nIdForm )
+    {
+        List<Integer> listIdTask = getCache( ).getTaskIdsByForm( nIdForm );
+
+        if ( listIdTask != null )
+        {
+            List<TaskTipiFormsProviderConfig> listConfig = loadByTasks( listIdTask, nIdForm );
+
+            if ( listConfig != null )
+            {
+                return listConfig;
+            }
+        }
+
+        List<TaskTipiFormsProviderConfig> listConfig = new ArrayList<TaskTipiFormsProviderConfig>( );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_FORM, TipiPlugin.getPlugin( ) );
+
+            daoUtil.setInt( 1, nIdForm );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listConfig.add( dataToObject( daoUtil ) );
+            }
+
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_LOAD_BY_FORM, SQL_QUERY_FIND_BY_FORM, PARAMETER_ID_FORM + nIdForm, lStart );
+        }
+
+        listIdTask = new ArrayList<Integer>( listConfig.size( ) );
+
+        for ( TaskTipiFormsProviderConfig config : listConfig )
+        {
+            getCache( ).put( config );
+            listIdTask.add( config.getIdTask( ) );
+        }
+
+        getCache( ).putTaskIdsByForm( nIdForm, listIdTask );
+
+        return listConfig;
+    }
+
+    /**
+     * Loads the configurations of the specified tasks, which were configured for the specified form
+     * 
+     * @param listIdTask
+     *            the task ids
+     * @param nIdForm
+     *            the form id
+     * @return the configurations, or {@code null} if one of them does not exist anymore or uses another form
+     */
+    private List<TaskTipiFormsProviderConfig> loadByTasks( List<Integer> listIdTask, int nIdForm )
+    {
+        List<TaskTipiFormsProviderConfig> listConfig = new ArrayList<TaskTipiFormsProviderConfig>( listIdTask.size( ) );
+
+        for ( int nIdTask : listIdTask )
+        {
+            TaskTipiFormsProviderConfig config = load( nIdTask );
+
+            if ( config == null || config.getIdForm( ) != nIdForm )
+            {
+                return null;
+            }
+
+            listConfig.add( config );
+        }
+
+        return listConfig;
+    }
+
+    /**
+     * Loads the configurations using the specified question for the RefDet, the amount or the email
+     * 
+     * @param nIdQuestion
+     *            the question id
+     * @return the configurations
+     */
+    public List<TaskTipiFormsProviderConfig> loadByQuestion( int nIdQuestion )
+    {
+        List<TaskTipiFormsProviderConfig> listConfig = new ArrayList<TaskTipiFormsProviderConfig>( );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_QUESTION, TipiPlugin.getPlugin( ) );
+
+            daoUtil.setInt( 1, nIdQuestion );
+            daoUtil.setInt( 2, nIdQuestion );
+            daoUtil.setInt( 3, nIdQuestion );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listConfig.add( dataToObject( daoUtil ) );
+            }
+
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_LOAD_BY_QUESTION, SQL_QUERY_FIND_BY_QUESTION, PARAMETER_ID_QUESTION + nIdQuestion, lStart );
+        }
+
+        return listConfig;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void store( TaskTipiFormsProviderConfig config )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, TipiPlugin.getPlugin( ) );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, TipiPlugin.getPlugin( ) );
+
+            int nIndex = 0;
+            nIndex = objectToData( nIndex, config, daoUtil );
+
+            daoUtil.setInt( ++nIndex, config.getIdTask( ) );
 
-        int nIndex = 0;
-        nIndex = objectToData( nIndex, config, daoUtil );
+            daoUtil.executeUpdate( );
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_STORE, SQL_QUERY_UPDATE, PARAMETER_ID_TASK + config.getIdTask( ), lStart );
+        }
 
-        daoUtil.setInt( ++nIndex, config.getIdTask( ) );
+        incrementChangeStamp( );
 
-        daoUtil.executeUpdate( );
-        daoUtil.close( );
+        // the new version is known by the database only: the configuration is read again on the next load
+        getCache( ).remove( config.getIdTask( ) );
+        getCache( ).removeForms( );
     }
 
     /**
@@ -112,11 +367,107 @@ public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFo
     @Override
     public void delete( int nIdTask )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, TipiPlugin.getPlugin( ) );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, TipiPlugin.getPlugin( ) );
+
+            daoUtil.setInt( 1, nIdTask );
+            daoUtil.executeUpdate( );
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_DELETE, SQL_QUERY_DELETE, PARAMETER_ID_TASK + nIdTask, lStart );
+        }
+
+        incrementChangeStamp( );
+
+        getCache( ).remove( nIdTask );
+        getCache( ).removeForms( );
+    }
+
+    /**
+     * Loads the versions of all the configurations, without the configurations themselves
+     * 
+     * @return the versions, mapped by task id
+     */
+    public Map<Integer, Integer> loadVersions( )
+    {
+        Map<Integer, Integer> mapVersion = new HashMap<Integer, Integer>( );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_VERSIONS, TipiPlugin.getPlugin( ) );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                mapVersion.put( daoUtil.getInt( "id_task" ), daoUtil.getInt( "version" ) );
+            }
+
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_LOAD_VERSIONS, SQL_QUERY_FIND_VERSIONS, PARAMETER_NONE, lStart );
+        }
+
+        return mapVersion;
+    }
+
+    /**
+     * Loads the change stamp of the configurations, incremented by each write on any node
+     * 
+     * @return the change stamp
+     */
+    public long loadChangeStamp( )
+    {
+        long lChangeStamp = 0L;
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_CHANGE_STAMP, TipiPlugin.getPlugin( ) );
+
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                lChangeStamp = daoUtil.getLong( "stamp" );
+            }
 
-        daoUtil.setInt( 1, nIdTask );
-        daoUtil.executeUpdate( );
-        daoUtil.close( );
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_LOAD_CHANGE_STAMP, SQL_QUERY_FIND_CHANGE_STAMP, PARAMETER_NONE, lStart );
+        }
+
+        return lChangeStamp;
+    }
+
+    /**
+     * Increments the change stamp of the configurations
+     */
+    private void incrementChangeStamp( )
+    {
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_CHANGE_STAMP, TipiPlugin.getPlugin( ) );
+
+            daoUtil.executeUpdate( );
+            daoUtil.close( );
+        }
+        finally
+        {
+            monitor( STATEMENT_INCREMENT_CHANGE_STAMP, SQL_QUERY_INCREMENT_CHANGE_STAMP, PARAMETER_NONE, lStart );
+        }
     }
 
     /**
@@ -135,6 +486,7 @@ public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFo
         config.setIdRefDetQuestion( daoUtil.getInt( "id_question_refdet" ) );
         config.setIdAmountQuestion( daoUtil.getInt( "id_question_amount" ) );
         config.setIdEmailQuestion( daoUtil.getInt( "id_question_email" ) );
+        config.setVersion( daoUtil.getInt( "version" ) );
 
         return config;
     }
@@ -162,4 +514,41 @@ public class TaskTipiFormsProviderConfigDAO implements ITaskConfigDAO<TaskTipiFo
         return nIndex;
     }
 
+    /**
+     * Records the duration of the specified statement and logs it if it is slow
+     * 
+     * @param strStatement
+     *            the statement name
+     * @param strSql
+     *            the SQL of the statement
+     * @param strParameters
+     *            the parameters of the statement, for the log
+     * @param lStartNanos
+     *            the start of the statement
+     */
+    private static void monitor( String strStatement, String strSql, String strParameters, long lStartNanos )
+    {
+        long lDurationNanos = System.nanoTime( ) - lStartNanos;
+        int nThresholdMillis = AppPropertiesService.getPropertyInt( PROPERTY_SLOW_STATEMENT_THRESHOLD + PROPERTY_SEPARATOR + strStatement,
+                AppPropertiesService.getPropertyInt( PROPERTY_SLOW_STATEMENT_THRESHOLD, DEFAULT_SLOW_STATEMENT_THRESHOLD ) );
+        boolean bSlow = lDurationNanos > TimeUnit.MILLISECONDS.toNanos( nThresholdMillis );
+
+        TipiFormsProviderMetrics.getInstance( ).recordConfigStatement( strStatement, lDurationNanos, bSlow );
+
+        if ( bSlow )
+        {
+            AppLogService.error( "Slow TIPI forms statement : statement=" + strStatement + " " + strParameters + " duration_ms="
+                    + TimeUnit.NANOSECONDS.toMillis( lDurationNanos ) + " threshold_ms=" + nThresholdMillis + " sql=" + strSql.trim( ) );
+        }
+    }
+
+    /**
+     * Gives the cache of the configurations
+     * 
+     * @return the cache
+     */
+    private TaskTipiFormsProviderConfigCacheService getCache( )
+    {
+        return TaskTipiFormsProviderConfigCacheService.getInstance( );
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.validation;
+
+import java.sql.Timestamp;
+
+/**
+ * 
+ * This class represents the validation of a configuration of the task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask} against the forms tables. It contains
+ * the form of each configured question, as found in the database
+ * 
+ */
+public class TipiFormsProviderConfigValidation
+{
+    /**
+     * Status of a configuration not validated yet
+     */
+    public static final String STATUS_UNCHECKED = "UNCHECKED";
+
+    /**
+     * Status of a valid configuration
+     */
+    public static final String STATUS_VALID = "VALID";
+
+    /**
+     * Status of a configuration whose form does not exist anymore
+     */
+    public static final String STATUS_UNKNOWN_FORM = "UNKNOWN_FORM";
+
+    /**
+     * Status of a configuration whose RefDet question does not exist anymore or does not belong to the form
+     */
+    public static final String STATUS_INVALID_QUESTION_REFDET = "INVALID_QUESTION_REFDET";
+
+    /**
+     * Status of a configuration whose amount question does not exist anymore or does not belong to the form
+     */
+    public static final String STATUS_INVALID_QUESTION_AMOUNT = "INVALID_QUESTION_AMOUNT";
+
+    /**
+     * Status of a configuration whose email question does not exist anymore or does not belong to the form
+     */
+    public static final String STATUS_INVALID_QUESTION_EMAIL = "INVALID_QUESTION_EMAIL";
+
+    private int _nIdTask;
+    private int _nIdForm;
+    private boolean _bFormFound;
+    private int _nIdFormOfRefDetQuestion;
+    private int _nIdFormOfAmountQuestion;
+    private int _nIdFormOfEmailQuestion;
+    private String _strStatus;
+    private Timestamp _dateValidation;
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Sets the task id
+     *
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        _nIdTask = nIdTask;
+    }
+
+    /**
+     * Gives the id of the configured form
+     * 
+     * @return the id
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Sets the id of the configured form
+     *
+     * @param nIdForm
+     *            the id to set
+     */
+    public void setIdForm( int nIdForm )
+    {
+        _nIdForm = nIdForm;
+    }
+
+    /**
+     * Tests whether the configured form exists
+     * 
+     * @return {@code true} if the form exists, {@code false} otherwise
+     */
+    public boolean isFormFound( )
+    {
+        return _bFormFound;
+    }
+
+    /**
+     * Sets whether the configured form exists
+     *
+     * @param bFormFound
+     *            {@code true} if the form exists, {@code false} otherwise
+     */
+    public void setFormFound( boolean bFormFound )
+    {
+        _bFormFound = bFormFound;
+    }
+
+    /**
+     * Gives the id of the form containing the RefDet question
+     * 
+     * @return the id, or {@code 0} if the question does not exist
+     */
+    public int getIdFormOfRefDetQuestion( )
+    {
+        return _nIdFormOfRefDetQuestion;
+    }
+
+    /**
+     * Sets the id of the form containing the RefDet question
+     *
+     * @param nIdForm
+     *            the id to set
+     */
+    public void setIdFormOfRefDetQuestion( int nIdForm )
+    {
+        _nIdFormOfRefDetQuestion = nIdForm;
+    }
+
+    /**
+     * Gives the id of the form containing the amount question
+     * 
+     * @return the id, or {@code 0} if the question does not exist
+     */
+    public int getIdFormOfAmountQuestion( )
+    {
+        return _nIdFormOfAmountQuestion;
+    }
+
+    /**
+     * Sets the id of the form containing the amount question
+     *
+     * @param nIdForm
+     *            the id to set
+     */
+    public void setIdFormOfAmountQuestion( int nIdForm )
+    {
+        _nIdFormOfAmountQuestion = nIdForm;
+    }
+
+    /**
+     * Gives the id of the form containing the email question
+     * 
+     * @return the id, or {@code 0} if the question does not exist
+     */
+    public int getIdFormOfEmailQuestion( )
+    {
+        return _nIdFormOfEmailQuestion;
+    }
+
+    /**
+     * Sets the id of the form containing the email question
+     *
+     * @param nIdForm
+     *            the id to set
+     */
+    public void setIdFormOfEmailQuestion( int nIdForm )
+    {
+        _nIdFormOfEmailQuestion = nIdForm;
+    }
+
+    /**
+     * Gives the status
+     * 
+     * @return the status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the status
+     *
+     * @param strStatus
+     *            the status to set
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Gives the date of the last validation
+     * 
+     * @return the date, or {@code null} if the configuration has never been validated
+     */
+    public Timestamp getDateValidation( )
+    {
+        return _dateValidation;
+    }
+
+    /**
+     * Sets the date of the last validation
+     *
+     * @param dateValidation
+     *            the date to set
+     */
+    public void setDateValidation( Timestamp dateValidation )
+    {
+        _dateValidation = dateValidation;
+    }
+
+    /**
+     * Tests whether the configuration has been found invalid
+     * 
+     * @return {@code true} if the configuration is invalid, {@code false} otherwise
+     */
+    public boolean isInvalid( )
+    {
+        return !STATUS_VALID.equals( _strStatus ) && !STATUS_UNCHECKED.equals( _strStatus );
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.business.validation;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.TipiPlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for {@link TipiFormsProviderConfigValidation} objects. The configurations are checked against the forms tables
+ * with one join query, so these tables must be in the same database as the table of the configurations
+ */
+public class TipiFormsProviderConfigValidationDAO
+{
+    // SQL QUERY
+    private static final String SQL_QUERY_SELECT = " SELECT cf.id_task, cf.id_form, cf.status, cf.date_validation, f.id_form AS found_form, "
+            + " sr.id_form AS form_refdet, sa.id_form AS form_amount, se.id_form AS form_email FROM workflow_task_tipiformsprovider_cf cf "
+            + " LEFT JOIN forms_form f ON f.id_form = cf.id_form "
+            + " LEFT JOIN forms_question qr ON qr.id_question = cf.id_question_refdet LEFT JOIN forms_step sr ON sr.id_step = qr.id_step "
+            + " LEFT JOIN forms_question qa ON qa.id_question = cf.id_question_amount LEFT JOIN forms_step sa ON sa.id_step = qa.id_step "
+            + " LEFT JOIN forms_question qe ON qe.id_question = cf.id_question_email LEFT JOIN forms_step se ON se.id_step = qe.id_step ";
+    private static final String SQL_QUERY_SELECT_BATCH = SQL_QUERY_SELECT + " WHERE cf.id_task > ? ORDER BY cf.id_task LIMIT ? ";
+    private static final String SQL_QUERY_SELECT_BY_TASK = SQL_QUERY_SELECT + " WHERE cf.id_task = ? ";
+    private static final String SQL_QUERY_SELECT_STATUS = " SELECT status FROM workflow_task_tipiformsprovider_cf WHERE id_task = ? ";
+    private static final String SQL_QUERY_UPDATE_STATUS = " UPDATE workflow_task_tipiformsprovider_cf SET status = ?, date_validation = ? WHERE id_task = ? ";
+
+    /**
+     * Selects the validations of the configurations following the specified task, ordered by task id
+     * 
+     * @param nIdTaskAfter
+     *            the id of the last task of the previous batch, or {@code 0} for the first batch
+     * @param nBatchSize
+     *            the maximum number of configurations to select
+     * @return the validations
+     */
+    public List<TipiFormsProviderConfigValidation> selectBatch( int nIdTaskAfter, int nBatchSize )
+    {
+        List<TipiFormsProviderConfigValidation> listValidation = new ArrayList<TipiFormsProviderConfigValidation>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BATCH, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTaskAfter );
+        daoUtil.setInt( 2, nBatchSize );
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listValidation.add( dataToObject( daoUtil ) );
+        }
+
+        daoUtil.close( );
+
+        return listValidation;
+    }
+
+    /**
+     * Selects the validation of the configuration of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the validation, or {@code null} if the task has no configuration
+     */
+    public TipiFormsProviderConfigValidation selectByTask( int nIdTask )
+    {
+        TipiFormsProviderConfigValidation validation = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_TASK, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            validation = dataToObject( daoUtil );
+        }
+
+        daoUtil.close( );
+
+        return validation;
+    }
+
+    /**
+     * Selects the status of the configuration of the specified task, without checking it against the forms tables
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the status, or {@code null} if the task has no configuration
+     */
+    public String selectStatus( int nIdTask )
+    {
+        String strStatus = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_STATUS, TipiPlugin.getPlugin( ) );
+
+        daoUtil.setInt( 1, nIdTask );
+
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            strStatus = daoUtil.getString( 1 );
+        }
+
+        daoUtil.close( );
+
+        return strStatus;
+    }
+
+    /**
+     * Updates the status of the configuration of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param strStatus
+     *            the status
+     * @param dateValidation
+     *            the date of the validation
+     */
+    public void updateStatus( int nIdTask, String strStatus, Timestamp dateValidation )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_STATUS, TipiPlugin.getPlugin( ) );
+
+        int nIndex = 0;
+        daoUtil.setString( ++nIndex, strStatus );
+        daoUtil.setTimestamp( ++nIndex, dateValidation );
+        daoUtil.setInt( ++nIndex, nIdTask );
+
+        daoUtil.executeUpdate( );
+        daoUtil.close( );
+    }
+
+    /**
+     * Creates a {@code TipiFormsProviderConfigValidation} object from the data of the specified {@code DAOUtil}. The ids of the forms are {@code 0} when the
+     * outer joins do not match
+     * 
+     * @param daoUtil
+     *            the {@code DAOUtil} containing the data
+     * @return a new {@code TipiFormsProviderConfigValidation} object
+     */
+    private TipiFormsProviderConfigValidation dataToObject( DAOUtil daoUtil )
+    {
+        TipiFormsProviderConfigValidation validation = new TipiFormsProviderConfigValidation( );
+
+        validation.setIdTask( daoUtil.getInt( "id_task" ) );
+        validation.setIdForm( daoUtil.getInt( "id_form" ) );
+        validation.setStatus( daoUtil.getString( "status" ) );
+        validation.setDateValidation( daoUtil.getTimestamp( "date_validation" ) );
+        validation.setFormFound( daoUtil.getInt( "found_form" ) != 0 );
+        validation.setIdFormOfRefDetQuestion( daoUtil.getInt( "form_refdet" ) );
+        validation.setIdFormOfAmountQuestion( daoUtil.getInt( "form_amount" ) );
+        validation.setIdFormOfEmailQuestion( daoUtil.getInt( "form_email" ) );
+
+        return validation;
+    }
+}
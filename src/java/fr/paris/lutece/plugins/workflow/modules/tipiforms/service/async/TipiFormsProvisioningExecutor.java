@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitOpenException;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class executes the TIPI provisionings outside of the request thread. The number of concurrent provisionings and the number of waiting provisionings
+ * are bounded. Virtual threads are used when the JVM supports them. When the queue is full, the provisioning is executed by the calling thread. A
+ * provisioning rejected because the TIPI service is unhealthy is submitted again later, up to the number of times defined by the property
+ * {@value #PROPERTY_ASYNC_MAX_DEFERRALS}. When the executor is stopped, the provisionings which cannot be completed are notified as failed
+ *
+ */
+public final class TipiFormsProvisioningExecutor
+{
+    // Properties
+    private static final String PROPERTY_ASYNC_ENABLED = "workflow-tipiforms.async.enabled";
+    private static final String PROPERTY_ASYNC_CONCURRENCY = "workflow-tipiforms.async.concurrency";
+    private static final String PROPERTY_ASYNC_QUEUE_SIZE = "workflow-tipiforms.async.queueSize";
+    private static final String PROPERTY_ASYNC_MAX_DEFERRALS = "workflow-tipiforms.async.maxDeferrals";
+    private static final String PROPERTY_ASYNC_SHUTDOWN_TIMEOUT = "workflow-tipiforms.async.shutdownTimeout";
+
+    // Other constants
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_DEFERRALS = 10;
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 30;
+    private static final long RESUBMIT_DELAY_MILLIS = 1000L;
+    private static final String REASON_STOPPED = "the TIPI provisioning executor is stopped";
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final String THREAD_NAME_PREFIX = "workflow-tipiforms-provisioning-";
+
+    private static TipiFormsProvisioningExecutor _singleton;
+
+    private final ThreadPoolExecutor _executor;
+    private final ScheduledThreadPoolExecutor _scheduler;
+    private final int _nMaxDeferrals;
+    private final Set<ProvisioningJob> _setPendingJob = ConcurrentHashMap.newKeySet( );
+
+    /**
+     * Constructor of the unique instance, configured by the properties
+     */
+    private TipiFormsProvisioningExecutor( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_CONCURRENCY, DEFAULT_CONCURRENCY ),
+                AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ),
+                AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_MAX_DEFERRALS, DEFAULT_MAX_DEFERRALS ) );
+    }
+
+    /**
+     * Constructor. The provisionings are usually executed by the unique instance, see {@link #getInstance()}
+     * 
+     * @param nConcurrency
+     *            the maximum number of concurrent provisionings
+     * @param nQueueSize
+     *            the maximum number of waiting provisionings
+     * @param nMaxDeferrals
+     *            the maximum number of times a provisioning is submitted again because the TIPI service is unhealthy
+     */
+    public TipiFormsProvisioningExecutor( int nConcurrency, int nQueueSize, int nMaxDeferrals )
+    {
+        int nPoolSize = Math.max( 1, nConcurrency );
+
+        _executor = new ThreadPoolExecutor( nPoolSize, nPoolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>( Math.max( 1,
+                nQueueSize ) ), createThreadFactory( ), new RejectedProvisioningPolicy( ) );
+        _executor.allowCoreThreadTimeOut( true );
+        _scheduler = new ScheduledThreadPoolExecutor( 1, new PlatformThreadFactory( ) );
+        _nMaxDeferrals = nMaxDeferrals;
+    }
+
+    /**
+     * Gives the unique instance of the executor
+     * 
+     * @return the instance
+     */
+    public static synchronized TipiFormsProvisioningExecutor getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new TipiFormsProvisioningExecutor( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Tests whether the asynchronous mode is enabled
+     * 
+     * @return {@code true} if the asynchronous mode is enabled, {@code false} otherwise
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ASYNC_ENABLED, false );
+    }
+
+    /**
+     * Submits a provisioning
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param provisioning
+     *            the provisioning to execute
+     * @param callback
+     *            the callback notified when the provisioning is completed
+     */
+    public void submit( int nIdResourceHistory, Runnable provisioning, ITipiFormsProvisioningCallback callback )
+    {
+        submit( new ProvisioningJob( nIdResourceHistory, provisioning, callback ) );
+    }
+
+    /**
+     * Submits the specified job to the pool
+     * 
+     * @param job
+     *            the job
+     */
+    private void submit( ProvisioningJob job )
+    {
+        _setPendingJob.add( job );
+        _executor.execute( job );
+    }
+
+    /**
+     * Submits a job to the pool again after the specified delay
+     * 
+     * @param job
+     *            the job
+     * @param lDelayMillis
+     *            the delay in milliseconds
+     */
+    private void defer( final ProvisioningJob job, long lDelayMillis )
+    {
+        AppLogService.info( "The TIPI provisioning of the resource history " + job._nIdResourceHistory + " is deferred for " + lDelayMillis + " ms" );
+
+        try
+        {
+            _scheduler.schedule( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    _executor.execute( job );
+                }
+            }, lDelayMillis, TimeUnit.MILLISECONDS );
+        }
+        catch( RejectedExecutionException e )
+        {
+            job.abandon( REASON_STOPPED );
+        }
+    }
+
+    /**
+     * Gives the number of provisionings waiting to be executed
+     * 
+     * @return the number of waiting provisionings
+     */
+    public int getQueueSize( )
+    {
+        return _executor.getQueue( ).size( );
+    }
+
+    /**
+     * Gives the number of provisionings being executed
+     * 
+     * @return the number of provisionings being executed
+     */
+    public int getActiveCount( )
+    {
+        return _executor.getActiveCount( );
+    }
+
+    /**
+     * Stops the executor if it has been started, see {@link #shutdown()}
+     */
+    public static synchronized void shutdownIfStarted( )
+    {
+        if ( _singleton != null )
+        {
+            _singleton.shutdown( );
+        }
+    }
+
+    /**
+     * Stops the executor. The waiting provisionings are still executed within the delay defined by the property
+     * {@value #PROPERTY_ASYNC_SHUTDOWN_TIMEOUT}, the deferred ones are abandoned. The provisionings which have not been completed are notified as
+     * failed
+     */
+    public void shutdown( )
+    {
+        _scheduler.shutdownNow( );
+        _executor.shutdown( );
+
+        try
+        {
+            if ( !_executor.awaitTermination( AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT ),
+                    TimeUnit.SECONDS ) )
+            {
+                _executor.shutdownNow( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            _executor.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+        }
+
+        for ( ProvisioningJob job : _setPendingJob )
+        {
+            job.abandon( REASON_STOPPED );
+        }
+    }
+
+    /**
+     * Creates the thread factory. Virtual threads are used when available (Java 21+), platform daemon threads otherwise
+     * 
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory( )
+    {
+        try
+        {
+            Class<?> classBuilder = Class.forName( "java.lang.Thread$Builder" );
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            Method methodName = classBuilder.getMethod( "name", String.class, long.class );
+            builder = methodName.invoke( builder, THREAD_NAME_PREFIX, 0L );
+
+            return (ThreadFactory) classBuilder.getMethod( "factory" ).invoke( builder );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            AppLogService.debug( "Virtual threads are not available, platform threads are used for the TIPI provisionings" );
+
+            return new PlatformThreadFactory( );
+        }
+    }
+
+    /**
+     * This class creates named daemon platform threads
+     */
+    private static final class PlatformThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nThreadNumber = new AtomicInteger( );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + _nThreadNumber.getAndIncrement( ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+
+    /**
+     * This class represents a submitted provisioning. Its callback is notified once, by the first of its completion and its abandonment
+     */
+    private final class ProvisioningJob implements Runnable
+    {
+        private final int _nIdResourceHistory;
+        private final Runnable _provisioning;
+        private final ITipiFormsProvisioningCallback _callback;
+        private volatile int _nDeferrals;
+
+        /**
+         * Constructor
+         * 
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @param provisioning
+         *            the provisioning to execute
+         * @param callback
+         *            the callback notified when the provisioning is completed
+         */
+        ProvisioningJob( int nIdResourceHistory, Runnable provisioning, ITipiFormsProvisioningCallback callback )
+        {
+            _nIdResourceHistory = nIdResourceHistory;
+            _provisioning = provisioning;
+            _callback = callback;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            try
+            {
+                _provisioning.run( );
+
+                if ( _setPendingJob.remove( this ) )
+                {
+                    _callback.onSuccess( _nIdResourceHistory );
+                }
+            }
+            catch( TipiFormsCircuitOpenException e )
+            {
+                if ( _nDeferrals < _nMaxDeferrals && e.getRetryDelayMillis( ) > 0 )
+                {
+                    _nDeferrals++;
+                    defer( this, e.getRetryDelayMillis( ) );
+                }
+                else
+                {
+                    AppLogService.error( "The TIPI provisioning of the resource history " + _nIdResourceHistory + " is abandoned : " + e.getMessage( ) );
+                    fail( e );
+                }
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Error while providing the TIPI data of the resource history " + _nIdResourceHistory, e );
+                fail( e );
+            }
+        }
+
+        /**
+         * Tests whether this job has been deferred
+         * 
+         * @return {@code true} if this job has been deferred, {@code false} otherwise
+         */
+        boolean isDeferred( )
+        {
+            return _nDeferrals > 0;
+        }
+
+        /**
+         * Abandons this job, unless it is already completed
+         * 
+         * @param strReason
+         *            the reason
+         */
+        void abandon( String strReason )
+        {
+            AppLogService.error( "The TIPI provisioning of the resource history " + _nIdResourceHistory + " is abandoned : " + strReason );
+            fail( new AppException( "The TIPI provisioning is abandoned : " + strReason ) );
+        }
+
+        /**
+         * Notifies the failure of this job, unless it is already completed
+         * 
+         * @param exception
+         *            the cause of the failure
+         */
+        private void fail( Exception exception )
+        {
+            if ( _setPendingJob.remove( this ) )
+            {
+                _callback.onFailure( _nIdResourceHistory, exception );
+            }
+        }
+    }
+
+    /**
+     * This class handles the provisionings rejected by the pool. While the executor runs, a new provisioning is executed in the calling thread and a
+     * deferred one is submitted again later, so that it does not block the scheduler. Once the executor is stopped, the provisioning is abandoned
+     */
+    private final class RejectedProvisioningPolicy implements RejectedExecutionHandler
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void rejectedExecution( Runnable runnable, ThreadPoolExecutor executor )
+        {
+            ProvisioningJob job = (ProvisioningJob) runnable;
+
+            if ( executor.isShutdown( ) )
+            {
+                job.abandon( REASON_STOPPED );
+
+                return;
+            }
+
+            if ( job.isDeferred( ) )
+            {
+                AppLogService.error( "The TIPI provisioning queue is full, the deferred provisioning is submitted again later" );
+                defer( job, RESUBMIT_DELAY_MILLIS );
+
+                return;
+            }
+
+            AppLogService.error( "The TIPI provisioning queue is full, the provisioning is executed in the calling thread" );
+            job.run( );
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill;
+
+/**
+ * 
+ * This class represents the progress of the backfill of a task at a given time
+ *
+ */
+public class TipiFormsBackfillProgress
+{
+    private final String _strStatus;
+    private final boolean _bRunning;
+    private final int _nLastIdFormResponse;
+    private final long _lProcessedCount;
+    private final long _lFailureCount;
+    private final double _dThroughput;
+
+    /**
+     * Constructor
+     * 
+     * @param strStatus
+     *            the status of the backfill
+     * @param bRunning
+     *            {@code true} if the backfill is running on this node, {@code false} otherwise
+     * @param nLastIdFormResponse
+     *            the id of the last processed form response
+     * @param lProcessedCount
+     *            the number of processed form responses
+     * @param lFailureCount
+     *            the number of failed form responses
+     * @param dThroughput
+     *            the number of form responses processed per second since the last start
+     */
+    TipiFormsBackfillProgress( String strStatus, boolean bRunning, int nLastIdFormResponse, long lProcessedCount, long lFailureCount, double dThroughput )
+    {
+        _strStatus = strStatus;
+        _bRunning = bRunning;
+        _nLastIdFormResponse = nLastIdFormResponse;
+        _lProcessedCount = lProcessedCount;
+        _lFailureCount = lFailureCount;
+        _dThroughput = dThroughput;
+    }
+
+    /**
+     * Gives the status of the backfill
+     * 
+     * @return the status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Tests whether the backfill is running on this node
+     * 
+     * @return {@code true} if the backfill is running, {@code false} otherwise
+     */
+    public boolean isRunning( )
+    {
+        return _bRunning;
+    }
+
+    /**
+     * Gives the id of the last processed form response
+     * 
+     * @return the id
+     */
+    public int getLastIdFormResponse( )
+    {
+        return _nLastIdFormResponse;
+    }
+
+    /**
+     * Gives the number of processed form responses
+     * 
+     * @return the number of form responses
+     */
+    public long getProcessedCount( )
+    {
+        return _lProcessedCount;
+    }
+
+    /**
+     * Gives the number of failed form responses
+     * 
+     * @return the number of form responses
+     */
+    public long getFailureCount( )
+    {
+        return _lFailureCount;
+    }
+
+    /**
+     * Gives the number of form responses processed per second since the last start
+     * 
+     * @return the throughput
+     */
+    public double getThroughput( )
+    {
+        return _dThroughput;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill.TipiFormsBackfill;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill.TipiFormsBackfillDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.ITipiFormsProvisioningCallback;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCallThrottle;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask;
+import fr.paris.lutece.plugins.workflowcore.business.action.Action;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.plugins.workflowcore.service.action.IActionService;
+import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceHistoryService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * 
+ * This class runs the backfill of a task. The form responses are selected by chunks, with a keyset pagination on their id. For each chunk, a resource
+ * history of the action of the task is created for each form response, then the chunk is processed in parallel by
+ * {@link TipiFormsProviderTask#processTasks(List, Locale, ForkJoinPool, TipiFormsCallThrottle, ITipiFormsProvisioningCallback)}. The progress is saved
+ * after each chunk, as long as the run owns the backfill: the run stops when its backfill has been stopped from another node or claimed by another run.
+ * The resource histories are marked as created by the backfill (see {@link TipiFormsBackfillService}). The resource history of a failed form response is
+ * removed, so that the history does not claim that the action has been performed
+ *
+ */
+final class TipiFormsBackfillRun implements Runnable, ITipiFormsProvisioningCallback
+{
+    // Beans
+    private static final String BEAN_ACTION_SERVICE = "workflow.actionService";
+    private static final String BEAN_RESOURCE_HISTORY_SERVICE = "workflow.resourceHistoryService";
+
+    // Other constants
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final TipiFormsProviderTask _task;
+    private final TipiFormsBackfill _backfill;
+    private final Locale _locale;
+    private final TipiFormsBackfillDAO _backfillDAO;
+    private final int _nChunkSize;
+    private final int _nParallelism;
+    private final TipiFormsCallThrottle _throttle;
+    private final AtomicLong _lProcessedCount = new AtomicLong( );
+    private final AtomicLong _lFailureCount = new AtomicLong( );
+    private final long _lStartNanos = System.nanoTime( );
+    private volatile int _nLastIdFormResponse;
+    private volatile String _strStatus = TipiFormsBackfill.STATUS_RUNNING;
+    private volatile boolean _bStopRequested;
+
+    /**
+     * Constructor
+     * 
+     * @param task
+     *            the task
+     * @param backfill
+     *            the backfill to continue
+     * @param locale
+     *            the locale
+     * @param backfillDAO
+     *            the backfill DAO
+     * @param nChunkSize
+     *            the number of form responses per chunk
+     * @param nParallelism
+     *            the number of form responses processed in parallel
+     * @param nCallsPerSecond
+     *            the maximum number of TIPI calls per second
+     */
+    TipiFormsBackfillRun( TipiFormsProviderTask task, TipiFormsBackfill backfill, Locale locale, TipiFormsBackfillDAO backfillDAO, int nChunkSize,
+            int nParallelism, int nCallsPerSecond )
+    {
+        _task = task;
+        _backfill = backfill;
+        _locale = locale;
+        _backfillDAO = backfillDAO;
+        _nChunkSize = nChunkSize;
+        _nParallelism = nParallelism;
+        _throttle = new TipiFormsCallThrottle( nCallsPerSecond );
+        _nLastIdFormResponse = backfill.getLastIdFormResponse( );
+    }
+
+    /**
+     * Requests the backfill to stop. The backfill stops once the current chunk is processed
+     */
+    void stop( )
+    {
+        _bStopRequested = true;
+    }
+
+    /**
+     * Gives the task id
+     * 
+     * @return the id
+     */
+    int getIdTask( )
+    {
+        return _backfill.getIdTask( );
+    }
+
+    /**
+     * Gives the current progress
+     * 
+     * @return the progress
+     */
+    TipiFormsBackfillProgress getProgress( )
+    {
+        long lProcessedCount = _lProcessedCount.get( );
+        double dElapsedSeconds = ( System.nanoTime( ) - _lStartNanos ) / NANOS_PER_SECOND;
+
+        return new TipiFormsBackfillProgress( _strStatus, true, _nLastIdFormResponse, _backfill.getProcessedCount( ) + lProcessedCount,
+                _backfill.getFailureCount( ) + _lFailureCount.get( ), ( dElapsedSeconds > 0 ) ? lProcessedCount / dElapsedSeconds : 0 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        ForkJoinPool pool = new ForkJoinPool( _nParallelism );
+        String strStatus = TipiFormsBackfill.STATUS_FAILED;
+
+        try
+        {
+            IActionService actionService = SpringContextService.getBean( BEAN_ACTION_SERVICE );
+            Action action = actionService.findByPrimaryKey( _task.getAction( ).getId( ) );
+            List<Integer> listIdFormResponse = nextChunk( action );
+
+            while ( !_bStopRequested && !listIdFormResponse.isEmpty( ) && isOwner( ) )
+            {
+                _task.processTasks( createResourceHistories( listIdFormResponse, action ), _locale, pool, _throttle, this );
+                _nLastIdFormResponse = listIdFormResponse.get( listIdFormResponse.size( ) - 1 );
+                saveProgress( TipiFormsBackfill.STATUS_RUNNING );
+                listIdFormResponse = nextChunk( action );
+            }
+
+            strStatus = ( _bStopRequested || !listIdFormResponse.isEmpty( ) ) ? TipiFormsBackfill.STATUS_STOPPED : TipiFormsBackfill.STATUS_COMPLETED;
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "TIPI forms backfill of the task " + getIdTask( ) + " interrupted after the form response " + _nLastIdFormResponse, e );
+        }
+        finally
+        {
+            pool.shutdown( );
+            _strStatus = strStatus;
+            saveProgress( strStatus );
+            TipiFormsBackfillService.getInstance( ).end( this );
+
+            TipiFormsBackfillProgress progress = getProgress( );
+            AppLogService.info( "TIPI forms backfill of the task " + getIdTask( ) + " " + strStatus + " : " + _lProcessedCount.get( )
+                    + " form responses processed, " + _lFailureCount.get( ) + " failed, " + String.format( "%.1f", progress.getThroughput( ) )
+                    + " form responses per second" );
+        }
+    }
+
+    /**
+     * Tests whether the run still owns its backfill, and whether the backfill has not been stopped from another node
+     * 
+     * @return {@code true} if the run can continue, {@code false} otherwise
+     */
+    private boolean isOwner( )
+    {
+        TipiFormsBackfill backfill = _backfillDAO.load( getIdTask( ) );
+
+        return backfill != null && _backfill.getRunId( ).equals( backfill.getRunId( ) ) && TipiFormsBackfill.STATUS_RUNNING.equals( backfill.getStatus( ) );
+    }
+
+    /**
+     * Selects the next chunk of form responses to process
+     * 
+     * @param action
+     *            the action of the task
+     * @return the form response ids
+     */
+    private List<Integer> nextChunk( Action action )
+    {
+        return _backfillDAO.selectFormResponsesToProvide( _backfill.getIdForm( ), FormResponse.RESOURCE_TYPE, action.getId( ), _nLastIdFormResponse,
+                _nChunkSize );
+    }
+
+    /**
+     * Creates a resource history of the specified action for each specified form response
+     * 
+     * @param listIdFormResponse
+     *            the form response ids
+     * @param action
+     *            the action of the task
+     * @return the resource histories
+     */
+    private List<ResourceHistory> createResourceHistories( List<Integer> listIdFormResponse, Action action )
+    {
+        IResourceHistoryService resourceHistoryService = SpringContextService.getBean( BEAN_RESOURCE_HISTORY_SERVICE );
+        List<ResourceHistory> listResourceHistory = new ArrayList<ResourceHistory>( listIdFormResponse.size( ) );
+        Timestamp now = new Timestamp( System.currentTimeMillis( ) );
+
+        for ( Integer nIdFormResponse : listIdFormResponse )
+        {
+            ResourceHistory resourceHistory = new ResourceHistory( );
+            resourceHistory.setIdResource( nIdFormResponse );
+            resourceHistory.setResourceType( FormResponse.RESOURCE_TYPE );
+            resourceHistory.setAction( action );
+            resourceHistory.setWorkFlow( action.getWorkflow( ) );
+            resourceHistory.setCreationDate( now );
+            resourceHistory.setUserAccessCode( TipiFormsBackfillService.USER_ACCESS_CODE );
+
+            resourceHistoryService.create( resourceHistory );
+            listResourceHistory.add( resourceHistory );
+        }
+
+        return listResourceHistory;
+    }
+
+    /**
+     * Saves the progress of the backfill. The progress is ignored if the run no longer owns the backfill
+     * 
+     * @param strStatus
+     *            the status of the backfill
+     */
+    private void saveProgress( String strStatus )
+    {
+        TipiFormsBackfill backfill = new TipiFormsBackfill( );
+        backfill.setIdTask( _backfill.getIdTask( ) );
+        backfill.setIdForm( _backfill.getIdForm( ) );
+        backfill.setStatus( strStatus );
+        backfill.setLastIdFormResponse( _nLastIdFormResponse );
+        backfill.setProcessedCount( (int) ( _backfill.getProcessedCount( ) + _lProcessedCount.get( ) ) );
+        backfill.setFailureCount( (int) ( _backfill.getFailureCount( ) + _lFailureCount.get( ) ) );
+        backfill.setDateStart( _backfill.getDateStart( ) );
+        backfill.setDateUpdate( new Timestamp( System.currentTimeMillis( ) ) );
+        backfill.setRunId( _backfill.getRunId( ) );
+
+        _backfillDAO.store( backfill );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSuccess( int nIdResourceHistory )
+    {
+        _lProcessedCount.incrementAndGet( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onFailure( int nIdResourceHistory, Exception exception )
+    {
+        _lProcessedCount.incrementAndGet( );
+        _lFailureCount.incrementAndGet( );
+        removeResourceHistory( nIdResourceHistory );
+    }
+
+    /**
+     * Removes the specified resource history created by the backfill, with the information of the task. The form response is then selected again by the
+     * next backfill, since the action has not been performed on it
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     */
+    private void removeResourceHistory( int nIdResourceHistory )
+    {
+        try
+        {
+            _task.doRemoveTaskInformation( nIdResourceHistory );
+
+            IResourceHistoryService resourceHistoryService = SpringContextService.getBean( BEAN_RESOURCE_HISTORY_SERVICE );
+            resourceHistoryService.remove( nIdResourceHistory );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Unable to remove the resource history " + nIdResourceHistory + " of a failed TIPI forms backfill provisioning", e );
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill;
+
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill.TipiFormsBackfill;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.backfill.TipiFormsBackfillDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class manages the backfills of the TIPI forms provider tasks: a backfill provides the TIPI data of the past form responses of the form of a task, on
+ * which the action of the task has never been performed. A backfill runs in a background thread of the node on which it has been started. When it is
+ * started again after a stop or an interruption, it resumes after the last processed form response. The row of the backfill in the database is the lock
+ * of the backfill: it is claimed by a run, which saves its progress only while it owns it, so that a backfill runs on a single node. The backfill of a node
+ * which no longer saves its progress can be claimed by another node once the duration defined by the property {@value #PROPERTY_BACKFILL_LEASE} has
+ * elapsed
+ * <p>
+ * The TIPI module stores the RefDet data by resource history, so the backfill creates a resource history for each form response it provisions. These
+ * resource histories are marked by the user access code {@value #USER_ACCESS_CODE}, and their provisionings are recorded as backfill provisionings by the
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup.TipiFormsProvisioningDedupService TipiFormsProvisioningDedupService}: a later
+ * execution of the task on the same form response reuses the RefDet data of the backfill instead of calling the TIPI service again
+ * </p>
+ *
+ */
+public final class TipiFormsBackfillService
+{
+    // Properties
+    private static final String PROPERTY_BACKFILL_CHUNK_SIZE = "workflow-tipiforms.backfill.chunkSize";
+    private static final String PROPERTY_BACKFILL_PARALLELISM = "workflow-tipiforms.backfill.parallelism";
+    private static final String PROPERTY_BACKFILL_CALLS_PER_SECOND = "workflow-tipiforms.backfill.tipiCallsPerSecond";
+    private static final String PROPERTY_BACKFILL_LEASE = "workflow-tipiforms.backfill.lease";
+
+    // Beans
+    private static final String BEAN_BACKFILL_DAO = "workflow-tipiforms.tipiFormsBackfillDAO";
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+
+    // Other constants
+    private static final int DEFAULT_CHUNK_SIZE = 200;
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_CALLS_PER_SECOND = 10;
+    private static final int DEFAULT_LEASE = 600;
+    private static final String THREAD_NAME_PREFIX = "workflow-tipiforms-backfill-";
+
+    /**
+     * User access code of the resource histories created by the backfills
+     */
+    static final String USER_ACCESS_CODE = "workflow-tipiforms-backfill";
+
+    private static final TipiFormsBackfillService _singleton = new TipiFormsBackfillService( );
+
+    private final Map<Integer, TipiFormsBackfillRun> _mapRun = new ConcurrentHashMap<Integer, TipiFormsBackfillRun>( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsBackfillService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static TipiFormsBackfillService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Starts the backfill of the specified task, or resumes it after the last processed form response. The backfill starts from the beginning if the form
+     * of the task has changed since the last run, or if the last run has completed: the form responses which have failed are then processed again
+     * 
+     * @param task
+     *            the task
+     * @param locale
+     *            the locale
+     * @return {@code true} if the backfill has been started, {@code false} if it is already running, on this node or on another one, or if the task is not
+     *         configured
+     */
+    public synchronized boolean start( TipiFormsProviderTask task, Locale locale )
+    {
+        TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+        TaskTipiFormsProviderConfig config = configDAO.load( task.getId( ) );
+
+        if ( _mapRun.containsKey( task.getId( ) ) || config == null )
+        {
+            return false;
+        }
+
+        TipiFormsBackfillDAO backfillDAO = getBackfillDAO( );
+        TipiFormsBackfill backfill = claim( backfillDAO, task.getId( ), config.getIdForm( ) );
+
+        if ( backfill == null )
+        {
+            return false;
+        }
+
+        TipiFormsBackfillRun run = new TipiFormsBackfillRun( task, backfill, locale, backfillDAO, Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_BACKFILL_CHUNK_SIZE, DEFAULT_CHUNK_SIZE ) ), Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_BACKFILL_PARALLELISM, DEFAULT_PARALLELISM ) ), AppPropertiesService.getPropertyInt(
+                PROPERTY_BACKFILL_CALLS_PER_SECOND, DEFAULT_CALLS_PER_SECOND ) );
+        _mapRun.put( task.getId( ), run );
+
+        Thread thread = new Thread( run, THREAD_NAME_PREFIX + task.getId( ) );
+        thread.setDaemon( true );
+        thread.start( );
+
+        return true;
+    }
+
+    /**
+     * Claims the backfill of the specified task for a new run
+     * 
+     * @param backfillDAO
+     *            the backfill DAO
+     * @param nIdTask
+     *            the task id
+     * @param nIdForm
+     *            the form of the task
+     * @return the claimed backfill, or {@code null} if it is running on another node
+     */
+    private static TipiFormsBackfill claim( TipiFormsBackfillDAO backfillDAO, int nIdTask, int nIdForm )
+    {
+        String strRunId = UUID.randomUUID( ).toString( );
+        Timestamp now = new Timestamp( System.currentTimeMillis( ) );
+
+        if ( backfillDAO.load( nIdTask ) == null )
+        {
+            TipiFormsBackfill backfill = createBackfill( nIdTask, nIdForm, strRunId, now );
+
+            try
+            {
+                backfillDAO.insert( backfill );
+            }
+            catch( AppException e )
+            {
+                // the backfill has been started at the same time on another node
+                return null;
+            }
+
+            return backfill;
+        }
+
+        backfillDAO.claim( nIdTask, strRunId, now, new Timestamp( now.getTime( ) - getLeaseMillis( ) ) );
+
+        TipiFormsBackfill backfill = backfillDAO.load( nIdTask );
+
+        if ( backfill == null || !strRunId.equals( backfill.getRunId( ) ) )
+        {
+            return null;
+        }
+
+        if ( backfill.getIdForm( ) != nIdForm || TipiFormsBackfill.STATUS_COMPLETED.equals( backfill.getStatus( ) ) )
+        {
+            backfill = createBackfill( nIdTask, nIdForm, strRunId, now );
+        }
+
+        backfill.setStatus( TipiFormsBackfill.STATUS_RUNNING );
+        backfill.setDateUpdate( now );
+        backfillDAO.store( backfill );
+
+        return backfill;
+    }
+
+    /**
+     * Requests the backfill of the specified task to stop. The backfill stops once its current chunk is processed. When it runs on another node, the stop
+     * is requested through its status
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void stop( int nIdTask )
+    {
+        TipiFormsBackfillRun run = _mapRun.get( nIdTask );
+
+        if ( run != null )
+        {
+            run.stop( );
+        }
+        else
+        {
+            getBackfillDAO( ).updateStatus( nIdTask, TipiFormsBackfill.STATUS_STOPPED, TipiFormsBackfill.STATUS_RUNNING );
+        }
+    }
+
+    /**
+     * Tests whether the specified resource history has been created by a backfill
+     * 
+     * @param resourceHistory
+     *            the resource history
+     * @return {@code true} if the resource history has been created by a backfill, {@code false} otherwise
+     */
+    public static boolean isBackfillHistory( ResourceHistory resourceHistory )
+    {
+        return USER_ACCESS_CODE.equals( resourceHistory.getUserAccessCode( ) );
+    }
+
+    /**
+     * Gives the progress of the backfill of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the progress, or {@code null} if the task has never been backfilled
+     */
+    public TipiFormsBackfillProgress getProgress( int nIdTask )
+    {
+        TipiFormsBackfillRun run = _mapRun.get( nIdTask );
+
+        if ( run != null )
+        {
+            return run.getProgress( );
+        }
+
+        TipiFormsBackfill backfill = getBackfillDAO( ).load( nIdTask );
+
+        if ( backfill == null )
+        {
+            return null;
+        }
+
+        return new TipiFormsBackfillProgress( backfill.getStatus( ), false, backfill.getLastIdFormResponse( ), backfill.getProcessedCount( ),
+                backfill.getFailureCount( ), 0 );
+    }
+
+    /**
+     * Stops the backfill of the specified task and removes its progress
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void removeTask( int nIdTask )
+    {
+        stop( nIdTask );
+        getBackfillDAO( ).delete( nIdTask );
+    }
+
+    /**
+     * Records the end of the specified run
+     * 
+     * @param run
+     *            the run
+     */
+    void end( TipiFormsBackfillRun run )
+    {
+        _mapRun.remove( run.getIdTask( ) );
+    }
+
+    /**
+     * Creates a backfill starting from the first form response
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdForm
+     *            the form id
+     * @param strRunId
+     *            the id of the run owning the backfill
+     * @param dateStart
+     *            the start date
+     * @return the backfill
+     */
+    private static TipiFormsBackfill createBackfill( int nIdTask, int nIdForm, String strRunId, Timestamp dateStart )
+    {
+        TipiFormsBackfill backfill = new TipiFormsBackfill( );
+        backfill.setIdTask( nIdTask );
+        backfill.setIdForm( nIdForm );
+        backfill.setStatus( TipiFormsBackfill.STATUS_RUNNING );
+        backfill.setDateStart( dateStart );
+        backfill.setDateUpdate( dateStart );
+        backfill.setRunId( strRunId );
+
+        return backfill;
+    }
+
+    /**
+     * Gives the duration after which the backfill of a run which no longer saves its progress can be claimed by another run
+     * 
+     * @return the duration in milliseconds
+     */
+    private static long getLeaseMillis( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_BACKFILL_LEASE, DEFAULT_LEASE ) * 1000L;
+    }
+
+    /**
+     * Gives the backfill DAO
+     * 
+     * @return the DAO
+     */
+    private static TipiFormsBackfillDAO getBackfillDAO( )
+    {
+        return SpringContextService.getBean( BEAN_BACKFILL_DAO );
+    }
+}
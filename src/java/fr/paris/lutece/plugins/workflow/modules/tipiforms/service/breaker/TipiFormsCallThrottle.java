@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * This class limits the rate of the TIPI calls performed by bulk processings, so that they do not overload the TIPI service. The calls are spread evenly:
+ * each caller waits for the next free slot
+ *
+ */
+public class TipiFormsCallThrottle
+{
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final long _lIntervalNanos;
+    private long _lNextSlotNanos = System.nanoTime( );
+
+    /**
+     * Constructor
+     * 
+     * @param nCallsPerSecond
+     *            the maximum number of calls per second
+     */
+    public TipiFormsCallThrottle( int nCallsPerSecond )
+    {
+        _lIntervalNanos = NANOS_PER_SECOND / Math.max( 1, nCallsPerSecond );
+    }
+
+    /**
+     * Waits until a call is allowed
+     */
+    public void acquire( )
+    {
+        long lWaitNanos;
+
+        synchronized( this )
+        {
+            long lNow = System.nanoTime( );
+            long lSlot = Math.max( lNow, _lNextSlotNanos );
+            _lNextSlotNanos = lSlot + _lIntervalNanos;
+            lWaitNanos = lSlot - lNow;
+        }
+
+        if ( lWaitNanos > 0 )
+        {
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep( lWaitNanos );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+}
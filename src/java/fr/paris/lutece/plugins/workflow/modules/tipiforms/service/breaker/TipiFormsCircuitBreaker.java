@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker;
+
+import java.io.IOException;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics.TipiFormsProviderMetrics;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class protects the workflow from a degraded TIPI service. A TIPI call which fails on a transport error or which exceeds the deadline of its
+ * execution is a failure. The other errors, such as a missing question or an invalid amount, are local to the workflow and do not reflect the health of the
+ * TIPI service: they are not counted. After a number of consecutive failures, the circuit opens and the calls fail fast during a given duration. Then one
+ * call is allowed: the circuit closes if it succeeds and opens again otherwise.
+ * <p>
+ * The deadline cannot interrupt a TIPI call already started, because the socket is managed by the TIPI module. It prevents a call from being started once
+ * the budget of the execution is exhausted, and a call exceeding it makes the circuit open sooner
+ * </p>
+ *
+ */
+public final class TipiFormsCircuitBreaker
+{
+    /**
+     * The states of the circuit
+     */
+    public enum State
+    {
+        /**
+         * The calls are performed
+         */
+        CLOSED,
+
+        /**
+         * The calls fail fast
+         */
+        OPEN,
+
+        /**
+         * One call is performed to test the TIPI service
+         */
+        HALF_OPEN
+    }
+
+    // Properties
+    private static final String PROPERTY_BREAKER_ENABLED = "workflow-tipiforms.breaker.enabled";
+    private static final String PROPERTY_BREAKER_FAILURE_THRESHOLD = "workflow-tipiforms.breaker.failureThreshold";
+    private static final String PROPERTY_BREAKER_OPEN_DURATION = "workflow-tipiforms.breaker.openDuration";
+    private static final String PROPERTY_BREAKER_DEADLINE = "workflow-tipiforms.breaker.deadline";
+
+    // Other constants
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int DEFAULT_OPEN_DURATION = 30000;
+    private static final int DEFAULT_DEADLINE = 10000;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static TipiFormsCircuitBreaker _singleton;
+
+    private final boolean _bEnabled;
+    private final int _nFailureThreshold;
+    private final long _lOpenDurationMillis;
+    private final long _lDeadlineMillis;
+    private State _state = State.CLOSED;
+    private int _nConsecutiveFailures;
+    private long _lOpenedAtMillis;
+
+    /**
+     * Constructor
+     * 
+     * @param bEnabled
+     *            {@code true} if the circuit breaker is enabled, {@code false} if all the calls must be performed
+     * @param nFailureThreshold
+     *            the number of consecutive failures which opens the circuit
+     * @param lOpenDurationMillis
+     *            the duration during which the circuit stays open, in milliseconds
+     * @param lDeadlineMillis
+     *            the budget of an execution, in milliseconds
+     */
+    public TipiFormsCircuitBreaker( boolean bEnabled, int nFailureThreshold, long lOpenDurationMillis, long lDeadlineMillis )
+    {
+        _bEnabled = bEnabled;
+        _nFailureThreshold = Math.max( 1, nFailureThreshold );
+        _lOpenDurationMillis = lOpenDurationMillis;
+        _lDeadlineMillis = lDeadlineMillis;
+    }
+
+    /**
+     * Gives the unique instance of the circuit breaker
+     * 
+     * @return the instance
+     */
+    public static synchronized TipiFormsCircuitBreaker getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new TipiFormsCircuitBreaker( AppPropertiesService.getPropertyBoolean( PROPERTY_BREAKER_ENABLED, true ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_BREAKER_FAILURE_THRESHOLD, DEFAULT_FAILURE_THRESHOLD ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_BREAKER_OPEN_DURATION, DEFAULT_OPEN_DURATION ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_BREAKER_DEADLINE, DEFAULT_DEADLINE ) );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Computes the deadline of an execution starting now
+     * 
+     * @return the deadline, as a {@link System#nanoTime()} value
+     */
+    public long startDeadline( )
+    {
+        return System.nanoTime( ) + _lDeadlineMillis * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Performs the specified TIPI call through the circuit breaker
+     * 
+     * @param call
+     *            the call
+     * @param lDeadlineNanos
+     *            the deadline of the execution, as returned by {@link #startDeadline()}
+     * @throws TipiFormsCircuitOpenException
+     *             if the call is not performed
+     */
+    public void execute( Runnable call, long lDeadlineNanos )
+    {
+        if ( !_bEnabled )
+        {
+            call.run( );
+
+            return;
+        }
+
+        if ( System.nanoTime( ) >= lDeadlineNanos )
+        {
+            throw new TipiFormsCircuitOpenException( "The deadline of the execution is exceeded before the TIPI call", 0L );
+        }
+
+        acquirePermission( );
+
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            call.run( );
+        }
+        catch( RuntimeException e )
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordTipiCall( System.nanoTime( ) - lStart );
+
+            if ( isTipiFailure( e ) )
+            {
+                onFailure( false );
+            }
+            else
+            {
+                onLocalError( );
+            }
+
+            throw e;
+        }
+
+        long lEnd = System.nanoTime( );
+        TipiFormsProviderMetrics.getInstance( ).recordTipiCall( lEnd - lStart );
+
+        if ( lEnd <= lDeadlineNanos )
+        {
+            onSuccess( );
+        }
+        else
+        {
+            onFailure( true );
+        }
+    }
+
+    /**
+     * Tests whether the specified exception is a failure of the TIPI service. The TIPI module wraps the transport errors of the web service, which are
+     * {@link IOException}s (remote exceptions, timeouts, refused connections), in its own exceptions: the causes are inspected to find them
+     * 
+     * @param exception
+     *            the exception thrown by the call
+     * @return {@code true} if the exception is caused by a transport error, {@code false} if it is local to the workflow
+     */
+    static boolean isTipiFailure( Throwable exception )
+    {
+        for ( Throwable cause = exception; cause != null; cause = cause.getCause( ) )
+        {
+            if ( cause instanceof IOException )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gives the state of the circuit
+     * 
+     * @return the state
+     */
+    public synchronized State getState( )
+    {
+        if ( _state == State.OPEN && getRemainingOpenMillis( ) <= 0 )
+        {
+            return State.HALF_OPEN;
+        }
+
+        return _state;
+    }
+
+    /**
+     * Checks that a call can be performed
+     * 
+     * @throws TipiFormsCircuitOpenException
+     *             if the call cannot be performed
+     */
+    private synchronized void acquirePermission( )
+    {
+        if ( _state == State.CLOSED )
+        {
+            return;
+        }
+
+        long lRemainingOpenMillis = getRemainingOpenMillis( );
+
+        if ( _state == State.OPEN && lRemainingOpenMillis <= 0 )
+        {
+            // this call tests the TIPI service, the other ones fail fast until it is over
+            _state = State.HALF_OPEN;
+
+            return;
+        }
+
+        TipiFormsProviderMetrics.getInstance( ).incrementCircuitRejected( );
+
+        throw new TipiFormsCircuitOpenException( "The TIPI service is unavailable", Math.max( lRemainingOpenMillis, _lOpenDurationMillis / 2 ) );
+    }
+
+    /**
+     * Records a successful call
+     */
+    private synchronized void onSuccess( )
+    {
+        if ( _state != State.CLOSED )
+        {
+            AppLogService.info( "The TIPI service is available again, the circuit is closed" );
+        }
+
+        _state = State.CLOSED;
+        _nConsecutiveFailures = 0;
+    }
+
+    /**
+     * Records a call which has failed on a local error. The call says nothing about the TIPI service: when it was testing the TIPI service, the next call
+     * tests it again
+     */
+    private synchronized void onLocalError( )
+    {
+        if ( _state == State.HALF_OPEN )
+        {
+            _state = State.OPEN;
+        }
+    }
+
+    /**
+     * Records a failed call
+     * 
+     * @param bSlow
+     *            {@code true} if the call has succeeded but exceeded the deadline, {@code false} if it has failed
+     */
+    private synchronized void onFailure( boolean bSlow )
+    {
+        _nConsecutiveFailures++;
+
+        if ( _state == State.HALF_OPEN || _nConsecutiveFailures >= _nFailureThreshold )
+        {
+            if ( _state != State.OPEN )
+            {
+                AppLogService.error( "The TIPI service is unhealthy after " + _nConsecutiveFailures + " consecutive " + ( bSlow ? "slow" : "failed" )
+                        + " calls, the circuit is open for " + _lOpenDurationMillis + " ms" );
+            }
+
+            _state = State.OPEN;
+            _lOpenedAtMillis = System.currentTimeMillis( );
+        }
+    }
+
+    /**
+     * Gives the remaining duration during which the circuit stays open
+     * 
+     * @return the duration in milliseconds
+     */
+    private long getRemainingOpenMillis( )
+    {
+        return _lOpenedAtMillis + _lOpenDurationMillis - System.currentTimeMillis( );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * 
+ * This exception is thrown when a TIPI call is not performed because the TIPI service is considered as unhealthy by the {@link TipiFormsCircuitBreaker}
+ *
+ */
+public class TipiFormsCircuitOpenException extends AppException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long _lRetryDelayMillis;
+
+    /**
+     * Constructor
+     * 
+     * @param strMessage
+     *            the message
+     * @param lRetryDelayMillis
+     *            the delay after which the call may be retried, in milliseconds
+     */
+    public TipiFormsCircuitOpenException( String strMessage, long lRetryDelayMillis )
+    {
+        super( strMessage );
+
+        _lRetryDelayMillis = lRetryDelayMillis;
+    }
+
+    /**
+     * Gives the delay after which the call may be retried
+     * 
+     * @return the delay in milliseconds
+     */
+    public long getRetryDelayMillis( )
+    {
+        return _lRetryDelayMillis;
+    }
+}
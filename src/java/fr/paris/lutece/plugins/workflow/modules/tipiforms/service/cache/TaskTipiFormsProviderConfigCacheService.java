@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction.TipiFormsExtractionPlanService;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * 
+ * This class is a cache for the {@link TaskTipiFormsProviderConfig} objects, keyed by task id. The cache stores copies of the configurations so that the
+ * cached objects cannot be modified by the callers. It also stores the ids of the tasks configured for each form. The configurations modified on another
+ * node are evicted by {@link TipiFormsConfigChangeDaemon}
+ *
+ */
+public final class TaskTipiFormsProviderConfigCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-tipiforms.taskTipiFormsProviderConfigCacheService";
+    private static final String KEY_PREFIX_FORM = "form:";
+    private static TaskTipiFormsProviderConfigCacheService _singleton;
+
+    private final AtomicLong _lHitCount = new AtomicLong( );
+    private final AtomicLong _lMissCount = new AtomicLong( );
+
+    /**
+     * Constructor
+     */
+    private TaskTipiFormsProviderConfigCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Gives the unique instance of the cache
+     * 
+     * @return the instance
+     */
+    public static synchronized TaskTipiFormsProviderConfigCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new TaskTipiFormsProviderConfigCacheService( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the configuration of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return a copy of the cached configuration, or {@code null} if the configuration is not in the cache
+     */
+    public TaskTipiFormsProviderConfig get( int nIdTask )
+    {
+        TaskTipiFormsProviderConfig config = (TaskTipiFormsProviderConfig) getFromCache( buildKey( nIdTask ) );
+
+        if ( config == null )
+        {
+            _lMissCount.incrementAndGet( );
+
+            return null;
+        }
+
+        _lHitCount.incrementAndGet( );
+
+        return copy( config );
+    }
+
+    /**
+     * Puts the specified configuration in the cache
+     * 
+     * @param config
+     *            the configuration
+     */
+    public void put( TaskTipiFormsProviderConfig config )
+    {
+        putInCache( buildKey( config.getIdTask( ) ), copy( config ) );
+    }
+
+    /**
+     * Removes the configuration of the specified task from the cache
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void remove( int nIdTask )
+    {
+        removeKey( buildKey( nIdTask ) );
+    }
+
+    /**
+     * Gives the ids of the tasks configured for the specified form
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the task ids, or {@code null} if they are not in the cache
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<Integer> getTaskIdsByForm( int nIdForm )
+    {
+        List<Integer> listIdTask = (List<Integer>) getFromCache( buildFormKey( nIdForm ) );
+
+        if ( listIdTask == null )
+        {
+            _lMissCount.incrementAndGet( );
+
+            return null;
+        }
+
+        _lHitCount.incrementAndGet( );
+
+        return listIdTask;
+    }
+
+    /**
+     * Puts the ids of the tasks configured for the specified form in the cache
+     * 
+     * @param nIdForm
+     *            the form id
+     * @param listIdTask
+     *            the task ids
+     */
+    public void putTaskIdsByForm( int nIdForm, List<Integer> listIdTask )
+    {
+        putInCache( buildFormKey( nIdForm ), Collections.unmodifiableList( new ArrayList<Integer>( listIdTask ) ) );
+    }
+
+    /**
+     * Removes the task ids of all the forms from the cache. A write can add a task to a form or move it to another form, so all the forms are concerned
+     */
+    public void removeForms( )
+    {
+        for ( String strKey : getKeys( ) )
+        {
+            if ( strKey.startsWith( KEY_PREFIX_FORM ) )
+            {
+                removeKey( strKey );
+            }
+        }
+    }
+
+    /**
+     * Evicts the configurations whose version differs from the specified versions, or which are not part of them anymore. The extraction plans of the
+     * evicted configurations are evicted as well. The task ids of the forms are evicted too, since a configuration may have been created on another node
+     * 
+     * @param mapVersion
+     *            the current versions of the configurations, mapped by task id
+     * @return the number of evicted configurations
+     */
+    public int evictStale( Map<Integer, Integer> mapVersion )
+    {
+        int nEvicted = 0;
+
+        removeForms( );
+
+        for ( String strKey : getKeys( ) )
+        {
+            if ( strKey.startsWith( KEY_PREFIX_FORM ) )
+            {
+                continue;
+            }
+
+            TaskTipiFormsProviderConfig config = (TaskTipiFormsProviderConfig) getFromCache( strKey );
+
+            if ( config == null )
+            {
+                continue;
+            }
+
+            Integer nVersion = mapVersion.get( config.getIdTask( ) );
+
+            if ( nVersion == null || nVersion != config.getVersion( ) )
+            {
+                removeKey( strKey );
+                TipiFormsExtractionPlanService.getInstance( ).remove( config.getIdTask( ) );
+                nEvicted++;
+            }
+        }
+
+        return nEvicted;
+    }
+
+    /**
+     * Gives the number of reads served by the cache
+     * 
+     * @return the number of hits
+     */
+    public long getHitCount( )
+    {
+        return _lHitCount.get( );
+    }
+
+    /**
+     * Gives the number of reads not served by the cache
+     * 
+     * @return the number of misses
+     */
+    public long getMissCount( )
+    {
+        return _lMissCount.get( );
+    }
+
+    /**
+     * Builds the cache key for the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the key
+     */
+    private static String buildKey( int nIdTask )
+    {
+        return Integer.toString( nIdTask );
+    }
+
+    /**
+     * Builds the cache key for the task ids of the specified form
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the key
+     */
+    private static String buildFormKey( int nIdForm )
+    {
+        return KEY_PREFIX_FORM + nIdForm;
+    }
+
+    /**
+     * Copies the specified configuration
+     * 
+     * @param config
+     *            the configuration to copy
+     * @return the copy
+     */
+    private static TaskTipiFormsProviderConfig copy( TaskTipiFormsProviderConfig config )
+    {
+        TaskTipiFormsProviderConfig configCopy = new TaskTipiFormsProviderConfig( );
+
+        configCopy.setIdTask( config.getIdTask( ) );
+        configCopy.setIdForm( config.getIdForm( ) );
+        configCopy.setIdRefDetQuestion( config.getIdRefDetQuestion( ) );
+        configCopy.setIdAmountQuestion( config.getIdAmountQuestion( ) );
+        configCopy.setIdEmailQuestion( config.getIdEmailQuestion( ) );
+        configCopy.setVersion( config.getVersion( ) );
+
+        return configCopy;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * 
+ * This daemon keeps the cache of the configurations coherent with the other nodes. Each run reads the change stamp of the configurations, and only when it
+ * has changed since the previous run, reads the versions of the configurations to evict the stale ones from {@link TaskTipiFormsProviderConfigCacheService}.
+ * A configuration saved on another node is therefore seen by this node within the interval of the daemon
+ *
+ */
+public class TipiFormsConfigChangeDaemon extends Daemon
+{
+    // Beans
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+
+    // Other constants
+    private static final long STAMP_UNKNOWN = -1L;
+
+    private long _lLastChangeStamp = STAMP_UNKNOWN;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+        long lChangeStamp = configDAO.loadChangeStamp( );
+
+        if ( lChangeStamp == _lLastChangeStamp )
+        {
+            setLastRunLogs( "Change stamp " + lChangeStamp + " unchanged" );
+
+            return;
+        }
+
+        // the versions are read after the stamp: a write in between is seen now or at the next run
+        int nEvicted = TaskTipiFormsProviderConfigCacheService.getInstance( ).evictStale( configDAO.loadVersions( ) );
+        _lLastChangeStamp = lChangeStamp;
+
+        setLastRunLogs( "Change stamp " + lChangeStamp + " : " + nEvicted + " stale configurations evicted" );
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.forms.business.FormHome;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestionDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionIndex;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.util.ReferenceList;
+
+/**
+ * 
+ * This class is a cache for the data displayed in the task configuration: the list of the forms, and the questions and the question index of each form
+ *
+ */
+public final class TipiFormsQuestionCatalogCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-tipiforms.tipiFormsQuestionCatalogCacheService";
+    private static final String KEY_FORMS = "forms";
+    private static final String KEY_PREFIX_QUESTIONS = "questions:";
+    private static final String KEY_PREFIX_INDEX = "index:";
+    private static final String BEAN_QUESTION_DAO = "workflow-tipiforms.tipiFormsQuestionDAO";
+
+    private static TipiFormsQuestionCatalogCacheService _singleton;
+
+    /**
+     * Constructor
+     */
+    private TipiFormsQuestionCatalogCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Gives the unique instance of the cache
+     * 
+     * @return the instance
+     */
+    public static synchronized TipiFormsQuestionCatalogCacheService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new TipiFormsQuestionCatalogCacheService( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Gives the list of the forms
+     * 
+     * @return the forms as a {@code ReferenceList}. Must not be modified
+     */
+    public ReferenceList getForms( )
+    {
+        ReferenceList listForms = (ReferenceList) getFromCache( KEY_FORMS );
+
+        if ( listForms == null )
+        {
+            listForms = FormHome.getFormsReferenceList( );
+            putInCache( KEY_FORMS, listForms );
+        }
+
+        return listForms;
+    }
+
+    /**
+     * Gives the questions of the specified form
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the questions, ordered by step. Must not be modified
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<TipiFormsQuestion> getQuestions( int nIdForm )
+    {
+        String strKey = KEY_PREFIX_QUESTIONS + nIdForm;
+        List<TipiFormsQuestion> listQuestion = (List<TipiFormsQuestion>) getFromCache( strKey );
+
+        if ( listQuestion == null )
+        {
+            TipiFormsQuestionDAO questionDAO = SpringContextService.getBean( BEAN_QUESTION_DAO );
+            listQuestion = questionDAO.selectByForm( nIdForm );
+            putInCache( strKey, listQuestion );
+        }
+
+        return listQuestion;
+    }
+
+    /**
+     * Gives the question index of the specified form
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the question index
+     */
+    public TipiFormsQuestionIndex getQuestionIndex( int nIdForm )
+    {
+        String strKey = KEY_PREFIX_INDEX + nIdForm;
+        TipiFormsQuestionIndex index = (TipiFormsQuestionIndex) getFromCache( strKey );
+
+        if ( index == null )
+        {
+            index = new TipiFormsQuestionIndex( getQuestions( nIdForm ) );
+            putInCache( strKey, index );
+        }
+
+        return index;
+    }
+
+    /**
+     * Removes the data of the specified form from the cache
+     * 
+     * @param nIdForm
+     *            the form id
+     */
+    public void removeForm( int nIdForm )
+    {
+        removeKey( KEY_FORMS );
+        removeKey( KEY_PREFIX_QUESTIONS + nIdForm );
+        removeKey( KEY_PREFIX_INDEX + nIdForm );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.forms.business.Form;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction.TipiFormsExtractionPlanService;
+import fr.paris.lutece.portal.business.event.ResourceEvent;
+import fr.paris.lutece.portal.service.event.EventRessourceListener;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * 
+ * This class invalidates the {@link TipiFormsQuestionCatalogCacheService} and the extraction plans of the tasks using a form when this form is created,
+ * modified or deleted
+ *
+ */
+public class TipiFormsQuestionCatalogEventListener implements EventRessourceListener
+{
+    private static final String LISTENER_NAME = "workflow-tipiforms.tipiFormsQuestionCatalogEventListener";
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return LISTENER_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addedResource( ResourceEvent event )
+    {
+        invalidate( event );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deletedResource( ResourceEvent event )
+    {
+        invalidate( event );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updatedResource( ResourceEvent event )
+    {
+        invalidate( event );
+    }
+
+    /**
+     * Invalidates the cache if the specified event concerns a form
+     * 
+     * @param event
+     *            the event
+     */
+    private void invalidate( ResourceEvent event )
+    {
+        if ( Form.RESOURCE_TYPE.equals( event.getTypeResource( ) ) )
+        {
+            int nIdForm = NumberUtils.toInt( event.getIdResource( ) );
+            TipiFormsQuestionCatalogCacheService.getInstance( ).removeForm( nIdForm );
+
+            TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+
+            for ( TaskTipiFormsProviderConfig config : configDAO.loadByForm( nIdForm ) )
+            {
+                TipiFormsExtractionPlanService.getInstance( ).remove( config.getIdTask( ) );
+            }
+        }
+    }
+}
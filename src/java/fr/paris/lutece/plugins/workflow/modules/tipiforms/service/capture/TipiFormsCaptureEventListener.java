@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.portal.business.event.ResourceEvent;
+import fr.paris.lutece.portal.service.event.EventRessourceListener;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * 
+ * This class captures the TIPI values of a form response when it is submitted or modified (see {@link TipiFormsCaptureService}). A failure never prevents
+ * the submission
+ *
+ */
+public class TipiFormsCaptureEventListener implements EventRessourceListener
+{
+    private static final String LISTENER_NAME = "workflow-tipiforms.tipiFormsCaptureEventListener";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return LISTENER_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addedResource( ResourceEvent event )
+    {
+        capture( event );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deletedResource( ResourceEvent event )
+    {
+        if ( isFormResponse( event ) )
+        {
+            try
+            {
+                TipiFormsCaptureService.getInstance( ).removeFormResponse( NumberUtils.toInt( event.getIdResource( ) ) );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Unable to remove the TIPI values of the form response " + event.getIdResource( ), e );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updatedResource( ResourceEvent event )
+    {
+        capture( event );
+    }
+
+    /**
+     * Captures the values of the form response concerned by the specified event
+     * 
+     * @param event
+     *            the event
+     */
+    private void capture( ResourceEvent event )
+    {
+        if ( isFormResponse( event ) && TipiFormsCaptureService.isEnabled( ) )
+        {
+            try
+            {
+                TipiFormsCaptureService.getInstance( ).capture( NumberUtils.toInt( event.getIdResource( ) ) );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Unable to capture the TIPI values of the form response " + event.getIdResource( ), e );
+            }
+        }
+    }
+
+    /**
+     * Tests whether the specified event concerns a form response
+     * 
+     * @param event
+     *            the event
+     * @return {@code true} if the event concerns a form response, {@code false} otherwise
+     */
+    private static boolean isFormResponse( ResourceEvent event )
+    {
+        return FormResponse.RESOURCE_TYPE.equals( event.getTypeResource( ) );
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponseHome;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.capture.TipiFormsCapture;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.capture.TipiFormsCaptureDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValueDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction.TipiFormsExtractionPlanService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class captures the RefDet, the amount and the email of a form response when it is submitted, for each TIPI forms provider task configured on its
+ * form. The task then reads the captured values with one primary key read. A capture is used only if the form response has not been modified since
+ *
+ */
+public final class TipiFormsCaptureService
+{
+    // Properties
+    private static final String PROPERTY_CAPTURE_ENABLED = "workflow-tipiforms.capture.enabled";
+
+    // Beans
+    private static final String BEAN_CAPTURE_DAO = "workflow-tipiforms.tipiFormsCaptureDAO";
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+    private static final String BEAN_RESPONSE_VALUE_DAO = "workflow-tipiforms.tipiFormsResponseValueDAO";
+
+    private static final TipiFormsCaptureService _singleton = new TipiFormsCaptureService( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsCaptureService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static TipiFormsCaptureService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Tests whether the values are captured at submission time
+     * 
+     * @return {@code true} if the values are captured, {@code false} otherwise
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_CAPTURE_ENABLED, true );
+    }
+
+    /**
+     * Captures the values of the specified form response for each task configured on its form. A task whose values cannot be extracted is skipped: the
+     * values are then extracted during the execution of the task
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     */
+    public void capture( int nIdFormResponse )
+    {
+        FormResponse formResponse = FormResponseHome.findByPrimaryKey( nIdFormResponse );
+
+        if ( formResponse == null )
+        {
+            return;
+        }
+
+        TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+        TipiFormsResponseValueDAO responseValueDAO = SpringContextService.getBean( BEAN_RESPONSE_VALUE_DAO );
+        TipiFormsCaptureDAO captureDAO = getDAO( );
+
+        for ( TaskTipiFormsProviderConfig config : configDAO.loadByForm( formResponse.getFormId( ) ) )
+        {
+            captureDAO.delete( nIdFormResponse, config.getIdTask( ) );
+
+            try
+            {
+                List<TipiFormsResponseValue> listResponseValue = responseValueDAO.selectByFormResponse( nIdFormResponse, config.getIdRefDetQuestion( ),
+                        config.getIdAmountQuestion( ), config.getIdEmailQuestion( ) );
+                Map<Integer, String> mapValues = TipiFormsExtractionPlanService.getInstance( ).getPlan( config ).extractValues( listResponseValue );
+
+                if ( mapValues.containsKey( config.getIdRefDetQuestion( ) ) && mapValues.containsKey( config.getIdAmountQuestion( ) )
+                        && mapValues.containsKey( config.getIdEmailQuestion( ) ) )
+                {
+                    TipiFormsCapture capture = new TipiFormsCapture( );
+                    capture.setIdFormResponse( nIdFormResponse );
+                    capture.setIdTask( config.getIdTask( ) );
+                    capture.setRefDet( mapValues.get( config.getIdRefDetQuestion( ) ) );
+                    capture.setAmount( mapValues.get( config.getIdAmountQuestion( ) ) );
+                    capture.setEmail( mapValues.get( config.getIdEmailQuestion( ) ) );
+                    capture.setDateCapture( new Timestamp( System.currentTimeMillis( ) ) );
+
+                    captureDAO.insert( capture );
+                }
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Unable to capture the TIPI values of the form response " + nIdFormResponse + " for the task " + config.getIdTask( ), e );
+            }
+        }
+    }
+
+    /**
+     * Finds the captured values of the specified form response for the specified task
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdTask
+     *            the task id
+     * @return the capture, or {@code null} if the values have not been captured or if the form response has been modified since. Some values of the
+     *         capture may be {@code null} if their question has been replaced in the configuration of the task
+     */
+    public TipiFormsCapture find( int nIdFormResponse, int nIdTask )
+    {
+        return getDAO( ).loadUpToDate( nIdFormResponse, nIdTask );
+    }
+
+    /**
+     * Removes the captures of the specified form response
+     * 
+     * @param nIdFormResponse
+     *            the form response id
+     */
+    public void removeFormResponse( int nIdFormResponse )
+    {
+        getDAO( ).deleteByFormResponse( nIdFormResponse );
+    }
+
+    /**
+     * Removes the values of the captures of the specified task which come from questions replaced in its configuration. All the captures are removed when
+     * the form changes. The values coming from the questions kept in the configuration stay captured
+     * 
+     * @param configBefore
+     *            the configuration before the change, or {@code null} if the task was not configured
+     * @param configAfter
+     *            the configuration after the change
+     */
+    public void removeChangedQuestions( TaskTipiFormsProviderConfig configBefore, TaskTipiFormsProviderConfig configAfter )
+    {
+        if ( configBefore == null )
+        {
+            // nothing can have been captured for a task which was not configured
+            return;
+        }
+
+        if ( configBefore.getIdForm( ) != configAfter.getIdForm( ) )
+        {
+            removeTask( configAfter.getIdTask( ) );
+
+            return;
+        }
+
+        boolean bRefDet = configBefore.getIdRefDetQuestion( ) != configAfter.getIdRefDetQuestion( );
+        boolean bAmount = configBefore.getIdAmountQuestion( ) != configAfter.getIdAmountQuestion( );
+        boolean bEmail = configBefore.getIdEmailQuestion( ) != configAfter.getIdEmailQuestion( );
+
+        if ( bRefDet || bAmount || bEmail )
+        {
+            getDAO( ).clearByTask( configAfter.getIdTask( ), bRefDet, bAmount, bEmail );
+        }
+    }
+
+    /**
+     * Removes the captures of the specified task. Must be called when the task or the form of its configuration changes
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void removeTask( int nIdTask )
+    {
+        getDAO( ).deleteByTask( nIdTask );
+    }
+
+    /**
+     * Gives the DAO
+     * 
+     * @return the DAO
+     */
+    private static TipiFormsCaptureDAO getDAO( )
+    {
+        return SpringContextService.getBean( BEAN_CAPTURE_DAO );
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.dedup.TipiFormsProvisioning;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.dedup.TipiFormsProvisioningDAO;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class detects the replayed executions of the task {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask
+ * TipiFormsProviderTask}. An execution is a replay when the same task has already provisioned the same resource with the same RefDet, amount and email
+ * within the window defined by the property {@value #PROPERTY_DEDUP_WINDOW}. The last provisioning of each resource is stored in the database and kept in
+ * this cache, which serves as a near cache for the database. The executions for a resource are serialized on this node: an execution waits for the
+ * execution in progress for the same resource, then is a replay only if that execution has succeeded. A provisioning performed by a backfill is recorded
+ * even if the detection is disabled, and an execution with the same RefDet, amount and email replays it whatever its age: the resource has already been
+ * provisioned, outside of the workflow
+ *
+ */
+public final class TipiFormsProvisioningDedupService extends AbstractCacheableService
+{
+    // Properties
+    private static final String PROPERTY_DEDUP_WINDOW = "workflow-tipiforms.dedup.window";
+
+    // Beans
+    private static final String BEAN_PROVISIONING_DAO = "workflow-tipiforms.tipiFormsProvisioningDAO";
+
+    // Other constants
+    private static final String CACHE_NAME = "workflow-tipiforms.tipiFormsProvisioningDedupService";
+    private static final int DEFAULT_DEDUP_WINDOW = 300;
+    private static final String KEY_SEPARATOR = ":";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char VALUE_SEPARATOR = '\n';
+    private static TipiFormsProvisioningDedupService _singleton;
+
+    private final Map<String, CountDownLatch> _mapInProgress = new ConcurrentHashMap<String, CountDownLatch>( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsProvisioningDedupService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static synchronized TipiFormsProvisioningDedupService getInstance( )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new TipiFormsProvisioningDedupService( );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Tests whether the replayed executions are detected. The replays of the provisionings performed by a backfill are detected in any case
+     * 
+     * @return {@code true} if the replayed executions are detected, {@code false} otherwise
+     */
+    public static boolean isEnabled( )
+    {
+        return getWindowMillis( ) > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Builds the provisioning key from the specified values
+     * 
+     * @param strRefDet
+     *            the RefDet
+     * @param strAmount
+     *            the amount
+     * @param strEmail
+     *            the email
+     * @return the key
+     */
+    public static String buildProvisioningKey( String strRefDet, String strAmount, String strEmail )
+    {
+        StringBuilder sbValues = new StringBuilder( );
+        sbValues.append( StringUtils.defaultString( strRefDet ) ).append( VALUE_SEPARATOR );
+        sbValues.append( StringUtils.defaultString( strAmount ) ).append( VALUE_SEPARATOR );
+        sbValues.append( StringUtils.defaultString( strEmail ) );
+
+        try
+        {
+            byte [ ] digest = MessageDigest.getInstance( DIGEST_ALGORITHM ).digest( sbValues.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+            StringBuilder sbKey = new StringBuilder( digest.length * 2 );
+
+            for ( byte b : digest )
+            {
+                sbKey.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+
+            return sbKey.toString( );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new AppException( "The algorithm " + DIGEST_ALGORITHM + " is not available", e );
+        }
+    }
+
+    /**
+     * Starts a provisioning of the specified resource by the specified task. If another provisioning of the resource is in progress on this node, waits for
+     * its end, within the specified deadline. Once started, {@link #end(int, int, String, int, boolean, boolean)} or {@link #release(int, int)} must be
+     * called
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     * @param strProvisioningKey
+     *            the provisioning key
+     * @param lDeadlineNanos
+     *            the deadline of the wait, in the time base of {@link System#nanoTime()}
+     * @return {@code null} if the provisioning must be performed, otherwise the successful provisioning which makes this one a replay
+     * @throws AppException
+     *             if the provisioning in progress has not ended within the deadline. The provisioning is not started when an exception is thrown
+     */
+    public TipiFormsProvisioning start( int nIdTask, int nIdResource, String strProvisioningKey, long lDeadlineNanos )
+    {
+        String strKey = buildKey( nIdTask, nIdResource );
+        CountDownLatch latch = new CountDownLatch( 1 );
+        CountDownLatch latchInProgress = _mapInProgress.putIfAbsent( strKey, latch );
+
+        while ( latchInProgress != null )
+        {
+            awaitEnd( latchInProgress, nIdResource, lDeadlineNanos );
+            latchInProgress = _mapInProgress.putIfAbsent( strKey, latch );
+        }
+
+        try
+        {
+            TipiFormsProvisioning provisioning = findProvisioning( strKey, nIdTask, nIdResource );
+
+            if ( provisioning != null && strProvisioningKey.equals( provisioning.getProvisioningKey( ) )
+                    && ( provisioning.isBackfill( ) || isInWindow( provisioning ) ) )
+            {
+                return provisioning;
+            }
+
+            return null;
+        }
+        catch( RuntimeException e )
+        {
+            // the provisioning is not started, so the ones waiting for it are resumed
+            _mapInProgress.remove( strKey, latch );
+            latch.countDown( );
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the end of the provisioning in progress
+     * 
+     * @param latchInProgress
+     *            the latch of the provisioning in progress
+     * @param nIdResource
+     *            the resource id
+     * @param lDeadlineNanos
+     *            the deadline of the wait
+     * @throws AppException
+     *             if the provisioning in progress has not ended within the deadline, or if the wait is interrupted
+     */
+    private static void awaitEnd( CountDownLatch latchInProgress, int nIdResource, long lDeadlineNanos )
+    {
+        try
+        {
+            if ( !latchInProgress.await( lDeadlineNanos - System.nanoTime( ), TimeUnit.NANOSECONDS ) )
+            {
+                throw new AppException( "A provisioning of the resource " + nIdResource + " is still in progress" );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while waiting for the provisioning in progress of the resource " + nIdResource, e );
+        }
+    }
+
+    /**
+     * Ends a provisioning started by {@link #start(int, int, String, long)}
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     * @param strProvisioningKey
+     *            the provisioning key
+     * @param nIdHistory
+     *            the resource history id of the provisioning
+     * @param bSuccess
+     *            {@code true} if the provisioning has succeeded, {@code false} otherwise. A failed provisioning is not recorded, so that it can be
+     *            retried
+     * @param bBackfill
+     *            {@code true} if the provisioning has been performed by a backfill, {@code false} otherwise
+     */
+    public void end( int nIdTask, int nIdResource, String strProvisioningKey, int nIdHistory, boolean bSuccess, boolean bBackfill )
+    {
+        try
+        {
+            if ( bSuccess && ( bBackfill || isEnabled( ) ) )
+            {
+                TipiFormsProvisioning provisioning = new TipiFormsProvisioning( );
+                provisioning.setIdTask( nIdTask );
+                provisioning.setIdResource( nIdResource );
+                provisioning.setProvisioningKey( strProvisioningKey );
+                provisioning.setIdHistory( nIdHistory );
+                provisioning.setDateProvisioning( new Timestamp( System.currentTimeMillis( ) ) );
+                provisioning.setBackfill( bBackfill );
+
+                TipiFormsProvisioningDAO provisioningDAO = getDAO( );
+                provisioningDAO.delete( nIdTask, nIdResource );
+                provisioningDAO.insert( provisioning );
+                putInCache( buildKey( nIdTask, nIdResource ), provisioning );
+            }
+        }
+        finally
+        {
+            release( nIdTask, nIdResource );
+        }
+    }
+
+    /**
+     * Releases a provisioning started by {@link #start(int, int, String, long)} without recording it, for instance when it is a replay. The provisionings
+     * waiting for it are resumed
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     */
+    public void release( int nIdTask, int nIdResource )
+    {
+        CountDownLatch latch = _mapInProgress.remove( buildKey( nIdTask, nIdResource ) );
+
+        if ( latch != null )
+        {
+            latch.countDown( );
+        }
+    }
+
+    /**
+     * Removes all the provisionings of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void removeTask( int nIdTask )
+    {
+        getDAO( ).deleteByTask( nIdTask );
+        resetCache( );
+    }
+
+    /**
+     * Finds the last provisioning of the specified resource by the specified task, in the cache first
+     * 
+     * @param strKey
+     *            the cache key
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     * @return the provisioning, or {@code null} if not found
+     */
+    private TipiFormsProvisioning findProvisioning( String strKey, int nIdTask, int nIdResource )
+    {
+        TipiFormsProvisioning provisioning = (TipiFormsProvisioning) getFromCache( strKey );
+
+        if ( provisioning == null )
+        {
+            provisioning = getDAO( ).load( nIdTask, nIdResource );
+
+            if ( provisioning != null )
+            {
+                putInCache( strKey, provisioning );
+            }
+        }
+
+        return provisioning;
+    }
+
+    /**
+     * Tests whether the specified provisioning is within the window
+     * 
+     * @param provisioning
+     *            the provisioning
+     * @return {@code true} if the provisioning is within the window, {@code false} otherwise
+     */
+    private static boolean isInWindow( TipiFormsProvisioning provisioning )
+    {
+        return provisioning.getDateProvisioning( ) != null
+                && System.currentTimeMillis( ) - provisioning.getDateProvisioning( ).getTime( ) < getWindowMillis( );
+    }
+
+    /**
+     * Gives the window within which an execution is considered as a replay
+     * 
+     * @return the window in milliseconds
+     */
+    private static long getWindowMillis( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_DEDUP_WINDOW, DEFAULT_DEDUP_WINDOW ) * 1000L;
+    }
+
+    /**
+     * Builds the cache key for the specified task and resource
+     * 
+     * @param nIdTask
+     *            the task id
+     * @param nIdResource
+     *            the resource id
+     * @return the key
+     */
+    private static String buildKey( int nIdTask, int nIdResource )
+    {
+        return nIdTask + KEY_SEPARATOR + nIdResource;
+    }
+
+    /**
+     * Gives the DAO
+     * 
+     * @return the DAO
+     */
+    private static TipiFormsProvisioningDAO getDAO( )
+    {
+        return SpringContextService.getBean( BEAN_PROVISIONING_DAO );
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.workflow.modules.tipi.business.TipiRefDetHistory;
+import fr.paris.lutece.plugins.workflow.modules.tipi.service.ITipiRefDetHistoryService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.export.TipiFormsExportDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.export.TipiFormsExportRow;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class exports in CSV the TIPI provisioning data of the form of a TIPI forms provider task: for each form response, the RefDet, the amount and the
+ * email sent to the TIPI service, and the status of the last execution of the task. The form responses are read by chunks of increasing ids and each chunk is written and flushed
+ * before the next one is read, so that the memory used does not depend on the number of form responses
+ *
+ */
+public final class TipiFormsExportService
+{
+    // Properties
+    private static final String PROPERTY_EXPORT_CHUNK_SIZE = "workflow-tipiforms.export.chunkSize";
+    private static final String PROPERTY_EXPORT_SEPARATOR = "workflow-tipiforms.export.separator";
+
+    // Beans
+    private static final String BEAN_EXPORT_DAO = "workflow-tipiforms.tipiFormsExportDAO";
+
+    // Messages
+    private static final String MESSAGE_COLUMN_ID_FORM_RESPONSE = "module.workflow.tipiforms.export.column.idFormResponse";
+    private static final String MESSAGE_COLUMN_DATE_CREATION = "module.workflow.tipiforms.export.column.dateCreation";
+    private static final String MESSAGE_COLUMN_REFDET = "module.workflow.tipiforms.export.column.refDet";
+    private static final String MESSAGE_COLUMN_AMOUNT = "module.workflow.tipiforms.export.column.amount";
+    private static final String MESSAGE_COLUMN_EMAIL = "module.workflow.tipiforms.export.column.email";
+    private static final String MESSAGE_COLUMN_STATUS = "module.workflow.tipiforms.export.column.status";
+    private static final String MESSAGE_COLUMN_DATE_EXECUTION = "module.workflow.tipiforms.export.column.dateExecution";
+
+    // Other constants
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final String DEFAULT_SEPARATOR = ";";
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final String QUOTE = "\"";
+    private static final String ESCAPED_QUOTE = "\"\"";
+    private static final String LINE_SEPARATOR = "\r\n";
+    private static final String FORMULA_START_CHARS = "=+@\t\r";
+    private static final char NEGATIVE_SIGN = '-';
+    private static final Pattern PATTERN_NEGATIVE_NUMBER = Pattern.compile( "-\\d+([.,]\\d+)?" );
+    private static final String FORMULA_ESCAPE = "'";
+
+    private static final TipiFormsExportService _singleton = new TipiFormsExportService( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsExportService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static TipiFormsExportService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Gives the name of the export file of the specified task
+     * 
+     * @param config
+     *            the configuration of the task
+     * @return the file name
+     */
+    public static String getFileName( TaskTipiFormsProviderConfig config )
+    {
+        return "tipiforms_form" + config.getIdForm( ) + "_task" + config.getIdTask( ) + ".csv";
+    }
+
+    /**
+     * Exports the TIPI provisioning data of the form of the specified task to the specified writer. The values of a form response are the ones sent to the
+     * TIPI service: they are not extracted again from its answers, which may have been modified since
+     * 
+     * @param config
+     *            the configuration of the task
+     * @param writer
+     *            the writer
+     * @param locale
+     *            the locale of the column titles
+     * @throws IOException
+     *             if an error occurs while writing
+     */
+    public void export( TaskTipiFormsProviderConfig config, Writer writer, Locale locale ) throws IOException
+    {
+        TipiFormsExportDAO exportDAO = SpringContextService.getBean( BEAN_EXPORT_DAO );
+        ITipiRefDetHistoryService refDetHistoryService = getRefDetHistoryService( );
+        int nChunkSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_EXPORT_CHUNK_SIZE, DEFAULT_CHUNK_SIZE ) );
+        String strSeparator = AppPropertiesService.getProperty( PROPERTY_EXPORT_SEPARATOR, DEFAULT_SEPARATOR );
+        DateFormat dateFormat = new SimpleDateFormat( DATE_PATTERN );
+
+        writeLine( writer, strSeparator, I18nService.getLocalizedString( MESSAGE_COLUMN_ID_FORM_RESPONSE, locale ),
+                I18nService.getLocalizedString( MESSAGE_COLUMN_DATE_CREATION, locale ), I18nService.getLocalizedString( MESSAGE_COLUMN_REFDET, locale ),
+                I18nService.getLocalizedString( MESSAGE_COLUMN_AMOUNT, locale ), I18nService.getLocalizedString( MESSAGE_COLUMN_EMAIL, locale ),
+                I18nService.getLocalizedString( MESSAGE_COLUMN_STATUS, locale ), I18nService.getLocalizedString( MESSAGE_COLUMN_DATE_EXECUTION, locale ) );
+
+        int nLastIdFormResponse = 0;
+        List<TipiFormsExportRow> listRow;
+
+        do
+        {
+            listRow = exportDAO.selectRows( config.getIdTask( ), config.getIdForm( ), FormResponse.RESOURCE_TYPE, nLastIdFormResponse, nChunkSize );
+
+            fillRefDetFromHistory( listRow, refDetHistoryService );
+
+            for ( TipiFormsExportRow row : listRow )
+            {
+                writeLine( writer, strSeparator, String.valueOf( row.getIdFormResponse( ) ), format( dateFormat, row.getDateCreation( ) ), row.getRefDet( ),
+                        row.getAmount( ), row.getEmail( ), row.getStatus( ), format( dateFormat, row.getDateExecution( ) ) );
+                nLastIdFormResponse = row.getIdFormResponse( );
+            }
+
+            writer.flush( );
+        }
+        while ( listRow.size( ) == nChunkSize );
+    }
+
+    /**
+     * Fills the RefDet of the specified rows whose execution sent the values before they were recorded with it, from the RefDet history of the TIPI
+     * module. The amount and the email of these rows stay empty
+     * 
+     * @param listRow
+     *            the rows
+     * @param refDetHistoryService
+     *            the RefDet history service, or {@code null} if none is available
+     */
+    private static void fillRefDetFromHistory( List<TipiFormsExportRow> listRow, ITipiRefDetHistoryService refDetHistoryService )
+    {
+        if ( refDetHistoryService == null )
+        {
+            return;
+        }
+
+        for ( TipiFormsExportRow row : listRow )
+        {
+            if ( row.getIdHistorySent( ) != 0 && row.getRefDet( ) == null )
+            {
+                TipiRefDetHistory refDetHistory = refDetHistoryService.findByPrimaryKey( row.getIdHistorySent( ) );
+
+                if ( refDetHistory != null )
+                {
+                    row.setRefDet( refDetHistory.getRefDet( ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the RefDet history service of the TIPI module
+     * 
+     * @return the service, or {@code null} if none is available
+     */
+    private static ITipiRefDetHistoryService getRefDetHistoryService( )
+    {
+        List<ITipiRefDetHistoryService> listService = SpringContextService.getBeansOfType( ITipiRefDetHistoryService.class );
+
+        return listService.isEmpty( ) ? null : listService.get( 0 );
+    }
+
+    /**
+     * Formats the specified date
+     * 
+     * @param dateFormat
+     *            the date format
+     * @param date
+     *            the date. May be {@code null}
+     * @return the formatted date, or {@code null} if the date is {@code null}
+     */
+    private static String format( DateFormat dateFormat, Timestamp date )
+    {
+        return ( date != null ) ? dateFormat.format( date ) : null;
+    }
+
+    /**
+     * Writes a CSV line with the specified values
+     * 
+     * @param writer
+     *            the writer
+     * @param strSeparator
+     *            the separator of the values
+     * @param values
+     *            the values. A value may be {@code null}
+     * @throws IOException
+     *             if an error occurs while writing
+     */
+    private static void writeLine( Writer writer, String strSeparator, String... values ) throws IOException
+    {
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                writer.write( strSeparator );
+            }
+
+            writer.write( escape( values [i] ) );
+        }
+
+        writer.write( LINE_SEPARATOR );
+    }
+
+    /**
+     * Escapes the specified value for CSV. The value is quoted, and prefixed when it would be interpreted as a formula by a spreadsheet. A negative number
+     * is not a formula and is kept as is
+     * 
+     * @param strValue
+     *            the value. May be {@code null}
+     * @return the escaped value
+     */
+    static String escape( String strValue )
+    {
+        if ( StringUtils.isEmpty( strValue ) )
+        {
+            return StringUtils.EMPTY;
+        }
+
+        String strSafeValue = isFormula( strValue ) ? FORMULA_ESCAPE + strValue : strValue;
+
+        return QUOTE + strSafeValue.replace( QUOTE, ESCAPED_QUOTE ) + QUOTE;
+    }
+
+    /**
+     * Tests whether the specified value would be interpreted as a formula by a spreadsheet
+     * 
+     * @param strValue
+     *            the value. Must not be empty
+     * @return {@code true} if the value starts like a formula, {@code false} otherwise
+     */
+    private static boolean isFormula( String strValue )
+    {
+        char cFirst = strValue.charAt( 0 );
+
+        if ( cFirst == NEGATIVE_SIGN )
+        {
+            return !PATTERN_NEGATIVE_NUMBER.matcher( strValue ).matches( );
+        }
+
+        return FORMULA_START_CHARS.indexOf( cFirst ) >= 0;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.business.QuestionHome;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics.TipiFormsProviderMetrics;
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * 
+ * This class represents the extraction plan of a task configuration: each configured question is resolved once to its entry and its entry type service
+ *
+ */
+public final class TipiFormsExtractionPlan
+{
+    private final int _nIdForm;
+    private final int _nIdRefDetQuestion;
+    private final int _nIdAmountQuestion;
+    private final int _nIdEmailQuestion;
+    private final Map<Integer, TipiFormsValueExtractor> _mapExtractors = new HashMap<Integer, TipiFormsValueExtractor>( );
+
+    /**
+     * Constructor
+     * 
+     * @param config
+     *            the configuration to compile
+     */
+    private TipiFormsExtractionPlan( TaskTipiFormsProviderConfig config )
+    {
+        _nIdForm = config.getIdForm( );
+        _nIdRefDetQuestion = config.getIdRefDetQuestion( );
+        _nIdAmountQuestion = config.getIdAmountQuestion( );
+        _nIdEmailQuestion = config.getIdEmailQuestion( );
+    }
+
+    /**
+     * Compiles the extraction plan of the specified configuration
+     * 
+     * @param config
+     *            the configuration
+     * @return the extraction plan
+     */
+    public static TipiFormsExtractionPlan compile( TaskTipiFormsProviderConfig config )
+    {
+        TipiFormsExtractionPlan plan = new TipiFormsExtractionPlan( config );
+
+        plan.addExtractor( config.getIdRefDetQuestion( ) );
+        plan.addExtractor( config.getIdAmountQuestion( ) );
+        plan.addExtractor( config.getIdEmailQuestion( ) );
+
+        return plan;
+    }
+
+    /**
+     * Adds the extractor for the specified question, if the question exists
+     * 
+     * @param nIdQuestion
+     *            the question id
+     */
+    private void addExtractor( int nIdQuestion )
+    {
+        if ( _mapExtractors.containsKey( nIdQuestion ) )
+        {
+            return;
+        }
+
+        Question question = QuestionHome.findByPrimaryKey( nIdQuestion );
+
+        if ( question != null && question.getEntry( ) != null )
+        {
+            _mapExtractors.put( nIdQuestion, new TipiFormsValueExtractor( question.getEntry( ) ) );
+        }
+    }
+
+    /**
+     * Tests whether this plan has been compiled for the specified configuration
+     * 
+     * @param config
+     *            the configuration
+     * @return {@code true} if this plan matches the configuration, {@code false} otherwise
+     */
+    public boolean isCompiledFor( TaskTipiFormsProviderConfig config )
+    {
+        return _nIdForm == config.getIdForm( ) && _nIdRefDetQuestion == config.getIdRefDetQuestion( ) && _nIdAmountQuestion == config.getIdAmountQuestion( )
+                && _nIdEmailQuestion == config.getIdEmailQuestion( );
+    }
+
+    /**
+     * Gives the extractor for the specified question. If the question is not part of the plan, an extractor is created from the specified entry
+     * 
+     * @param nIdQuestion
+     *            the question id
+     * @param nIdEntry
+     *            the id of the entry of the question
+     * @return the extractor
+     */
+    public TipiFormsValueExtractor getExtractor( int nIdQuestion, int nIdEntry )
+    {
+        TipiFormsValueExtractor extractor = _mapExtractors.get( nIdQuestion );
+
+        if ( extractor == null || extractor.getEntry( ).getIdEntry( ) != nIdEntry )
+        {
+            extractor = new TipiFormsValueExtractor( EntryHome.findByPrimaryKey( nIdEntry ) );
+        }
+
+        return extractor;
+    }
+
+    /**
+     * Converts the specified response values into values usable by TIPI. When a question is iterated in the form response, the value of its last iteration
+     * is used
+     * 
+     * @param listResponseValue
+     *            the response values
+     * @return the converted values, mapped by question id
+     * @throws AppException
+     *             if an iteration of a question contains several responses
+     */
+    public Map<Integer, String> extractValues( List<TipiFormsResponseValue> listResponseValue )
+    {
+        Map<Integer, String> mapValues = new HashMap<Integer, String>( );
+        Map<Integer, Integer> mapIdQuestionResponse = new HashMap<Integer, Integer>( );
+        Set<Integer> setIdQuestionResponse = new HashSet<Integer>( );
+
+        for ( TipiFormsResponseValue responseValue : listResponseValue )
+        {
+            if ( !setIdQuestionResponse.add( responseValue.getIdQuestionResponse( ) ) )
+            {
+                TipiFormsProviderMetrics.getInstance( ).incrementMultipleResponse( );
+                throw new AppException( "The question contains several responses !" );
+            }
+
+            Integer nIdLastQuestionResponse = mapIdQuestionResponse.get( responseValue.getIdQuestion( ) );
+
+            if ( nIdLastQuestionResponse == null || nIdLastQuestionResponse < responseValue.getIdQuestionResponse( ) )
+            {
+                mapIdQuestionResponse.put( responseValue.getIdQuestion( ), responseValue.getIdQuestionResponse( ) );
+                mapValues.put( responseValue.getIdQuestion( ), extractValue( responseValue ) );
+            }
+        }
+
+        return mapValues;
+    }
+
+    /**
+     * Converts the specified response value by using the extractor of the question. When the question is not part of the plan, the raw value of a simple
+     * entry type is used as is, without loading the entry
+     * 
+     * @param responseValue
+     *            the response value
+     * @return the converted value
+     */
+    private String extractValue( TipiFormsResponseValue responseValue )
+    {
+        TipiFormsValueExtractor extractor = _mapExtractors.get( responseValue.getIdQuestion( ) );
+
+        if ( ( extractor == null || extractor.getEntry( ).getIdEntry( ) != responseValue.getIdEntry( ) )
+                && TipiFormsValueExtractor.isRawValueEntryType( responseValue.getEntryType( ) ) )
+        {
+            return responseValue.getValue( );
+        }
+
+        extractor = getExtractor( responseValue.getIdQuestion( ), responseValue.getIdEntry( ) );
+
+        return extractor.extract( responseValue );
+    }
+}
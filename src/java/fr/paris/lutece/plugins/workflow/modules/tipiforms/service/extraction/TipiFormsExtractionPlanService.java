@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+
+/**
+ * 
+ * This class provides the extraction plans of the task configurations. A plan is compiled on first use and compiled again only when the configuration
+ * changes
+ *
+ */
+public final class TipiFormsExtractionPlanService
+{
+    private static final TipiFormsExtractionPlanService _singleton = new TipiFormsExtractionPlanService( );
+
+    private final Map<Integer, TipiFormsExtractionPlan> _mapPlans = new ConcurrentHashMap<Integer, TipiFormsExtractionPlan>( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsExtractionPlanService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static TipiFormsExtractionPlanService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Gives the extraction plan of the specified configuration
+     * 
+     * @param config
+     *            the configuration
+     * @return the extraction plan
+     */
+    public TipiFormsExtractionPlan getPlan( TaskTipiFormsProviderConfig config )
+    {
+        TipiFormsExtractionPlan plan = _mapPlans.get( config.getIdTask( ) );
+
+        if ( plan == null || !plan.isCompiledFor( config ) )
+        {
+            plan = TipiFormsExtractionPlan.compile( config );
+            _mapPlans.put( config.getIdTask( ), plan );
+        }
+
+        return plan;
+    }
+
+    /**
+     * Removes the extraction plan of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    public void remove( int nIdTask )
+    {
+        _mapPlans.remove( nIdTask );
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class extracts the value of a response given to an entry. The entry type service of the entry is resolved once, when the extractor is created.
+ * <p>
+ * For the simple entry types listed in the property {@value #PROPERTY_RAW_VALUE_ENTRY_TYPES}, the stored value of the response is used as is: the
+ * response is not loaded and the export formatting of the entry type is not called
+ * </p>
+ *
+ */
+public class TipiFormsValueExtractor
+{
+    // Properties
+    private static final String PROPERTY_RAW_VALUE_ENTRY_TYPES = "workflow-tipiforms.extraction.rawValueEntryTypes";
+
+    // Other constants
+    private static final Locale LOCALE_EXPORT = Locale.FRENCH;
+    private static final String ENTRY_TYPE_SEPARATOR = ",";
+    private static final Set<String> RAW_VALUE_ENTRY_TYPES = readRawValueEntryTypes( );
+
+    private final Entry _entry;
+    private final IEntryTypeService _entryTypeService;
+    private final boolean _bRawValue;
+
+    /**
+     * Constructor
+     * 
+     * @param entry
+     *            the entry
+     */
+    public TipiFormsValueExtractor( Entry entry )
+    {
+        _entry = entry;
+        _entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
+        _bRawValue = entry.getEntryType( ) != null && isRawValueEntryType( entry.getEntryType( ).getBeanName( ) );
+    }
+
+    /**
+     * Tests whether the stored value of the responses can be used as is for the specified entry type
+     * 
+     * @param strEntryType
+     *            the bean name of the entry type
+     * @return {@code true} if the stored value can be used as is, {@code false} otherwise
+     */
+    static boolean isRawValueEntryType( String strEntryType )
+    {
+        return StringUtils.isNotEmpty( strEntryType ) && RAW_VALUE_ENTRY_TYPES.contains( strEntryType );
+    }
+
+    /**
+     * Reads the bean names of the entry types whose stored value can be used as is
+     * 
+     * @return the bean names
+     */
+    private static Set<String> readRawValueEntryTypes( )
+    {
+        String strRawValueEntryTypes = AppPropertiesService.getProperty( PROPERTY_RAW_VALUE_ENTRY_TYPES, StringUtils.EMPTY );
+
+        return Collections.unmodifiableSet( new HashSet<String>( Arrays.asList( StringUtils.stripAll( StringUtils.split( strRawValueEntryTypes,
+                ENTRY_TYPE_SEPARATOR ) ) ) ) );
+    }
+
+    /**
+     * Gives the entry
+     * 
+     * @return the entry
+     */
+    public Entry getEntry( )
+    {
+        return _entry;
+    }
+
+    /**
+     * Tests whether the stored value of the responses is used as is
+     * 
+     * @return {@code true} if the stored value is used as is, {@code false} otherwise
+     */
+    public boolean isRawValue( )
+    {
+        return _bRawValue;
+    }
+
+    /**
+     * Extracts the value of the specified response value. The response is loaded only when the export formatting of the entry type is needed
+     * 
+     * @param responseValue
+     *            the response value
+     * @return the value
+     */
+    public String extract( TipiFormsResponseValue responseValue )
+    {
+        if ( _bRawValue )
+        {
+            return responseValue.getValue( );
+        }
+
+        return extract( ResponseHome.findByPrimaryKey( responseValue.getIdResponse( ) ) );
+    }
+
+    /**
+     * Extracts the value of the specified response
+     * 
+     * @param response
+     *            the response
+     * @return the value
+     */
+    public String extract( Response response )
+    {
+        return _entryTypeService.getResponseValueForExport( _entry, null, response, LOCALE_EXPORT );
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 
+ * This class is a lock-free latency histogram. The latencies are recorded in microseconds in logarithmic buckets (four buckets per power of two), so that
+ * the percentiles are given with a relative error lower than 25%
+ *
+ */
+public class TipiFormsLatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 * SUB_BUCKET_COUNT;
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final AtomicLongArray _bucketCounts = new AtomicLongArray( BUCKET_COUNT );
+    private final AtomicLong _lCount = new AtomicLong( );
+    private final AtomicLong _lTotalMicros = new AtomicLong( );
+    private final AtomicLong _lMaxMicros = new AtomicLong( );
+
+    /**
+     * Records a latency
+     * 
+     * @param lDurationNanos
+     *            the latency in nanoseconds
+     */
+    public void record( long lDurationNanos )
+    {
+        long lMicros = Math.max( 0L, lDurationNanos / NANOS_PER_MICRO );
+
+        _bucketCounts.incrementAndGet( bucketIndex( lMicros ) );
+        _lCount.incrementAndGet( );
+        _lTotalMicros.addAndGet( lMicros );
+
+        long lMax = _lMaxMicros.get( );
+
+        while ( lMicros > lMax && !_lMaxMicros.compareAndSet( lMax, lMicros ) )
+        {
+            lMax = _lMaxMicros.get( );
+        }
+    }
+
+    /**
+     * Gives the number of recorded latencies
+     * 
+     * @return the number of latencies
+     */
+    public long getCount( )
+    {
+        return _lCount.get( );
+    }
+
+    /**
+     * Gives the mean of the recorded latencies
+     * 
+     * @return the mean in microseconds
+     */
+    public long getMeanMicros( )
+    {
+        long lCount = _lCount.get( );
+
+        return ( lCount == 0 ) ? 0L : _lTotalMicros.get( ) / lCount;
+    }
+
+    /**
+     * Gives the maximum of the recorded latencies
+     * 
+     * @return the maximum in microseconds
+     */
+    public long getMaxMicros( )
+    {
+        return _lMaxMicros.get( );
+    }
+
+    /**
+     * Gives the specified percentile of the recorded latencies
+     * 
+     * @param dPercentile
+     *            the percentile, between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, in microseconds
+     */
+    public long getPercentileMicros( double dPercentile )
+    {
+        long lCount = _lCount.get( );
+
+        if ( lCount == 0 )
+        {
+            return 0L;
+        }
+
+        long lRank = (long) Math.ceil( lCount * dPercentile / 100.0 );
+        long lSeen = 0L;
+
+        for ( int nIndex = 0; nIndex < BUCKET_COUNT; nIndex++ )
+        {
+            lSeen += _bucketCounts.get( nIndex );
+
+            if ( lSeen >= lRank )
+            {
+                return Math.min( bucketUpperBound( nIndex ), _lMaxMicros.get( ) );
+            }
+        }
+
+        return _lMaxMicros.get( );
+    }
+
+    /**
+     * Resets the histogram
+     */
+    public void reset( )
+    {
+        for ( int nIndex = 0; nIndex < BUCKET_COUNT; nIndex++ )
+        {
+            _bucketCounts.set( nIndex, 0L );
+        }
+
+        _lCount.set( 0L );
+        _lTotalMicros.set( 0L );
+        _lMaxMicros.set( 0L );
+    }
+
+    /**
+     * Gives the index of the bucket for the specified value
+     * 
+     * @param lValue
+     *            the value
+     * @return the bucket index
+     */
+    private static int bucketIndex( long lValue )
+    {
+        if ( lValue < SUB_BUCKET_COUNT )
+        {
+            return (int) lValue;
+        }
+
+        int nExponent = 63 - Long.numberOfLeadingZeros( lValue );
+        int nSubBucket = (int) ( lValue >>> ( nExponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKET_COUNT - 1 );
+
+        return ( nExponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKET_COUNT + nSubBucket;
+    }
+
+    /**
+     * Gives the greatest value of the specified bucket
+     * 
+     * @param nIndex
+     *            the bucket index
+     * @return the greatest value
+     */
+    private static long bucketUpperBound( int nIndex )
+    {
+        if ( nIndex < SUB_BUCKET_COUNT )
+        {
+            return nIndex;
+        }
+
+        int nExponent = nIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long lSubBucket = nIndex % SUB_BUCKET_COUNT;
+        int nShift = nExponent - SUB_BUCKET_BITS;
+        long lLowerBound = ( SUB_BUCKET_COUNT + lSubBucket ) << nShift;
+
+        return lLowerBound + ( 1L << nShift ) - 1;
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitBreaker;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * 
+ * This class collects the metrics of the TIPI forms provider task and exposes them through JMX
+ *
+ */
+public final class TipiFormsProviderMetrics implements TipiFormsProviderMetricsMXBean
+{
+    private static final String OBJECT_NAME = "fr.paris.lutece.plugins.workflow.modules.tipiforms:type=TipiFormsProviderMetrics";
+    private static final TipiFormsProviderMetrics _singleton = new TipiFormsProviderMetrics( );
+
+    private final TipiFormsLatencyHistogram _histogramProvideRefDet = new TipiFormsLatencyHistogram( );
+    private final TipiFormsLatencyHistogram _histogramProvideAmount = new TipiFormsLatencyHistogram( );
+    private final TipiFormsLatencyHistogram _histogramProvideEmail = new TipiFormsLatencyHistogram( );
+    private final TipiFormsLatencyHistogram _histogramConfigLoad = new TipiFormsLatencyHistogram( );
+    private final TipiFormsLatencyHistogram _histogramQuestionResponseLoad = new TipiFormsLatencyHistogram( );
+    private final TipiFormsLatencyHistogram _histogramTipiCall = new TipiFormsLatencyHistogram( );
+    private final ConcurrentMap<String, TipiFormsLatencyHistogram> _mapConfigStatementHistogram = new ConcurrentHashMap<String, TipiFormsLatencyHistogram>( );
+    private final AtomicLong _lSlowConfigStatementCount = new AtomicLong( );
+    private final AtomicLong _lMissingQuestionCount = new AtomicLong( );
+    private final AtomicLong _lMultipleResponseCount = new AtomicLong( );
+    private final AtomicLong _lNonFormResourceCount = new AtomicLong( );
+    private final AtomicLong _lCircuitRejectedCount = new AtomicLong( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsProviderMetrics( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the metrics
+     * 
+     * @return the instance
+     */
+    public static TipiFormsProviderMetrics getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server. An already registered instance (after a redeployment for example) is replaced
+     */
+    public void register( )
+    {
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer( );
+
+        try
+        {
+            ObjectName objectName = new ObjectName( OBJECT_NAME );
+
+            if ( mbeanServer.isRegistered( objectName ) )
+            {
+                mbeanServer.unregisterMBean( objectName );
+            }
+
+            mbeanServer.registerMBean( this, objectName );
+        }
+        catch( JMException e )
+        {
+            AppLogService.error( "Unable to register the TIPI forms provider metrics in JMX", e );
+        }
+    }
+
+    /**
+     * Records the duration of a RefDet provision
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordProvideRefDet( long lDurationNanos )
+    {
+        _histogramProvideRefDet.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of an amount provision
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordProvideAmount( long lDurationNanos )
+    {
+        _histogramProvideAmount.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of an email provision
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordProvideEmail( long lDurationNanos )
+    {
+        _histogramProvideEmail.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of a configuration loading
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordConfigLoad( long lDurationNanos )
+    {
+        _histogramConfigLoad.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of a question responses loading
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordQuestionResponseLoad( long lDurationNanos )
+    {
+        _histogramQuestionResponseLoad.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of a TIPI call
+     * 
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     */
+    public void recordTipiCall( long lDurationNanos )
+    {
+        _histogramTipiCall.record( lDurationNanos );
+    }
+
+    /**
+     * Records the duration of a statement on the configurations
+     * 
+     * @param strStatement
+     *            the statement name
+     * @param lDurationNanos
+     *            the duration in nanoseconds
+     * @param bSlow
+     *            {@code true} if the statement is slower than its threshold, {@code false} otherwise
+     */
+    public void recordConfigStatement( String strStatement, long lDurationNanos, boolean bSlow )
+    {
+        TipiFormsLatencyHistogram histogram = _mapConfigStatementHistogram.get( strStatement );
+
+        if ( histogram == null )
+        {
+            TipiFormsLatencyHistogram histogramNew = new TipiFormsLatencyHistogram( );
+            histogram = _mapConfigStatementHistogram.putIfAbsent( strStatement, histogramNew );
+
+            if ( histogram == null )
+            {
+                histogram = histogramNew;
+            }
+        }
+
+        histogram.record( lDurationNanos );
+
+        if ( bSlow )
+        {
+            _lSlowConfigStatementCount.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Counts a TIPI call rejected by the circuit breaker
+     */
+    public void incrementCircuitRejected( )
+    {
+        _lCircuitRejectedCount.incrementAndGet( );
+    }
+
+    /**
+     * Counts a configured question not found in a form response
+     */
+    public void incrementMissingQuestion( )
+    {
+        _lMissingQuestionCount.incrementAndGet( );
+    }
+
+    /**
+     * Counts a question found with several responses
+     */
+    public void incrementMultipleResponse( )
+    {
+        _lMultipleResponseCount.incrementAndGet( );
+    }
+
+    /**
+     * Counts an execution on a resource which is not a form response
+     */
+    public void incrementNonFormResource( )
+    {
+        _lNonFormResourceCount.incrementAndGet( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getProvideRefDet( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramProvideRefDet );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getProvideAmount( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramProvideAmount );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getProvideEmail( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramProvideEmail );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getConfigLoad( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramConfigLoad );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getQuestionResponseLoad( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramQuestionResponseLoad );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TipiFormsTimerSnapshot getTipiCall( )
+    {
+        return new TipiFormsTimerSnapshot( _histogramTipiCall );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, TipiFormsTimerSnapshot> getConfigStatements( )
+    {
+        Map<String, TipiFormsTimerSnapshot> mapSnapshot = new TreeMap<String, TipiFormsTimerSnapshot>( );
+
+        for ( Map.Entry<String, TipiFormsLatencyHistogram> entry : _mapConfigStatementHistogram.entrySet( ) )
+        {
+            mapSnapshot.put( entry.getKey( ), new TipiFormsTimerSnapshot( entry.getValue( ) ) );
+        }
+
+        return mapSnapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSlowConfigStatementCount( )
+    {
+        return _lSlowConfigStatementCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCircuitState( )
+    {
+        return TipiFormsCircuitBreaker.getInstance( ).getState( ).name( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCircuitRejectedCount( )
+    {
+        return _lCircuitRejectedCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMissingQuestionCount( )
+    {
+        return _lMissingQuestionCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMultipleResponseCount( )
+    {
+        return _lMultipleResponseCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNonFormResourceCount( )
+    {
+        return _lNonFormResourceCount.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset( )
+    {
+        _histogramProvideRefDet.reset( );
+        _histogramProvideAmount.reset( );
+        _histogramProvideEmail.reset( );
+        _histogramConfigLoad.reset( );
+        _histogramQuestionResponseLoad.reset( );
+        _histogramTipiCall.reset( );
+        _mapConfigStatementHistogram.clear( );
+        _lSlowConfigStatementCount.set( 0L );
+        _lMissingQuestionCount.set( 0L );
+        _lMultipleResponseCount.set( 0L );
+        _lNonFormResourceCount.set( 0L );
+        _lCircuitRejectedCount.set( 0L );
+    }
+}
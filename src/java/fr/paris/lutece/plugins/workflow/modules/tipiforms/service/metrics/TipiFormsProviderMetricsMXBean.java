@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics;
+
+import java.util.Map;
+
+/**
+ * 
+ * This interface is the JMX view of the metrics of the TIPI forms provider task
+ *
+ */
+public interface TipiFormsProviderMetricsMXBean
+{
+    /**
+     * Gives the timer of the RefDet provision
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getProvideRefDet( );
+
+    /**
+     * Gives the timer of the amount provision
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getProvideAmount( );
+
+    /**
+     * Gives the timer of the email provision
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getProvideEmail( );
+
+    /**
+     * Gives the timer of the configuration loading
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getConfigLoad( );
+
+    /**
+     * Gives the timer of the question responses loading
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getQuestionResponseLoad( );
+
+    /**
+     * Gives the timer of the TIPI calls
+     * 
+     * @return the timer
+     */
+    TipiFormsTimerSnapshot getTipiCall( );
+
+    /**
+     * Gives the timers of the statements on the configurations, mapped by statement name
+     * 
+     * @return the timers
+     */
+    Map<String, TipiFormsTimerSnapshot> getConfigStatements( );
+
+    /**
+     * Gives the number of statements on the configurations slower than their threshold
+     * 
+     * @return the number of statements
+     */
+    long getSlowConfigStatementCount( );
+
+    /**
+     * Gives the state of the circuit breaker protecting the TIPI calls
+     * 
+     * @return the state
+     */
+    String getCircuitState( );
+
+    /**
+     * Gives the number of TIPI calls rejected by the circuit breaker
+     * 
+     * @return the number of calls
+     */
+    long getCircuitRejectedCount( );
+
+    /**
+     * Gives the number of configured questions not found in a form response
+     * 
+     * @return the number of missing questions
+     */
+    long getMissingQuestionCount( );
+
+    /**
+     * Gives the number of questions found with several responses
+     * 
+     * @return the number of errors
+     */
+    long getMultipleResponseCount( );
+
+    /**
+     * Gives the number of executions on a resource which is not a form response
+     * 
+     * @return the number of executions
+     */
+    long getNonFormResourceCount( );
+
+    /**
+     * Resets all the metrics
+     */
+    void reset( );
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics;
+
+/**
+ * 
+ * This class represents the state of a timer at a given time. The durations are in microseconds
+ *
+ */
+public class TipiFormsTimerSnapshot
+{
+    private static final double PERCENTILE_50 = 50.0;
+    private static final double PERCENTILE_95 = 95.0;
+    private static final double PERCENTILE_99 = 99.0;
+
+    private final long _lCount;
+    private final long _lMeanMicros;
+    private final long _lP50Micros;
+    private final long _lP95Micros;
+    private final long _lP99Micros;
+    private final long _lMaxMicros;
+
+    /**
+     * Constructor
+     * 
+     * @param histogram
+     *            the histogram of the timer
+     */
+    public TipiFormsTimerSnapshot( TipiFormsLatencyHistogram histogram )
+    {
+        _lCount = histogram.getCount( );
+        _lMeanMicros = histogram.getMeanMicros( );
+        _lP50Micros = histogram.getPercentileMicros( PERCENTILE_50 );
+        _lP95Micros = histogram.getPercentileMicros( PERCENTILE_95 );
+        _lP99Micros = histogram.getPercentileMicros( PERCENTILE_99 );
+        _lMaxMicros = histogram.getMaxMicros( );
+    }
+
+    /**
+     * Gives the number of recorded durations
+     * 
+     * @return the number of durations
+     */
+    public long getCount( )
+    {
+        return _lCount;
+    }
+
+    /**
+     * Gives the mean duration
+     * 
+     * @return the mean duration
+     */
+    public long getMeanMicros( )
+    {
+        return _lMeanMicros;
+    }
+
+    /**
+     * Gives the median duration
+     * 
+     * @return the median duration
+     */
+    public long getP50Micros( )
+    {
+        return _lP50Micros;
+    }
+
+    /**
+     * Gives the 95th percentile of the durations
+     * 
+     * @return the 95th percentile
+     */
+    public long getP95Micros( )
+    {
+        return _lP95Micros;
+    }
+
+    /**
+     * Gives the 99th percentile of the durations
+     * 
+     * @return the 99th percentile
+     */
+    public long getP99Micros( )
+    {
+        return _lP99Micros;
+    }
+
+    /**
+     * Gives the maximum duration
+     * 
+     * @return the maximum duration
+     */
+    public long getMaxMicros( )
+    {
+        return _lMaxMicros;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+
+/**
+ * 
+ * This class is an index of the questions of a form. For each {@link TipiFormsQuestionRole}, it contains the eligible questions in the order of the form
+ * and sorted by title, so that the questions can be searched by title prefix without scanning the whole form
+ *
+ */
+public final class TipiFormsQuestionIndex implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private final Map<Integer, TipiFormsQuestion> _mapQuestionsById = new HashMap<Integer, TipiFormsQuestion>( );
+    private final Map<TipiFormsQuestionRole, List<TipiFormsQuestion>> _mapQuestionsByRole = new EnumMap<TipiFormsQuestionRole, List<TipiFormsQuestion>>(
+            TipiFormsQuestionRole.class );
+    private final Map<TipiFormsQuestionRole, TreeMap<String, List<TipiFormsQuestion>>> _mapTitlesByRole = new EnumMap<TipiFormsQuestionRole, TreeMap<String, List<TipiFormsQuestion>>>(
+            TipiFormsQuestionRole.class );
+
+    /**
+     * Constructor
+     * 
+     * @param listQuestion
+     *            the questions of the form, in the order of the form
+     */
+    public TipiFormsQuestionIndex( List<TipiFormsQuestion> listQuestion )
+    {
+        for ( TipiFormsQuestionRole role : TipiFormsQuestionRole.values( ) )
+        {
+            _mapQuestionsByRole.put( role, new ArrayList<TipiFormsQuestion>( ) );
+            _mapTitlesByRole.put( role, new TreeMap<String, List<TipiFormsQuestion>>( ) );
+        }
+
+        for ( TipiFormsQuestion question : listQuestion )
+        {
+            _mapQuestionsById.put( question.getIdQuestion( ), question );
+
+            for ( TipiFormsQuestionRole role : TipiFormsQuestionRole.values( ) )
+            {
+                if ( role.isEligible( question ) )
+                {
+                    addToRole( role, question );
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the specified question to the specified role
+     * 
+     * @param role
+     *            the role
+     * @param question
+     *            the question
+     */
+    private void addToRole( TipiFormsQuestionRole role, TipiFormsQuestion question )
+    {
+        _mapQuestionsByRole.get( role ).add( question );
+
+        TreeMap<String, List<TipiFormsQuestion>> mapTitles = _mapTitlesByRole.get( role );
+        String strKey = normalize( question.getTitle( ) );
+        List<TipiFormsQuestion> listQuestion = mapTitles.get( strKey );
+
+        if ( listQuestion == null )
+        {
+            listQuestion = new ArrayList<TipiFormsQuestion>( );
+            mapTitles.put( strKey, listQuestion );
+        }
+
+        listQuestion.add( question );
+    }
+
+    /**
+     * Gives the question with the specified id
+     * 
+     * @param nIdQuestion
+     *            the question id
+     * @return the question, or {@code null} if the question is not in the form
+     */
+    public TipiFormsQuestion getQuestion( int nIdQuestion )
+    {
+        return _mapQuestionsById.get( nIdQuestion );
+    }
+
+    /**
+     * Tests whether the specified question is eligible for the specified role
+     * 
+     * @param role
+     *            the role
+     * @param nIdQuestion
+     *            the question id
+     * @return {@code true} if the question is eligible, {@code false} otherwise
+     */
+    public boolean isEligible( TipiFormsQuestionRole role, int nIdQuestion )
+    {
+        TipiFormsQuestion question = _mapQuestionsById.get( nIdQuestion );
+
+        return question != null && role.isEligible( question );
+    }
+
+    /**
+     * Searches the questions eligible for the specified role whose title starts with the specified prefix. Without prefix, the questions are given in the
+     * order of the form, otherwise they are sorted by title
+     * 
+     * @param role
+     *            the role
+     * @param strPrefix
+     *            the prefix, case and accent insensitive. May be blank
+     * @param nPageIndex
+     *            the page index, starting at 1
+     * @param nPageSize
+     *            the page size
+     * @return the requested page
+     */
+    public TipiFormsQuestionPage search( TipiFormsQuestionRole role, String strPrefix, int nPageIndex, int nPageSize )
+    {
+        List<TipiFormsQuestion> listMatching;
+
+        if ( StringUtils.isBlank( strPrefix ) )
+        {
+            listMatching = _mapQuestionsByRole.get( role );
+        }
+        else
+        {
+            String strKey = normalize( strPrefix );
+            NavigableMap<String, List<TipiFormsQuestion>> mapMatching = _mapTitlesByRole.get( role ).subMap( strKey, true, strKey + MAX_CHAR, false );
+            listMatching = new ArrayList<TipiFormsQuestion>( );
+
+            for ( List<TipiFormsQuestion> listQuestion : mapMatching.values( ) )
+            {
+                listMatching.addAll( listQuestion );
+            }
+        }
+
+        int nSafePageIndex = Math.max( 1, nPageIndex );
+        int nSafePageSize = Math.max( 1, nPageSize );
+        long lStart = (long) ( nSafePageIndex - 1 ) * nSafePageSize;
+        List<TipiFormsQuestion> listPage = Collections.emptyList( );
+
+        if ( lStart < listMatching.size( ) )
+        {
+            listPage = new ArrayList<TipiFormsQuestion>( listMatching.subList( (int) lStart, (int) Math.min( lStart + nSafePageSize, listMatching.size( ) ) ) );
+        }
+
+        return new TipiFormsQuestionPage( listPage, listMatching.size( ), nSafePageIndex, nSafePageSize );
+    }
+
+    /**
+     * Normalizes the specified text for the search
+     * 
+     * @param strText
+     *            the text
+     * @return the normalized text
+     */
+    private static String normalize( String strText )
+    {
+        return StringUtils.stripAccents( StringUtils.defaultString( strText ).trim( ) ).toLowerCase( Locale.ROOT );
+    }
+}
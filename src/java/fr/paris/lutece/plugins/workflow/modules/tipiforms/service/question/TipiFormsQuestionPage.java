@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+
+/**
+ * 
+ * This class represents a page of questions returned by a search in {@link TipiFormsQuestionIndex}
+ *
+ */
+public class TipiFormsQuestionPage
+{
+    private final List<TipiFormsQuestion> _listQuestion;
+    private final int _nTotal;
+    private final int _nPageIndex;
+    private final int _nPageSize;
+
+    /**
+     * Constructor
+     * 
+     * @param listQuestion
+     *            the questions of the page
+     * @param nTotal
+     *            the total number of questions matching the search
+     * @param nPageIndex
+     *            the page index, starting at 1
+     * @param nPageSize
+     *            the page size
+     */
+    public TipiFormsQuestionPage( List<TipiFormsQuestion> listQuestion, int nTotal, int nPageIndex, int nPageSize )
+    {
+        _listQuestion = listQuestion;
+        _nTotal = nTotal;
+        _nPageIndex = nPageIndex;
+        _nPageSize = nPageSize;
+    }
+
+    /**
+     * Gives the questions of the page
+     * 
+     * @return the questions
+     */
+    public List<TipiFormsQuestion> getQuestions( )
+    {
+        return _listQuestion;
+    }
+
+    /**
+     * Gives the total number of questions matching the search
+     * 
+     * @return the total
+     */
+    public int getTotal( )
+    {
+        return _nTotal;
+    }
+
+    /**
+     * Gives the page index
+     * 
+     * @return the page index, starting at 1
+     */
+    public int getPageIndex( )
+    {
+        return _nPageIndex;
+    }
+
+    /**
+     * Gives the page size
+     * 
+     * @return the page size
+     */
+    public int getPageSize( )
+    {
+        return _nPageSize;
+    }
+
+    /**
+     * Tests whether there are questions after this page
+     * 
+     * @return {@code true} if there is a next page, {@code false} otherwise
+     */
+    public boolean hasNextPage( )
+    {
+        return (long) _nPageIndex * _nPageSize < _nTotal;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This enum represents the roles a question can have in the task configuration. Each role accepts the entry types defined in the property
+ * {@code workflow-tipiforms.question.entryTypes.<role>}. A role with no entry type defined accepts all the questions
+ *
+ */
+public enum TipiFormsQuestionRole
+{
+    REFDET( "refdet" ),
+    AMOUNT( "amount" ),
+    EMAIL( "email" );
+
+    private static final String PROPERTY_PREFIX_ENTRY_TYPES = "workflow-tipiforms.question.entryTypes.";
+    private static final String ENTRY_TYPE_SEPARATOR = ",";
+
+    private final String _strCode;
+
+    /**
+     * Constructor
+     * 
+     * @param strCode
+     *            the code of the role
+     */
+    TipiFormsQuestionRole( String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * Gives the code of the role
+     * 
+     * @return the code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Gives the role with the specified code
+     * 
+     * @param strCode
+     *            the code
+     * @return the role, or {@code null} if there is no role with this code
+     */
+    public static TipiFormsQuestionRole fromCode( String strCode )
+    {
+        for ( TipiFormsQuestionRole role : values( ) )
+        {
+            if ( role._strCode.equals( strCode ) )
+            {
+                return role;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Tests whether the specified question can have this role
+     * 
+     * @param question
+     *            the question
+     * @return {@code true} if the question is eligible, {@code false} otherwise
+     */
+    public boolean isEligible( TipiFormsQuestion question )
+    {
+        Set<String> setEntryTypes = findEntryTypes( );
+
+        return setEntryTypes.isEmpty( ) || setEntryTypes.contains( question.getEntryType( ) );
+    }
+
+    /**
+     * Finds the entry types accepted by this role
+     * 
+     * @return the entry types
+     */
+    private Set<String> findEntryTypes( )
+    {
+        Set<String> setEntryTypes = new HashSet<String>( );
+
+        for ( String strEntryType : StringUtils.split( AppPropertiesService.getProperty( PROPERTY_PREFIX_ENTRY_TYPES + _strCode, StringUtils.EMPTY ),
+                ENTRY_TYPE_SEPARATOR ) )
+        {
+            if ( StringUtils.isNotBlank( strEntryType ) )
+            {
+                setEntryTypes.add( strEntryType.trim( ) );
+            }
+        }
+
+        return setEntryTypes;
+    }
+}
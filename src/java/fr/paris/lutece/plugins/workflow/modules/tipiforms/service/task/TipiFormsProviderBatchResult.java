@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 
+ * This class represents the result of a batch execution of the task {@link TipiFormsProviderTask}. The results are given per resource history id
+ *
+ */
+public class TipiFormsProviderBatchResult
+{
+    private final List<Integer> _listIdResourceHistorySucceeded = new ArrayList<Integer>( );
+    private final Map<Integer, String> _mapFailures = new LinkedHashMap<Integer, String>( );
+
+    /**
+     * Records a success for the specified resource history
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     */
+    public void addSuccess( int nIdResourceHistory )
+    {
+        _listIdResourceHistorySucceeded.add( nIdResourceHistory );
+    }
+
+    /**
+     * Records a failure for the specified resource history
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param strMessage
+     *            the message explaining the failure
+     */
+    public void addFailure( int nIdResourceHistory, String strMessage )
+    {
+        _mapFailures.put( nIdResourceHistory, strMessage );
+    }
+
+    /**
+     * Gives the ids of the resource histories successfully processed
+     * 
+     * @return the ids
+     */
+    public List<Integer> getSucceeded( )
+    {
+        return _listIdResourceHistorySucceeded;
+    }
+
+    /**
+     * Gives the failures, mapped by resource history id
+     * 
+     * @return the failures
+     */
+    public Map<Integer, String> getFailures( )
+    {
+        return _mapFailures;
+    }
+
+    /**
+     * Tests whether at least one resource history has failed
+     * 
+     * @return {@code true} if there is a failure, {@code false} otherwise
+     */
+    public boolean hasFailures( )
+    {
+        return !_mapFailures.isEmpty( );
+    }
+}
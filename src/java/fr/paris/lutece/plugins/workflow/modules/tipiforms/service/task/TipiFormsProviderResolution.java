@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task;
+
+/**
+ * 
+ * This class represents the values resolved from a form response during one execution of the task {@link TipiFormsProviderTask}
+ *
+ */
+public final class TipiFormsProviderResolution
+{
+    private final String _strRefDet;
+    private final String _strAmount;
+    private final String _strEmail;
+
+    /**
+     * Constructor
+     * 
+     * @param strRefDet
+     *            the RefDet
+     * @param strAmount
+     *            the amount
+     * @param strEmail
+     *            the email
+     */
+    public TipiFormsProviderResolution( String strRefDet, String strAmount, String strEmail )
+    {
+        _strRefDet = strRefDet;
+        _strAmount = strAmount;
+        _strEmail = strEmail;
+    }
+
+    /**
+     * Gives the RefDet
+     * 
+     * @return the RefDet
+     */
+    public String getRefDet( )
+    {
+        return _strRefDet;
+    }
+
+    /**
+     * Gives the amount
+     * 
+     * @return the amount
+     */
+    public String getAmount( )
+    {
+        return _strAmount;
+    }
+
+    /**
+     * Gives the email
+     * 
+     * @return the email
+     */
+    public String getEmail( )
+    {
+        return _strEmail;
+    }
+}
@@ -33,30 +33,53 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
-import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
-import fr.paris.lutece.plugins.forms.business.FormQuestionResponseHome;
 import fr.paris.lutece.plugins.forms.business.FormResponse;
-import fr.paris.lutece.plugins.forms.business.FormResponseHome;
-import fr.paris.lutece.plugins.forms.business.Question;
-import fr.paris.lutece.plugins.genericattributes.business.Response;
-import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.plugins.workflow.modules.tipi.business.TipiRefDetHistory;
 import fr.paris.lutece.plugins.workflow.modules.tipi.service.ITipiRefDetHistoryService;
 import fr.paris.lutece.plugins.workflow.modules.tipi.service.ITipiService;
 import fr.paris.lutece.plugins.workflow.modules.tipi.service.task.AbstractTipiProviderTask;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.capture.TipiFormsCapture;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.dedup.TipiFormsProvisioning;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecution;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecutionDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValueDAO;
 import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
 import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.ITipiFormsProvisioningCallback;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill.TipiFormsBackfillService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.TipiFormsProvisioningExecutor;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCallThrottle;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitBreaker;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitOpenException;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture.TipiFormsCaptureService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup.TipiFormsProvisioningDedupService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction.TipiFormsExtractionPlanService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics.TipiFormsProviderMetrics;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing.TipiFormsSpan;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing.TipiFormsTracer;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceHistoryService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
  * 
@@ -68,13 +91,45 @@ public class TipiFormsProviderTask extends AbstractTipiProviderTask
     // Message
     private static final String MESSAGE_TASK_TITLE = "module.workflow.tipiforms.task_forms_provider_title";
 
+    // Properties
+    private static final String PROPERTY_BATCH_CHUNK_SIZE = "workflow-tipiforms.batch.chunkSize";
+
+    // Tracing
+    private static final String SPAN_PROVISION = "tipiforms.provision";
+    private static final String SPAN_RESOURCE_HISTORY_LOAD = "tipiforms.resourceHistory.load";
+    private static final String SPAN_CAPTURE_LOAD = "tipiforms.capture.load";
+    private static final String SPAN_CONFIG_LOAD = "tipiforms.config.load";
+    private static final String SPAN_FORM_RESPONSE_LOAD = "tipiforms.formResponse.load";
+    private static final String SPAN_VALUES_EXTRACT = "tipiforms.values.extract";
+    private static final String SPAN_DEDUP_CHECK = "tipiforms.dedup.check";
+    private static final String SPAN_TIPI_CALL = "tipiforms.tipi.call";
+    private static final String TAG_CAPTURED = "tipiforms.captured";
+    private static final String TAG_RESPONSE_VALUES = "tipiforms.response_values";
+    private static final String TAG_DUPLICATE_OF = "tipiforms.duplicate_of";
+
+    // Other constants
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+    private static final int ERROR_MESSAGE_MAX_LENGTH = 255;
+    private static final int PARALLEL_THRESHOLD = 8;
+    private static final int ID_QUESTION_NONE = -1;
+
     private final TaskTipiFormsProviderConfigDAO _taskTipiFormsProviderConfigDAO;
+    private final TipiFormsResponseValueDAO _tipiFormsResponseValueDAO;
+    private final TipiFormsProviderExecutionDAO _tipiFormsProviderExecutionDAO;
+    private final IResourceHistoryService _resourceHistoryService;
+    private final ITipiRefDetHistoryService _tipiRefDetHistoryService;
+    private final Map<Integer, TipiFormsProviderResolution> _mapPreparedResolution = new ConcurrentHashMap<Integer, TipiFormsProviderResolution>( );
+    private final Map<Integer, TipiFormsProviderResolution> _mapSentResolution = new ConcurrentHashMap<Integer, TipiFormsProviderResolution>( );
 
     /**
      * Constructor
      * 
      * @param taskTipiFormsProviderConfigDAO
      *            the configuration DAO
+     * @param tipiFormsResponseValueDAO
+     *            the response value DAO
+     * @param tipiFormsProviderExecutionDAO
+     *            the execution DAO
      * @param resourceHistoryService
      *            the resource history service
      * @param tipiService
@@ -83,12 +138,17 @@ public class TipiFormsProviderTask extends AbstractTipiProviderTask
      *            the RefDet history service
      */
     @Inject
-    public TipiFormsProviderTask( TaskTipiFormsProviderConfigDAO taskTipiFormsProviderConfigDAO, IResourceHistoryService resourceHistoryService,
-            ITipiService tipiService, ITipiRefDetHistoryService tipiRefDetHistoryService )
+    public TipiFormsProviderTask( TaskTipiFormsProviderConfigDAO taskTipiFormsProviderConfigDAO, TipiFormsResponseValueDAO tipiFormsResponseValueDAO,
+            TipiFormsProviderExecutionDAO tipiFormsProviderExecutionDAO, IResourceHistoryService resourceHistoryService, ITipiService tipiService,
+            ITipiRefDetHistoryService tipiRefDetHistoryService )
     {
         super( resourceHistoryService, tipiService, tipiRefDetHistoryService );
 
         _taskTipiFormsProviderConfigDAO = taskTipiFormsProviderConfigDAO;
+        _tipiFormsResponseValueDAO = tipiFormsResponseValueDAO;
+        _tipiFormsProviderExecutionDAO = tipiFormsProviderExecutionDAO;
+        _resourceHistoryService = resourceHistoryService;
+        _tipiRefDetHistoryService = tipiRefDetHistoryService;
     }
 
     /**
@@ -100,39 +160,541 @@ public class TipiFormsProviderTask extends AbstractTipiProviderTask
         return I18nService.getLocalizedString( MESSAGE_TASK_TITLE, local );
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the asynchronous mode is enabled (see {@link TipiFormsProvisioningExecutor}), the provisioning is only submitted here. The request is not
+     * transmitted to the asynchronous provisioning because it may be recycled before the provisioning starts: the locale is taken from the request now when
+     * none is given, and the provisioning runs with a {@code null} request. In both modes, the outcome is recorded as a {@link TipiFormsProviderExecution}
+     * </p>
+     */
+    @Override
+    public void processTask( final int nIdResourceHistory, HttpServletRequest request, final Locale locale )
+    {
+        TipiFormsProvisioningExecutor executor = getExecutor( );
+
+        if ( executor == null )
+        {
+            ExecutionRecorder recorder = new ExecutionRecorder( null );
+
+            try
+            {
+                processTaskSynchronously( nIdResourceHistory, request, locale );
+            }
+            catch( RuntimeException e )
+            {
+                recorder.onFailure( nIdResourceHistory, e );
+                throw e;
+            }
+
+            recorder.onSuccess( nIdResourceHistory );
+
+            return;
+        }
+
+        createPendingExecution( nIdResourceHistory );
+
+        final Locale localeProvisioning = ( locale == null && request != null ) ? request.getLocale( ) : locale;
+
+        executor.submit( nIdResourceHistory, new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                processTaskSynchronously( nIdResourceHistory, null, localeProvisioning );
+            }
+        }, new ExecutionRecorder( null ) );
+    }
+
+    /**
+     * Executes the task in the current thread. The values are resolved first, then the TIPI call is performed through the {@link TipiFormsCircuitBreaker}
+     * within its deadline. When the replayed executions are detected (see {@link TipiFormsProvisioningDedupService}), the TIPI call is skipped if it replays a
+     * previous successful one: the RefDet data of the replayed execution is copied to the resource history instead. The TIPI call is skipped the same way for a
+     * form response already provisioned by a backfill (see {@link TipiFormsBackfillService}). The skipped execution is recorded as a
+     * {@link TipiFormsProviderExecution}
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     * @throws TipiFormsCircuitOpenException
+     *             if the TIPI call is not performed because the TIPI service is unhealthy
+     */
+    private void processTaskSynchronously( int nIdResourceHistory, HttpServletRequest request, Locale locale )
+    {
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startTrace( SPAN_PROVISION, nIdResourceHistory, getId( ) );
+
+        try
+        {
+            provision( nIdResourceHistory, request, locale, span );
+        }
+        catch( RuntimeException e )
+        {
+            span.error( e );
+            throw e;
+        }
+        finally
+        {
+            span.end( );
+        }
+    }
+
+    /**
+     * Provisions the TIPI service for the specified resource history
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     * @param span
+     *            the span of the provisioning
+     */
+    private void provision( int nIdResourceHistory, HttpServletRequest request, Locale locale, TipiFormsSpan span )
+    {
+        ResourceHistory resourceHistory = findResourceHistory( nIdResourceHistory );
+        TipiFormsTracer.getInstance( ).tagResource( resourceHistory.getIdResource( ) );
+        TipiFormsProviderResolution resolution = _mapPreparedResolution.get( nIdResourceHistory );
+
+        if ( resolution == null )
+        {
+            resolution = createResolution( resourceHistory );
+            _mapPreparedResolution.put( nIdResourceHistory, resolution );
+        }
+
+        TipiFormsProvisioningDedupService dedupService = getDedupService( );
+
+        if ( dedupService == null )
+        {
+            callTipi( nIdResourceHistory, request, locale );
+            _mapSentResolution.put( nIdResourceHistory, resolution );
+
+            return;
+        }
+
+        String strProvisioningKey = TipiFormsProvisioningDedupService.buildProvisioningKey( resolution.getRefDet( ), resolution.getAmount( ),
+                resolution.getEmail( ) );
+        TipiFormsSpan spanDedup = TipiFormsTracer.getInstance( ).startSpan( SPAN_DEDUP_CHECK );
+        TipiFormsProvisioning provisioning;
+
+        try
+        {
+            // the wait for a provisioning in progress has its own budget, so that it does not shorten the one of the TIPI call
+            provisioning = dedupService.start( getId( ), resourceHistory.getIdResource( ), strProvisioningKey, getCircuitBreaker( ).startDeadline( ) );
+        }
+        catch( RuntimeException e )
+        {
+            // the TIPI service is not called, so the resolution is not used
+            _mapPreparedResolution.remove( nIdResourceHistory );
+            throw e;
+        }
+        finally
+        {
+            spanDedup.end( );
+        }
+
+        if ( provisioning != null )
+        {
+            try
+            {
+                if ( copyRefDetHistory( provisioning.getIdHistory( ), nIdResourceHistory ) )
+                {
+                    span.tag( TAG_DUPLICATE_OF, Integer.toString( provisioning.getIdHistory( ) ) );
+                    _mapPreparedResolution.remove( nIdResourceHistory );
+                    createDuplicateExecution( nIdResourceHistory, provisioning, resolution );
+                    dedupService.release( getId( ), resourceHistory.getIdResource( ) );
+
+                    return;
+                }
+            }
+            catch( RuntimeException e )
+            {
+                _mapPreparedResolution.remove( nIdResourceHistory );
+                dedupService.release( getId( ), resourceHistory.getIdResource( ) );
+                throw e;
+            }
+        }
+
+        boolean bSuccess = false;
+
+        try
+        {
+            callTipi( nIdResourceHistory, request, locale );
+            _mapSentResolution.put( nIdResourceHistory, resolution );
+            bSuccess = true;
+        }
+        finally
+        {
+            dedupService.end( getId( ), resourceHistory.getIdResource( ), strProvisioningKey, nIdResourceHistory, bSuccess,
+                    TipiFormsBackfillService.isBackfillHistory( resourceHistory ) );
+        }
+    }
+
+    /**
+     * Serves the result of a replayed provisioning: the RefDet data recorded for the original resource history is copied to the specified resource
+     * history
+     * 
+     * @param nIdOriginalHistory
+     *            the id of the resource history of the replayed provisioning
+     * @param nIdResourceHistory
+     *            the id of the resource history of the replay
+     * @return {@code true} if the RefDet data has been copied, {@code false} if the original RefDet data no longer exists
+     */
+    private boolean copyRefDetHistory( int nIdOriginalHistory, int nIdResourceHistory )
+    {
+        TipiRefDetHistory refDetHistory = _tipiRefDetHistoryService.findByPrimaryKey( nIdOriginalHistory );
+
+        if ( refDetHistory == null )
+        {
+            return false;
+        }
+
+        refDetHistory.setIdHistory( nIdResourceHistory );
+        _tipiRefDetHistoryService.create( refDetHistory );
+
+        return true;
+    }
+
+    /**
+     * Performs the TIPI call of the parent task with the prepared resolution, through the {@link TipiFormsCircuitBreaker}. The deadline of the call starts
+     * here, so that the loads and the wait for a provisioning in progress are not counted as a slow TIPI call
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     */
+    private void callTipi( final int nIdResourceHistory, final HttpServletRequest request, final Locale locale )
+    {
+        TipiFormsCircuitBreaker circuitBreaker = getCircuitBreaker( );
+        long lDeadlineNanos = circuitBreaker.startDeadline( );
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_TIPI_CALL );
+
+        try
+        {
+            circuitBreaker.execute( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    performTipiCall( nIdResourceHistory, request, locale );
+                }
+            }, lDeadlineNanos );
+        }
+        catch( RuntimeException e )
+        {
+            span.error( e );
+            throw e;
+        }
+        finally
+        {
+            span.end( );
+            _mapPreparedResolution.remove( nIdResourceHistory );
+        }
+    }
+
+    /**
+     * Performs the TIPI call of the parent task, which reads the values to transmit through the {@code provide*} methods. These methods take the values from
+     * the resource history only, so the parent task is given a {@code null} request outside of the HTTP request processing
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     */
+    void performTipiCall( int nIdResourceHistory, HttpServletRequest request, Locale locale )
+    {
+        super.processTask( nIdResourceHistory, request, locale );
+    }
+
+    /**
+     * Gives the executor of the asynchronous provisionings
+     * 
+     * @return the executor, or {@code null} if the provisionings are performed in the calling thread
+     */
+    TipiFormsProvisioningExecutor getExecutor( )
+    {
+        return TipiFormsProvisioningExecutor.isEnabled( ) ? TipiFormsProvisioningExecutor.getInstance( ) : null;
+    }
+
+    /**
+     * Gives the circuit breaker protecting the TIPI calls
+     * 
+     * @return the circuit breaker
+     */
+    TipiFormsCircuitBreaker getCircuitBreaker( )
+    {
+        return TipiFormsCircuitBreaker.getInstance( );
+    }
+
+    /**
+     * Gives the service detecting the replayed executions and the resources already provisioned by a backfill
+     * 
+     * @return the service, or {@code null} if every execution calls the TIPI service
+     */
+    TipiFormsProvisioningDedupService getDedupService( )
+    {
+        return TipiFormsProvisioningDedupService.getInstance( );
+    }
+
+    /**
+     * Gives the service of the values captured at submission time
+     * 
+     * @return the service, or {@code null} if the values are not captured
+     */
+    TipiFormsCaptureService getCaptureService( )
+    {
+        return TipiFormsCaptureService.isEnabled( ) ? TipiFormsCaptureService.getInstance( ) : null;
+    }
+
+    /**
+     * Records an execution skipped because it replays the specified provisioning, whose RefDet data has been served. The replayed provisioning sent the
+     * same values, which are recorded with the execution
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param provisioning
+     *            the replayed provisioning
+     * @param resolution
+     *            the values of the replay
+     */
+    private void createDuplicateExecution( int nIdResourceHistory, TipiFormsProvisioning provisioning, TipiFormsProviderResolution resolution )
+    {
+        _tipiFormsProviderExecutionDAO.delete( nIdResourceHistory, getId( ) );
+
+        TipiFormsProviderExecution execution = new TipiFormsProviderExecution( );
+        execution.setIdHistory( nIdResourceHistory );
+        execution.setIdTask( getId( ) );
+        execution.setStatus( TipiFormsProviderExecution.STATUS_DUPLICATE );
+        execution.setErrorMessage( "Already provisioned by the resource history " + provisioning.getIdHistory( ) );
+        execution.setDateExecution( new Timestamp( System.currentTimeMillis( ) ) );
+        setSentValues( execution, resolution );
+
+        _tipiFormsProviderExecutionDAO.insert( execution );
+    }
+
+    /**
+     * Sets the values sent to the TIPI service to the specified execution. The amount is the one given by {@link #provideAmount(ResourceHistory)}
+     * 
+     * @param execution
+     *            the execution
+     * @param resolution
+     *            the values sent
+     */
+    private static void setSentValues( TipiFormsProviderExecution execution, TipiFormsProviderResolution resolution )
+    {
+        execution.setRefDet( resolution.getRefDet( ) );
+        execution.setAmount( Integer.toString( NumberUtils.toInt( resolution.getAmount( ) ) ) );
+        execution.setEmail( resolution.getEmail( ) );
+    }
+
+    /**
+     * Records a pending execution for the specified resource history
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     */
+    private void createPendingExecution( int nIdResourceHistory )
+    {
+        _tipiFormsProviderExecutionDAO.delete( nIdResourceHistory, getId( ) );
+
+        TipiFormsProviderExecution execution = new TipiFormsProviderExecution( );
+        execution.setIdHistory( nIdResourceHistory );
+        execution.setIdTask( getId( ) );
+        execution.setStatus( TipiFormsProviderExecution.STATUS_PENDING );
+        execution.setDateExecution( new Timestamp( System.currentTimeMillis( ) ) );
+
+        _tipiFormsProviderExecutionDAO.insert( execution );
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected String provideRefDet( ResourceHistory resourceHistory )
     {
-        FormResponse formResponse = findFormResponseFrom( resourceHistory );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            return resolve( resourceHistory ).getRefDet( );
+        }
+        finally
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordProvideRefDet( System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int provideAmount( ResourceHistory resourceHistory )
+    {
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            return NumberUtils.toInt( resolve( resourceHistory ).getAmount( ) );
+        }
+        finally
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordProvideAmount( System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String provideEmail( ResourceHistory resourceHistory )
+    {
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            return resolve( resourceHistory ).getEmail( );
+        }
+        finally
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordProvideEmail( System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * Resolves the values of the form response for the specified resource history. The values are resolved once per execution of the task, before the
+     * TIPI call, and then reused by the {@code provide*} methods. They are looked up by resource history because several resource histories may be
+     * provisioned at the same time by this task
+     * 
+     * @param resourceHistory
+     *            the resource history
+     * @return the resolution
+     */
+    private TipiFormsProviderResolution resolve( ResourceHistory resourceHistory )
+    {
+        TipiFormsProviderResolution resolution = _mapPreparedResolution.get( resourceHistory.getId( ) );
+
+        return ( resolution != null ) ? resolution : createResolution( resourceHistory );
+    }
+
+    /**
+     * Creates the resolution for the specified resource history. The values captured at submission time are used when available (see
+     * {@link TipiFormsCaptureService}): only the values which are not captured are read from the form response
+     * 
+     * @param resourceHistory
+     *            the resource history
+     * @return the created resolution
+     */
+    private TipiFormsProviderResolution createResolution( ResourceHistory resourceHistory )
+    {
+        int nIdFormResponse = findFormResponseIdFrom( resourceHistory );
+        TipiFormsCaptureService captureService = getCaptureService( );
+        TipiFormsCapture capture = null;
+
+        if ( captureService != null )
+        {
+            TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_CAPTURE_LOAD );
+
+            try
+            {
+                capture = captureService.find( nIdFormResponse, getId( ) );
+            }
+            finally
+            {
+                span.tag( TAG_CAPTURED, Boolean.toString( capture != null ) ).end( );
+            }
+
+            if ( capture != null && capture.isComplete( ) )
+            {
+                return new TipiFormsProviderResolution( capture.getRefDet( ), capture.getAmount( ), capture.getEmail( ) );
+            }
+        }
+
         TaskTipiFormsProviderConfig config = findConfig( );
 
-        return findResponseValue( formResponse, config.getIdRefDetQuestion( ) );
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_FORM_RESPONSE_LOAD );
+        long lStart = System.nanoTime( );
+        List<TipiFormsResponseValue> listResponseValue;
+
+        try
+        {
+            // only the values which are not captured anymore are loaded
+            listResponseValue = _tipiFormsResponseValueDAO.selectByFormResponse( nIdFormResponse,
+                    ( capture == null || capture.getRefDet( ) == null ) ? config.getIdRefDetQuestion( ) : ID_QUESTION_NONE,
+                    ( capture == null || capture.getAmount( ) == null ) ? config.getIdAmountQuestion( ) : ID_QUESTION_NONE,
+                    ( capture == null || capture.getEmail( ) == null ) ? config.getIdEmailQuestion( ) : ID_QUESTION_NONE );
+        }
+        finally
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordQuestionResponseLoad( System.nanoTime( ) - lStart );
+            span.end( );
+        }
+
+        TipiFormsProviderResolution resolution = createResolution( resourceHistory, config, listResponseValue );
+
+        if ( capture == null )
+        {
+            return resolution;
+        }
+
+        return new TipiFormsProviderResolution( ( capture.getRefDet( ) != null ) ? capture.getRefDet( ) : resolution.getRefDet( ),
+                ( capture.getAmount( ) != null ) ? capture.getAmount( ) : resolution.getAmount( ),
+                ( capture.getEmail( ) != null ) ? capture.getEmail( ) : resolution.getEmail( ) );
     }
 
     /**
-     * Finds a form response from the specified resource history
+     * Creates the resolution for the specified resource history from the specified response values
      * 
      * @param resourceHistory
      *            the resource history
-     * @return the form response
+     * @param config
+     *            the configuration of the task
+     * @param listResponseValue
+     *            the response values of the form response
+     * @return the created resolution
      */
-    private FormResponse findFormResponseFrom( ResourceHistory resourceHistory )
+    private TipiFormsProviderResolution createResolution( ResourceHistory resourceHistory, TaskTipiFormsProviderConfig config,
+            List<TipiFormsResponseValue> listResponseValue )
     {
-        FormResponse formResponse = null;
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_VALUES_EXTRACT );
+        Map<Integer, String> mapValues;
 
-        if ( FormResponse.RESOURCE_TYPE.equals( resourceHistory.getResourceType( ) ) )
+        try
         {
-            formResponse = FormResponseHome.findByPrimaryKey( resourceHistory.getIdResource( ) );
+            mapValues = TipiFormsExtractionPlanService.getInstance( ).getPlan( config ).extractValues( listResponseValue );
         }
-        else
+        finally
         {
+            span.tag( TAG_RESPONSE_VALUES, Integer.toString( listResponseValue.size( ) ) ).end( );
+        }
+
+        return new TipiFormsProviderResolution( findResponseValue( mapValues, config.getIdRefDetQuestion( ) ),
+                findResponseValue( mapValues, config.getIdAmountQuestion( ) ), findResponseValue( mapValues, config.getIdEmailQuestion( ) ) );
+    }
+
+    /**
+     * Finds the form response id from the specified resource history
+     * 
+     * @param resourceHistory
+     *            the resource history
+     * @return the form response id
+     */
+    private int findFormResponseIdFrom( ResourceHistory resourceHistory )
+    {
+        if ( !FormResponse.RESOURCE_TYPE.equals( resourceHistory.getResourceType( ) ) )
+        {
+            TipiFormsProviderMetrics.getInstance( ).incrementNonFormResource( );
             throw new AppException( "This task must be used with a form" );
         }
 
-        return formResponse;
+        return resourceHistory.getIdResource( );
     }
 
     /**
@@ -142,72 +704,299 @@ public class TipiFormsProviderTask extends AbstractTipiProviderTask
      */
     private TaskTipiFormsProviderConfig findConfig( )
     {
-        return _taskTipiFormsProviderConfigDAO.load( getId( ) );
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_CONFIG_LOAD );
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            return _taskTipiFormsProviderConfigDAO.load( getId( ) );
+        }
+        finally
+        {
+            TipiFormsProviderMetrics.getInstance( ).recordConfigLoad( System.nanoTime( ) - lStart );
+            span.end( );
+        }
+    }
+
+    /**
+     * Finds the specified resource history
+     * 
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @return the resource history
+     */
+    private ResourceHistory findResourceHistory( int nIdResourceHistory )
+    {
+        TipiFormsSpan span = TipiFormsTracer.getInstance( ).startSpan( SPAN_RESOURCE_HISTORY_LOAD );
+
+        try
+        {
+            return _resourceHistoryService.findByPrimaryKey( nIdResourceHistory );
+        }
+        finally
+        {
+            span.end( );
+        }
     }
 
     /**
-     * Finds the response value in the specified form response by using the specified question id
+     * Finds the response value for the specified question id among the specified response values
      * 
-     * @param formResponse
-     *            the form response
+     * @param mapValues
+     *            the response values, mapped by question id
      * @param nIdQuestion
      *            the question id
      * @return the response value
      */
-    private String findResponseValue( FormResponse formResponse, int nIdQuestion )
+    private String findResponseValue( Map<Integer, String> mapValues, int nIdQuestion )
     {
-        String strValue = StringUtils.EMPTY;
-        boolean bFound = false;
+        if ( !mapValues.containsKey( nIdQuestion ) )
+        {
+            TipiFormsProviderMetrics.getInstance( ).incrementMissingQuestion( );
+            throw new AppException( "The question with the following id does not exist : " + nIdQuestion );
+        }
 
-        for ( FormQuestionResponse formQuestionResponse : FormQuestionResponseHome.getFormQuestionResponseListByFormResponse( formResponse.getId( ) ) )
+        return mapValues.get( nIdQuestion );
+    }
+
+    /**
+     * Executes the task on the specified resource histories. The configuration is loaded once and the response values are loaded for several resources at a
+     * time, by chunks whose size is defined by the property {@value #PROPERTY_BATCH_CHUNK_SIZE}
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param request
+     *            the request
+     * @param locale
+     *            the locale
+     * @return the result of the execution for each resource history
+     */
+    public TipiFormsProviderBatchResult processTasks( List<ResourceHistory> listResourceHistory, HttpServletRequest request, Locale locale )
+    {
+        final TipiFormsProviderBatchResult result = new TipiFormsProviderBatchResult( );
+
+        processTasks( listResourceHistory, request, locale, null, null, new ITipiFormsProvisioningCallback( )
         {
-            Question question = formQuestionResponse.getQuestion( );
+            @Override
+            public void onSuccess( int nIdResourceHistory )
+            {
+                result.addSuccess( nIdResourceHistory );
+            }
 
-            if ( question.getId( ) == nIdQuestion )
+            @Override
+            public void onFailure( int nIdResourceHistory, Exception exception )
             {
-                List<Response> listResponse = formQuestionResponse.getEntryResponse( );
+                result.addFailure( nIdResourceHistory, exception.getMessage( ) );
+            }
+        } );
 
-                if ( listResponse.size( ) > 1 )
-                {
-                    throw new AppException( "The question contains several responses !" );
-                }
+        return result;
+    }
+
+    /**
+     * Executes the task on the specified resource histories in parallel, by chunks as {@link #processTasks(List, HttpServletRequest, Locale)}. The values
+     * of each chunk are extracted on the specified pool, then the TIPI calls are performed on the same pool at the rate allowed by the specified throttle
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param locale
+     *            the locale
+     * @param pool
+     *            the pool performing the extractions and the TIPI calls
+     * @param throttle
+     *            the throttle of the TIPI calls
+     * @param callback
+     *            the callback notified of the outcome of each resource history, from the threads of the pool
+     */
+    public void processTasks( List<ResourceHistory> listResourceHistory, Locale locale, ForkJoinPool pool, TipiFormsCallThrottle throttle,
+            ITipiFormsProvisioningCallback callback )
+    {
+        processTasks( listResourceHistory, null, locale, pool, throttle, callback );
+    }
+
+    /**
+     * Executes the task on the specified resource histories, by chunks
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     * @param pool
+     *            the pool processing the resource histories of a chunk in parallel, or {@code null} to process them in the current thread
+     * @param throttle
+     *            the throttle of the TIPI calls, or {@code null} for no throttling
+     * @param callback
+     *            the callback notified of the outcome of each resource history
+     */
+    private void processTasks( List<ResourceHistory> listResourceHistory, HttpServletRequest request, Locale locale, ForkJoinPool pool,
+            TipiFormsCallThrottle throttle, ITipiFormsProvisioningCallback callback )
+    {
+        TaskTipiFormsProviderConfig config = findConfig( );
+        int nChunkSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_CHUNK_SIZE, DEFAULT_BATCH_CHUNK_SIZE ) );
+        ITipiFormsProvisioningCallback recorder = new ExecutionRecorder( callback );
+
+        for ( int nStart = 0; nStart < listResourceHistory.size( ); nStart += nChunkSize )
+        {
+            List<ResourceHistory> listChunk = listResourceHistory.subList( nStart, Math.min( nStart + nChunkSize, listResourceHistory.size( ) ) );
+
+            prepareResolutions( listChunk, config, pool, recorder );
+            processPreparedResolutions( listChunk, request, locale, pool, throttle, recorder );
+        }
+    }
+
+    /**
+     * Prepares the resolutions of the specified resource histories with one query for all of them
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param config
+     *            the configuration of the task
+     * @param pool
+     *            the pool extracting the values in parallel, or {@code null} to extract them in the current thread
+     * @param callback
+     *            the callback notified of the failures
+     */
+    private void prepareResolutions( List<ResourceHistory> listResourceHistory, final TaskTipiFormsProviderConfig config, ForkJoinPool pool,
+            final ITipiFormsProvisioningCallback callback )
+    {
+        List<ResourceHistory> listFormResourceHistory = new ArrayList<ResourceHistory>( );
+        List<Integer> listIdFormResponse = new ArrayList<Integer>( );
 
-     
-               strValue= EntryTypeServiceManager.getEntryTypeService( question.getEntry( ) ).getResponseValueForExport( question.getEntry( ), null, listResponse.get( 0 ), Locale.FRENCH );
-                bFound = true;
+        for ( ResourceHistory resourceHistory : listResourceHistory )
+        {
+            try
+            {
+                listIdFormResponse.add( findFormResponseIdFrom( resourceHistory ) );
+                listFormResourceHistory.add( resourceHistory );
+            }
+            catch( AppException e )
+            {
+                callback.onFailure( resourceHistory.getId( ), e );
             }
         }
 
-        if ( !bFound )
+        if ( listIdFormResponse.isEmpty( ) )
         {
-            throw new AppException( "The question with the following id does not exist : " + nIdQuestion );
+            return;
+        }
+
+        final Map<Integer, List<TipiFormsResponseValue>> mapResponseValues = new HashMap<Integer, List<TipiFormsResponseValue>>( );
+
+        long lStart = System.nanoTime( );
+        List<TipiFormsResponseValue> listAllResponseValue = _tipiFormsResponseValueDAO.selectByFormResponseList( listIdFormResponse,
+                config.getIdRefDetQuestion( ), config.getIdAmountQuestion( ), config.getIdEmailQuestion( ) );
+        TipiFormsProviderMetrics.getInstance( ).recordQuestionResponseLoad( System.nanoTime( ) - lStart );
+
+        for ( TipiFormsResponseValue responseValue : listAllResponseValue )
+        {
+            List<TipiFormsResponseValue> listResponseValue = mapResponseValues.get( responseValue.getIdFormResponse( ) );
+
+            if ( listResponseValue == null )
+            {
+                listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+                mapResponseValues.put( responseValue.getIdFormResponse( ), listResponseValue );
+            }
+
+            listResponseValue.add( responseValue );
         }
 
-        return strValue;
+        forEach( listFormResourceHistory, pool, new IResourceHistoryVisitor( )
+        {
+            @Override
+            public void visit( ResourceHistory resourceHistory )
+            {
+                List<TipiFormsResponseValue> listResponseValue = mapResponseValues.get( resourceHistory.getIdResource( ) );
+
+                try
+                {
+                    _mapPreparedResolution.put( resourceHistory.getId( ), createResolution( resourceHistory, config,
+                            ( listResponseValue != null ) ? listResponseValue : new ArrayList<TipiFormsResponseValue>( ) ) );
+                }
+                catch( AppException e )
+                {
+                    callback.onFailure( resourceHistory.getId( ), e );
+                }
+            }
+        } );
     }
 
     /**
-     * {@inheritDoc}
+     * Executes the task on the specified resource histories whose resolution has been prepared
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param request
+     *            the request, or {@code null} for an asynchronous provisioning, a batch or a backfill
+     * @param locale
+     *            the locale
+     * @param pool
+     *            the pool performing the TIPI calls in parallel, or {@code null} to perform them in the current thread
+     * @param throttle
+     *            the throttle of the TIPI calls, or {@code null} for no throttling
+     * @param callback
+     *            the callback notified of the successes and the failures
      */
-    @Override
-    protected int provideAmount( ResourceHistory resourceHistory )
+    private void processPreparedResolutions( List<ResourceHistory> listResourceHistory, final HttpServletRequest request, final Locale locale,
+            ForkJoinPool pool, final TipiFormsCallThrottle throttle, final ITipiFormsProvisioningCallback callback )
     {
-        FormResponse formResponse = findFormResponseFrom( resourceHistory );
-        TaskTipiFormsProviderConfig config = findConfig( );
+        forEach( listResourceHistory, pool, new IResourceHistoryVisitor( )
+        {
+            @Override
+            public void visit( ResourceHistory resourceHistory )
+            {
+                if ( !_mapPreparedResolution.containsKey( resourceHistory.getId( ) ) )
+                {
+                    return;
+                }
 
-        return NumberUtils.toInt( findResponseValue( formResponse, config.getIdAmountQuestion( ) ) );
+                try
+                {
+                    if ( throttle != null )
+                    {
+                        throttle.acquire( );
+                    }
+
+                    processTaskSynchronously( resourceHistory.getId( ), request, locale );
+                    callback.onSuccess( resourceHistory.getId( ) );
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error while providing the TIPI data of the resource history " + resourceHistory.getId( ), e );
+                    callback.onFailure( resourceHistory.getId( ), e );
+                }
+                finally
+                {
+                    _mapPreparedResolution.remove( resourceHistory.getId( ) );
+                }
+            }
+        } );
     }
 
     /**
-     * {@inheritDoc}
+     * Visits the specified resource histories, in parallel on the specified pool if any
+     * 
+     * @param listResourceHistory
+     *            the resource histories
+     * @param pool
+     *            the pool, or {@code null} to visit the resource histories in the current thread
+     * @param visitor
+     *            the visitor
      */
-    @Override
-    protected String provideEmail( ResourceHistory resourceHistory )
+    private static void forEach( List<ResourceHistory> listResourceHistory, ForkJoinPool pool, IResourceHistoryVisitor visitor )
     {
-        FormResponse formResponse = findFormResponseFrom( resourceHistory );
-        TaskTipiFormsProviderConfig config = findConfig( );
-
-        return findResponseValue( formResponse, config.getIdEmailQuestion( ) );
+        if ( pool == null )
+        {
+            for ( ResourceHistory resourceHistory : listResourceHistory )
+            {
+                visitor.visit( resourceHistory );
+            }
+        }
+        else
+        {
+            pool.invoke( new ParallelVisit( listResourceHistory, visitor ) );
+        }
     }
 
     /**
@@ -217,5 +1006,163 @@ public class TipiFormsProviderTask extends AbstractTipiProviderTask
     public void doRemoveConfig( )
     {
         _taskTipiFormsProviderConfigDAO.delete( getId( ) );
+        _tipiFormsProviderExecutionDAO.deleteByTask( getId( ) );
+        TipiFormsExtractionPlanService.getInstance( ).remove( getId( ) );
+        TipiFormsProvisioningDedupService.getInstance( ).removeTask( getId( ) );
+        TipiFormsCaptureService.getInstance( ).removeTask( getId( ) );
+        TipiFormsBackfillService.getInstance( ).removeTask( getId( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doRemoveTaskInformation( int nIdHistory )
+    {
+        super.doRemoveTaskInformation( nIdHistory );
+
+        _tipiFormsProviderExecutionDAO.delete( nIdHistory, getId( ) );
+    }
+
+    /**
+     * This interface visits a resource history
+     */
+    private interface IResourceHistoryVisitor
+    {
+        /**
+         * Visits the specified resource history
+         * 
+         * @param resourceHistory
+         *            the resource history
+         */
+        void visit( ResourceHistory resourceHistory );
+    }
+
+    /**
+     * This class visits resource histories in parallel, by splitting them in halves down to small sublists
+     */
+    private static final class ParallelVisit extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<ResourceHistory> _listResourceHistory;
+        private final transient IResourceHistoryVisitor _visitor;
+
+        /**
+         * Constructor
+         * 
+         * @param listResourceHistory
+         *            the resource histories
+         * @param visitor
+         *            the visitor
+         */
+        ParallelVisit( List<ResourceHistory> listResourceHistory, IResourceHistoryVisitor visitor )
+        {
+            _listResourceHistory = listResourceHistory;
+            _visitor = visitor;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute( )
+        {
+            int nSize = _listResourceHistory.size( );
+
+            if ( nSize <= PARALLEL_THRESHOLD )
+            {
+                forEach( _listResourceHistory, null, _visitor );
+
+                return;
+            }
+
+            invokeAll( new ParallelVisit( _listResourceHistory.subList( 0, nSize / 2 ), _visitor ),
+                    new ParallelVisit( _listResourceHistory.subList( nSize / 2, nSize ), _visitor ) );
+        }
+    }
+
+    /**
+     * This class records the outcome of a provisioning as a {@link TipiFormsProviderExecution}, then notifies the delegate callback if any
+     */
+    private final class ExecutionRecorder implements ITipiFormsProvisioningCallback
+    {
+        private final ITipiFormsProvisioningCallback _delegate;
+
+        /**
+         * Constructor
+         * 
+         * @param delegate
+         *            the callback notified once the outcome is recorded, or {@code null}
+         */
+        ExecutionRecorder( ITipiFormsProvisioningCallback delegate )
+        {
+            _delegate = delegate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSuccess( int nIdResourceHistory )
+        {
+            TipiFormsProviderExecution execution = _tipiFormsProviderExecutionDAO.load( nIdResourceHistory, getId( ) );
+
+            // a skipped provisioning is already recorded as such
+            if ( execution == null || !TipiFormsProviderExecution.STATUS_DUPLICATE.equals( execution.getStatus( ) ) )
+            {
+                record( nIdResourceHistory, TipiFormsProviderExecution.STATUS_SUCCESS, null );
+            }
+
+            if ( _delegate != null )
+            {
+                _delegate.onSuccess( nIdResourceHistory );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFailure( int nIdResourceHistory, Exception exception )
+        {
+            record( nIdResourceHistory, TipiFormsProviderExecution.STATUS_FAILURE, StringUtils.abbreviate( exception.getMessage( ), ERROR_MESSAGE_MAX_LENGTH ) );
+
+            if ( _delegate != null )
+            {
+                _delegate.onFailure( nIdResourceHistory, exception );
+            }
+        }
+
+        /**
+         * Records the outcome of the provisioning, replacing the execution recorded so far if any. A successful execution is recorded with the values sent
+         * to the TIPI service
+         * 
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @param strStatus
+         *            the status
+         * @param strErrorMessage
+         *            the error message
+         */
+        private void record( int nIdResourceHistory, String strStatus, String strErrorMessage )
+        {
+            TipiFormsProviderExecution execution = new TipiFormsProviderExecution( );
+            execution.setIdHistory( nIdResourceHistory );
+            execution.setIdTask( getId( ) );
+            execution.setStatus( strStatus );
+            execution.setErrorMessage( strErrorMessage );
+            execution.setDateExecution( new Timestamp( System.currentTimeMillis( ) ) );
+
+            TipiFormsProviderResolution resolution = _mapSentResolution.remove( nIdResourceHistory );
+
+            if ( resolution != null && TipiFormsProviderExecution.STATUS_SUCCESS.equals( strStatus ) )
+            {
+                setSentValues( execution, resolution );
+            }
+
+            _tipiFormsProviderExecutionDAO.delete( nIdResourceHistory, getId( ) );
+            _tipiFormsProviderExecutionDAO.insert( execution );
+        }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 
+ * This class represents a timed stage of a provisioning. A span which does not belong to a sampled trace records nothing
+ *
+ */
+public final class TipiFormsSpan
+{
+    private static final TipiFormsSpan NOOP = new TipiFormsSpan( null, null, null, null );
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final String TAG_ERROR = "error";
+
+    private final TipiFormsTrace _trace;
+    private final String _strId;
+    private final String _strParentId;
+    private final String _strName;
+    private final long _lTimestampMicros;
+    private final long _lStartNanos;
+    private final Map<String, String> _mapTags = new LinkedHashMap<String, String>( );
+    private long _lDurationMicros = -1L;
+
+    /**
+     * Constructor
+     * 
+     * @param trace
+     *            the trace of the span, or {@code null} for a span recording nothing
+     * @param strId
+     *            the span id
+     * @param strParentId
+     *            the id of the parent span, or {@code null} for a root span
+     * @param strName
+     *            the name of the span
+     */
+    TipiFormsSpan( TipiFormsTrace trace, String strId, String strParentId, String strName )
+    {
+        _trace = trace;
+        _strId = strId;
+        _strParentId = strParentId;
+        _strName = strName;
+        _lTimestampMicros = System.currentTimeMillis( ) * NANOS_PER_MICRO;
+        _lStartNanos = System.nanoTime( );
+    }
+
+    /**
+     * Gives the span recording nothing
+     * 
+     * @return the span
+     */
+    static TipiFormsSpan noop( )
+    {
+        return NOOP;
+    }
+
+    /**
+     * Adds a tag to this span
+     * 
+     * @param strKey
+     *            the key of the tag
+     * @param strValue
+     *            the value of the tag
+     * @return this span
+     */
+    public TipiFormsSpan tag( String strKey, String strValue )
+    {
+        if ( _trace != null )
+        {
+            _mapTags.put( strKey, strValue );
+        }
+
+        return this;
+    }
+
+    /**
+     * Marks this span as failed
+     * 
+     * @param exception
+     *            the cause of the failure
+     * @return this span
+     */
+    public TipiFormsSpan error( Exception exception )
+    {
+        return tag( TAG_ERROR, exception.getClass( ).getSimpleName( ) + ": " + exception.getMessage( ) );
+    }
+
+    /**
+     * Ends this span
+     */
+    public void end( )
+    {
+        if ( _trace != null && _lDurationMicros < 0 )
+        {
+            _lDurationMicros = Math.max( 1L, ( System.nanoTime( ) - _lStartNanos ) / NANOS_PER_MICRO );
+            _trace.end( this );
+        }
+    }
+
+    /**
+     * Gives the span id
+     * 
+     * @return the id
+     */
+    String getId( )
+    {
+        return _strId;
+    }
+
+    /**
+     * Gives the id of the parent span
+     * 
+     * @return the id, or {@code null} for a root span
+     */
+    String getParentId( )
+    {
+        return _strParentId;
+    }
+
+    /**
+     * Gives the name
+     * 
+     * @return the name
+     */
+    String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Gives the start of this span
+     * 
+     * @return the epoch timestamp in microseconds
+     */
+    long getTimestampMicros( )
+    {
+        return _lTimestampMicros;
+    }
+
+    /**
+     * Gives the duration of this span
+     * 
+     * @return the duration in microseconds
+     */
+    long getDurationMicros( )
+    {
+        return _lDurationMicros;
+    }
+
+    /**
+     * Gives the tags
+     * 
+     * @return the tags
+     */
+    Map<String, String> getTags( )
+    {
+        return _mapTags;
+    }
+}
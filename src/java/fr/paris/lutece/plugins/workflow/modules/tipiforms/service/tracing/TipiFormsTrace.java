@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 
+ * This class represents the trace of one provisioning. Its spans are created and ended by a single thread, the innermost open span being the parent of
+ * the next one
+ *
+ */
+final class TipiFormsTrace
+{
+    private static final int ID_LENGTH = 16;
+
+    private final String _strTraceId = generateId( );
+    private final Deque<TipiFormsSpan> _stackOpenSpans = new ArrayDeque<TipiFormsSpan>( );
+    private final List<TipiFormsSpan> _listEndedSpans = new ArrayList<TipiFormsSpan>( );
+    private final Map<String, String> _mapTags = new LinkedHashMap<String, String>( );
+    private final TipiFormsTracer _tracer;
+
+    /**
+     * Constructor
+     * 
+     * @param tracer
+     *            the tracer notified when the trace is complete
+     */
+    TipiFormsTrace( TipiFormsTracer tracer )
+    {
+        _tracer = tracer;
+    }
+
+    /**
+     * Starts a span, child of the innermost open span
+     * 
+     * @param strName
+     *            the name of the span
+     * @return the span
+     */
+    TipiFormsSpan startSpan( String strName )
+    {
+        TipiFormsSpan spanParent = _stackOpenSpans.peek( );
+        TipiFormsSpan span = new TipiFormsSpan( this, generateId( ), ( spanParent != null ) ? spanParent.getId( ) : null, strName );
+        _stackOpenSpans.push( span );
+
+        return span;
+    }
+
+    /**
+     * Adds a tag to every span of this trace, including the spans already ended
+     * 
+     * @param strKey
+     *            the key of the tag
+     * @param strValue
+     *            the value of the tag
+     */
+    void tag( String strKey, String strValue )
+    {
+        _mapTags.put( strKey, strValue );
+    }
+
+    /**
+     * Records the end of the specified span. The trace is complete when its root span ends
+     * 
+     * @param span
+     *            the span
+     */
+    void end( TipiFormsSpan span )
+    {
+        _stackOpenSpans.remove( span );
+        _listEndedSpans.add( span );
+
+        if ( _stackOpenSpans.isEmpty( ) )
+        {
+            for ( TipiFormsSpan spanEnded : _listEndedSpans )
+            {
+                for ( Map.Entry<String, String> entryTag : _mapTags.entrySet( ) )
+                {
+                    spanEnded.tag( entryTag.getKey( ), entryTag.getValue( ) );
+                }
+            }
+
+            _tracer.complete( this );
+        }
+    }
+
+    /**
+     * Gives the trace id
+     * 
+     * @return the id
+     */
+    String getTraceId( )
+    {
+        return _strTraceId;
+    }
+
+    /**
+     * Gives the ended spans
+     * 
+     * @return the spans
+     */
+    List<TipiFormsSpan> getSpans( )
+    {
+        return _listEndedSpans;
+    }
+
+    /**
+     * Generates a random id of 16 lowercase hexadecimal characters
+     * 
+     * @return the id
+     */
+    private static String generateId( )
+    {
+        String strId = Long.toHexString( ThreadLocalRandom.current( ).nextLong( ) );
+
+        StringBuilder sbId = new StringBuilder( ID_LENGTH );
+
+        for ( int i = strId.length( ); i < ID_LENGTH; i++ )
+        {
+            sbId.append( '0' );
+        }
+
+        return sbId.append( strId ).toString( );
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class writes the traces in a local file, one trace per line. Each line is a JSON array of spans in the Zipkin v2 format, so that it can be posted
+ * as is to a Zipkin server or read by the tools supporting this format. The file is rolled when it exceeds the size defined by the property
+ * {@value #PROPERTY_TRACING_MAX_FILE_SIZE}
+ *
+ */
+final class TipiFormsTraceFileExporter
+{
+    // Properties
+    private static final String PROPERTY_TRACING_FILE = "workflow-tipiforms.tracing.file";
+    private static final String PROPERTY_TRACING_MAX_FILE_SIZE = "workflow-tipiforms.tracing.maxFileSize";
+    private static final String PROPERTY_TRACING_MAX_FILES = "workflow-tipiforms.tracing.maxFiles";
+
+    // Zipkin fields
+    private static final String FIELD_TRACE_ID = "traceId";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_PARENT_ID = "parentId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final String FIELD_DURATION = "duration";
+    private static final String FIELD_LOCAL_ENDPOINT = "localEndpoint";
+    private static final String FIELD_SERVICE_NAME = "serviceName";
+    private static final String FIELD_TAGS = "tags";
+
+    // Other constants
+    private static final String DEFAULT_TRACING_FILE = "/WEB-INF/logs/workflow-tipiforms-traces.json";
+    private static final int DEFAULT_MAX_FILE_SIZE = 10485760;
+    private static final int DEFAULT_MAX_FILES = 5;
+    private static final String SERVICE_NAME = "workflow-tipiforms";
+    private static final String ROLLED_FILE_SEPARATOR = ".";
+    private static final String LINE_SEPARATOR = "\n";
+
+    private static final TipiFormsTraceFileExporter _singleton = new TipiFormsTraceFileExporter( );
+
+    private final ObjectMapper _mapper = new ObjectMapper( );
+    private final Map<String, String> _mapLocalEndpoint = new LinkedHashMap<String, String>( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsTraceFileExporter( )
+    {
+        _mapLocalEndpoint.put( FIELD_SERVICE_NAME, SERVICE_NAME );
+    }
+
+    /**
+     * Gives the unique instance of the exporter
+     * 
+     * @return the instance
+     */
+    static TipiFormsTraceFileExporter getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Exports the specified trace. An error is logged but never thrown, so that tracing cannot make a provisioning fail
+     * 
+     * @param trace
+     *            the trace
+     */
+    void export( TipiFormsTrace trace )
+    {
+        try
+        {
+            write( _mapper.writeValueAsString( toZipkin( trace ) ) );
+        }
+        catch( JsonProcessingException e )
+        {
+            AppLogService.error( "Unable to serialize the TIPI forms trace " + trace.getTraceId( ), e );
+        }
+    }
+
+    /**
+     * Converts the specified trace to Zipkin spans
+     * 
+     * @param trace
+     *            the trace
+     * @return the Zipkin spans
+     */
+    private List<Map<String, Object>> toZipkin( TipiFormsTrace trace )
+    {
+        List<Map<String, Object>> listSpans = new ArrayList<Map<String, Object>>( );
+
+        for ( TipiFormsSpan span : trace.getSpans( ) )
+        {
+            Map<String, Object> mapSpan = new LinkedHashMap<String, Object>( );
+            mapSpan.put( FIELD_TRACE_ID, trace.getTraceId( ) );
+            mapSpan.put( FIELD_ID, span.getId( ) );
+
+            if ( span.getParentId( ) != null )
+            {
+                mapSpan.put( FIELD_PARENT_ID, span.getParentId( ) );
+            }
+
+            mapSpan.put( FIELD_NAME, span.getName( ) );
+            mapSpan.put( FIELD_TIMESTAMP, span.getTimestampMicros( ) );
+            mapSpan.put( FIELD_DURATION, span.getDurationMicros( ) );
+            mapSpan.put( FIELD_LOCAL_ENDPOINT, _mapLocalEndpoint );
+
+            if ( !span.getTags( ).isEmpty( ) )
+            {
+                mapSpan.put( FIELD_TAGS, span.getTags( ) );
+            }
+
+            listSpans.add( mapSpan );
+        }
+
+        return listSpans;
+    }
+
+    /**
+     * Appends the specified line to the file, after rolling the file if needed
+     * 
+     * @param strLine
+     *            the line
+     */
+    private synchronized void write( String strLine )
+    {
+        File file = new File( AppPathService.getAbsolutePathFromRelativePath( AppPropertiesService.getProperty( PROPERTY_TRACING_FILE,
+                DEFAULT_TRACING_FILE ) ) );
+
+        if ( file.length( ) > AppPropertiesService.getPropertyInt( PROPERTY_TRACING_MAX_FILE_SIZE, DEFAULT_MAX_FILE_SIZE ) )
+        {
+            roll( file, Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_TRACING_MAX_FILES, DEFAULT_MAX_FILES ) ) );
+        }
+
+        try ( Writer writer = new OutputStreamWriter( new FileOutputStream( file, true ), StandardCharsets.UTF_8 ) )
+        {
+            writer.write( strLine );
+            writer.write( LINE_SEPARATOR );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to write the TIPI forms traces in " + file.getPath( ), e );
+        }
+    }
+
+    /**
+     * Rolls the specified file: file.(n-1) becomes file.n, ..., file becomes file.1. The oldest file is deleted
+     * 
+     * @param file
+     *            the file
+     * @param nMaxFiles
+     *            the number of rolled files to keep
+     */
+    private static void roll( File file, int nMaxFiles )
+    {
+        File fileOldest = getRolledFile( file, nMaxFiles );
+
+        if ( fileOldest.exists( ) && !fileOldest.delete( ) )
+        {
+            AppLogService.error( "Unable to delete the TIPI forms traces file " + fileOldest.getPath( ) );
+        }
+
+        for ( int i = nMaxFiles - 1; i >= 1; i-- )
+        {
+            File fileRolled = getRolledFile( file, i );
+
+            if ( fileRolled.exists( ) && !fileRolled.renameTo( getRolledFile( file, i + 1 ) ) )
+            {
+                AppLogService.error( "Unable to roll the TIPI forms traces file " + fileRolled.getPath( ) );
+            }
+        }
+
+        if ( !file.renameTo( getRolledFile( file, 1 ) ) )
+        {
+            AppLogService.error( "Unable to roll the TIPI forms traces file " + file.getPath( ) );
+        }
+    }
+
+    /**
+     * Gives the rolled file with the specified index
+     * 
+     * @param file
+     *            the current file
+     * @param nIndex
+     *            the index
+     * @return the rolled file
+     */
+    private static File getRolledFile( File file, int nIndex )
+    {
+        return new File( file.getPath( ) + ROLLED_FILE_SEPARATOR + nIndex );
+    }
+}
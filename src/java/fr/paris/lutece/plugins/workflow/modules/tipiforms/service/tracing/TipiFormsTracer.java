@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class traces the stages of the provisionings. A fraction of the provisionings, defined by the property {@value #PROPERTY_SAMPLING_RATE}, is traced.
+ * The spans of a trace are kept in the current thread until the root span ends, then the trace is exported by {@link TipiFormsTraceFileExporter}. Every
+ * span of a trace is tagged with the resource history id, the resource id and the task id of the provisioning
+ *
+ */
+public final class TipiFormsTracer
+{
+    // Properties
+    private static final String PROPERTY_SAMPLING_RATE = "workflow-tipiforms.tracing.samplingRate";
+
+    // Other constants
+    private static final String TAG_ID_RESOURCE = "tipiforms.id_resource";
+    private static final String TAG_ID_RESOURCE_HISTORY = "tipiforms.id_history";
+    private static final String TAG_ID_TASK = "tipiforms.id_task";
+
+    private static final TipiFormsTracer _singleton = new TipiFormsTracer( );
+
+    private final ThreadLocal<TipiFormsTrace> _currentTrace = new ThreadLocal<TipiFormsTrace>( );
+    private final double _dSamplingRate = readSamplingRate( );
+
+    /**
+     * Constructor
+     */
+    private TipiFormsTracer( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the tracer
+     * 
+     * @return the instance
+     */
+    public static TipiFormsTracer getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Starts the trace of a provisioning, if it is sampled
+     * 
+     * @param strName
+     *            the name of the root span
+     * @param nIdResourceHistory
+     *            the resource history id
+     * @param nIdTask
+     *            the task id
+     * @return the root span, recording nothing if the provisioning is not sampled or if a trace is already in progress in the current thread
+     */
+    public TipiFormsSpan startTrace( String strName, int nIdResourceHistory, int nIdTask )
+    {
+        if ( _currentTrace.get( ) != null || !isSampled( ) )
+        {
+            return TipiFormsSpan.noop( );
+        }
+
+        TipiFormsTrace trace = new TipiFormsTrace( this );
+        _currentTrace.set( trace );
+
+        trace.tag( TAG_ID_RESOURCE_HISTORY, Integer.toString( nIdResourceHistory ) );
+        trace.tag( TAG_ID_TASK, Integer.toString( nIdTask ) );
+
+        return trace.startSpan( strName );
+    }
+
+    /**
+     * Tags every span of the trace of the current thread with the resource id of the provisioning
+     * 
+     * @param nIdResource
+     *            the resource id
+     */
+    public void tagResource( int nIdResource )
+    {
+        TipiFormsTrace trace = _currentTrace.get( );
+
+        if ( trace != null )
+        {
+            trace.tag( TAG_ID_RESOURCE, Integer.toString( nIdResource ) );
+        }
+    }
+
+    /**
+     * Starts a span in the trace of the current thread
+     * 
+     * @param strName
+     *            the name of the span
+     * @return the span, recording nothing if there is no trace in progress in the current thread
+     */
+    public TipiFormsSpan startSpan( String strName )
+    {
+        TipiFormsTrace trace = _currentTrace.get( );
+
+        return ( trace != null ) ? trace.startSpan( strName ) : TipiFormsSpan.noop( );
+    }
+
+    /**
+     * Exports the specified complete trace
+     * 
+     * @param trace
+     *            the trace
+     */
+    void complete( TipiFormsTrace trace )
+    {
+        if ( _currentTrace.get( ) == trace )
+        {
+            _currentTrace.remove( );
+        }
+
+        TipiFormsTraceFileExporter.getInstance( ).export( trace );
+    }
+
+    /**
+     * Tests whether the provisioning is sampled
+     * 
+     * @return {@code true} if the provisioning is sampled, {@code false} otherwise
+     */
+    private boolean isSampled( )
+    {
+        return _dSamplingRate > 0 && ThreadLocalRandom.current( ).nextDouble( ) < _dSamplingRate;
+    }
+
+    /**
+     * Reads the sampling rate. A malformed value disables the tracing, so that the tracing can never make a provisioning fail
+     * 
+     * @return the sampling rate
+     */
+    private static double readSamplingRate( )
+    {
+        String strSamplingRate = AppPropertiesService.getProperty( PROPERTY_SAMPLING_RATE, "0" );
+
+        try
+        {
+            return Double.parseDouble( strSamplingRate.trim( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            AppLogService.error( "TIPI forms tracing disabled : the property " + PROPERTY_SAMPLING_RATE + " is not a number : " + strSamplingRate, e );
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.validation.TipiFormsProviderConfigValidation;
+
+/**
+ * 
+ * This class represents the result of the validation of all the task configurations
+ *
+ */
+public class TipiFormsProviderConfigValidationReport
+{
+    private final List<TipiFormsProviderConfigValidation> _listInvalid = new ArrayList<TipiFormsProviderConfigValidation>( );
+    private int _nChecked;
+    private int _nChanged;
+    private long _lDuration;
+
+    /**
+     * Adds a checked configuration
+     * 
+     * @param validation
+     *            the validation of the configuration
+     * @param bChanged
+     *            {@code true} if the status of the configuration has changed, {@code false} otherwise
+     */
+    void addChecked( TipiFormsProviderConfigValidation validation, boolean bChanged )
+    {
+        _nChecked++;
+
+        if ( bChanged )
+        {
+            _nChanged++;
+        }
+
+        if ( validation.isInvalid( ) )
+        {
+            _listInvalid.add( validation );
+        }
+    }
+
+    /**
+     * Sets the duration of the validation
+     * 
+     * @param lDuration
+     *            the duration in milliseconds
+     */
+    void setDuration( long lDuration )
+    {
+        _lDuration = lDuration;
+    }
+
+    /**
+     * Gives the number of checked configurations
+     * 
+     * @return the number of configurations
+     */
+    public int getChecked( )
+    {
+        return _nChecked;
+    }
+
+    /**
+     * Gives the number of configurations whose status has changed
+     * 
+     * @return the number of configurations
+     */
+    public int getChanged( )
+    {
+        return _nChanged;
+    }
+
+    /**
+     * Gives the duration of the validation
+     * 
+     * @return the duration in milliseconds
+     */
+    public long getDuration( )
+    {
+        return _lDuration;
+    }
+
+    /**
+     * Gives the validations of the invalid configurations
+     * 
+     * @return the validations
+     */
+    public List<TipiFormsProviderConfigValidation> getInvalid( )
+    {
+        return Collections.unmodifiableList( _listInvalid );
+    }
+}
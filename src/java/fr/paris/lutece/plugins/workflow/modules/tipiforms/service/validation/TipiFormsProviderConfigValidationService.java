@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.validation;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.validation.TipiFormsProviderConfigValidation;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.validation.TipiFormsProviderConfigValidationDAO;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class checks the task configurations against the forms tables, so that a deleted form or question is detected before a payment is attempted. The
+ * configurations are read by batches, each batch with one join query, and the status of a configuration is written only when it changes
+ *
+ */
+public final class TipiFormsProviderConfigValidationService
+{
+    // Properties
+    private static final String PROPERTY_BATCH_SIZE = "workflow-tipiforms.validation.batchSize";
+
+    // Beans
+    private static final String BEAN_VALIDATION_DAO = "workflow-tipiforms.tipiFormsProviderConfigValidationDAO";
+
+    // Other constants
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final TipiFormsProviderConfigValidationService _singleton = new TipiFormsProviderConfigValidationService( );
+
+    private volatile TipiFormsProviderConfigValidationReport _lastReport;
+
+    /**
+     * Constructor
+     */
+    private TipiFormsProviderConfigValidationService( )
+    {
+    }
+
+    /**
+     * Gives the unique instance of the service
+     * 
+     * @return the instance
+     */
+    public static TipiFormsProviderConfigValidationService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Validates all the task configurations
+     * 
+     * @return the report of the validation
+     */
+    public synchronized TipiFormsProviderConfigValidationReport validateAll( )
+    {
+        long lStart = System.currentTimeMillis( );
+        TipiFormsProviderConfigValidationDAO validationDAO = getDAO( );
+        TipiFormsProviderConfigValidationReport report = new TipiFormsProviderConfigValidationReport( );
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+        Timestamp dateValidation = new Timestamp( lStart );
+        int nIdTaskAfter = 0;
+        List<TipiFormsProviderConfigValidation> listValidation;
+
+        do
+        {
+            listValidation = validationDAO.selectBatch( nIdTaskAfter, nBatchSize );
+
+            for ( TipiFormsProviderConfigValidation validation : listValidation )
+            {
+                report.addChecked( validation, updateStatus( validationDAO, validation, dateValidation ) );
+                nIdTaskAfter = validation.getIdTask( );
+            }
+        }
+        while ( listValidation.size( ) == nBatchSize );
+
+        report.setDuration( System.currentTimeMillis( ) - lStart );
+        _lastReport = report;
+
+        return report;
+    }
+
+    /**
+     * Validates the configuration of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the validation, or {@code null} if the task has no configuration
+     */
+    public TipiFormsProviderConfigValidation validate( int nIdTask )
+    {
+        TipiFormsProviderConfigValidationDAO validationDAO = getDAO( );
+        TipiFormsProviderConfigValidation validation = validationDAO.selectByTask( nIdTask );
+
+        if ( validation != null )
+        {
+            updateStatus( validationDAO, validation, new Timestamp( System.currentTimeMillis( ) ) );
+        }
+
+        return validation;
+    }
+
+    /**
+     * Gives the status of the configuration of the specified task, as computed by the last validation
+     * 
+     * @param nIdTask
+     *            the task id
+     * @return the status, or {@code null} if the task has no configuration
+     */
+    public String getStatus( int nIdTask )
+    {
+        return getDAO( ).selectStatus( nIdTask );
+    }
+
+    /**
+     * Gives the report of the last validation of all the configurations
+     * 
+     * @return the report, or {@code null} if no validation has been performed since the startup
+     */
+    public TipiFormsProviderConfigValidationReport getLastReport( )
+    {
+        return _lastReport;
+    }
+
+    /**
+     * Computes the status of the specified validation and stores it if it has changed
+     * 
+     * @param validationDAO
+     *            the DAO
+     * @param validation
+     *            the validation
+     * @param dateValidation
+     *            the date of the validation
+     * @return {@code true} if the status has changed, {@code false} otherwise
+     */
+    private boolean updateStatus( TipiFormsProviderConfigValidationDAO validationDAO, TipiFormsProviderConfigValidation validation,
+            Timestamp dateValidation )
+    {
+        String strStatus = computeStatus( validation );
+
+        if ( strStatus.equals( validation.getStatus( ) ) )
+        {
+            return false;
+        }
+
+        if ( !TipiFormsProviderConfigValidation.STATUS_VALID.equals( strStatus ) )
+        {
+            AppLogService.error( "The configuration of the TIPI forms provider task " + validation.getIdTask( ) + " is invalid : " + strStatus );
+        }
+
+        validationDAO.updateStatus( validation.getIdTask( ), strStatus, dateValidation );
+        validation.setStatus( strStatus );
+        validation.setDateValidation( dateValidation );
+
+        return true;
+    }
+
+    /**
+     * Computes the status of the specified validation
+     * 
+     * @param validation
+     *            the validation
+     * @return the status
+     */
+    private static String computeStatus( TipiFormsProviderConfigValidation validation )
+    {
+        if ( !validation.isFormFound( ) )
+        {
+            return TipiFormsProviderConfigValidation.STATUS_UNKNOWN_FORM;
+        }
+
+        if ( validation.getIdFormOfRefDetQuestion( ) != validation.getIdForm( ) )
+        {
+            return TipiFormsProviderConfigValidation.STATUS_INVALID_QUESTION_REFDET;
+        }
+
+        if ( validation.getIdFormOfAmountQuestion( ) != validation.getIdForm( ) )
+        {
+            return TipiFormsProviderConfigValidation.STATUS_INVALID_QUESTION_AMOUNT;
+        }
+
+        if ( validation.getIdFormOfEmailQuestion( ) != validation.getIdForm( ) )
+        {
+            return TipiFormsProviderConfigValidation.STATUS_INVALID_QUESTION_EMAIL;
+        }
+
+        return TipiFormsProviderConfigValidation.STATUS_VALID;
+    }
+
+    /**
+     * Gives the DAO
+     * 
+     * @return the DAO
+     */
+    private static TipiFormsProviderConfigValidationDAO getDAO( )
+    {
+        return SpringContextService.getBean( BEAN_VALIDATION_DAO );
+    }
+}
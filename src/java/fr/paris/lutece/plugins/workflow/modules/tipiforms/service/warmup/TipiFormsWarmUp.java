@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.warmup;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction.TipiFormsExtractionPlanService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * 
+ * This class warms up the module after a deployment: all the task configurations are read with one query and put in the cache, then the extraction plan of
+ * each configuration is compiled, which loads the configured questions, their entries and their entry type services. The warm-up runs in a background
+ * thread and stops when its time budget is exhausted
+ *
+ */
+public final class TipiFormsWarmUp implements Runnable
+{
+    // Properties
+    private static final String PROPERTY_WARMUP_ENABLED = "workflow-tipiforms.warmup.enabled";
+    private static final String PROPERTY_WARMUP_TIME_BUDGET = "workflow-tipiforms.warmup.timeBudget";
+
+    // Beans
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+
+    // Other constants
+    private static final int DEFAULT_TIME_BUDGET = 30000;
+    private static final String THREAD_NAME = "workflow-tipiforms-warmup";
+
+    private final long _lTimeBudgetMillis;
+
+    /**
+     * Constructor
+     * 
+     * @param lTimeBudgetMillis
+     *            the time budget in milliseconds
+     */
+    private TipiFormsWarmUp( long lTimeBudgetMillis )
+    {
+        _lTimeBudgetMillis = lTimeBudgetMillis;
+    }
+
+    /**
+     * Starts the warm-up in a background thread, if enabled
+     */
+    public static void start( )
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_WARMUP_ENABLED, true ) )
+        {
+            return;
+        }
+
+        Thread thread = new Thread( new TipiFormsWarmUp( AppPropertiesService.getPropertyInt( PROPERTY_WARMUP_TIME_BUDGET, DEFAULT_TIME_BUDGET ) ),
+                THREAD_NAME );
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        long lStart = System.currentTimeMillis( );
+        long lDeadline = lStart + _lTimeBudgetMillis;
+        int nCompiled = 0;
+
+        try
+        {
+            TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+            List<TaskTipiFormsProviderConfig> listConfig = configDAO.loadAll( );
+
+            for ( TaskTipiFormsProviderConfig config : listConfig )
+            {
+                if ( System.currentTimeMillis( ) > lDeadline )
+                {
+                    AppLogService.info( "TIPI forms warm-up: time budget of " + _lTimeBudgetMillis + " ms exhausted after " + nCompiled + " of "
+                            + listConfig.size( ) + " configurations" );
+                    break;
+                }
+
+                TipiFormsExtractionPlanService.getInstance( ).getPlan( config );
+                nCompiled++;
+            }
+
+            AppLogService.info( "TIPI forms warm-up: " + listConfig.size( ) + " configurations loaded and " + nCompiled + " extraction plans compiled in "
+                    + ( System.currentTimeMillis( ) - lStart ) + " ms" );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "TIPI forms warm-up: error after " + ( System.currentTimeMillis( ) - lStart ) + " ms", e );
+        }
+    }
+}
@@ -33,12 +33,18 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecution;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecutionDAO;
 import fr.paris.lutece.plugins.workflow.web.task.NoFormTaskComponent;
 import fr.paris.lutece.plugins.workflowcore.service.task.ITask;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
 import fr.paris.lutece.util.html.HtmlTemplate;
 
 /**
@@ -48,6 +54,15 @@ import fr.paris.lutece.util.html.HtmlTemplate;
  */
 public class TipiFormsProviderTaskComponent extends NoFormTaskComponent
 {
+    // Marks
+    private static final String MARK_EXECUTION = "execution";
+
+    // Templates
+    private static final String TEMPLATE_TASK_INFORMATION = "admin/plugins/workflow/modules/tipiforms/tipiformsprovider_task_information.html";
+
+    // Beans
+    private static final String BEAN_EXECUTION_DAO = "workflow-tipiforms.tipiFormsProviderExecutionDAO";
+
     /**
      * {@inheritDoc}
      */
@@ -74,7 +89,18 @@ public class TipiFormsProviderTaskComponent extends NoFormTaskComponent
     @Override
     public String getDisplayTaskInformation( int nIdHistory, HttpServletRequest request, Locale locale, ITask task )
     {
-        return null;
+        TipiFormsProviderExecutionDAO executionDAO = SpringContextService.getBean( BEAN_EXECUTION_DAO );
+        TipiFormsProviderExecution execution = executionDAO.load( nIdHistory, task.getId( ) );
+
+        if ( execution == null )
+        {
+            return null;
+        }
+
+        Map<String, Object> model = new HashMap<String, Object>( );
+        model.put( MARK_EXECUTION, execution );
+
+        return AppTemplateService.getTemplate( TEMPLATE_TASK_INFORMATION, locale, model ).getHtml( );
     }
 
     /**
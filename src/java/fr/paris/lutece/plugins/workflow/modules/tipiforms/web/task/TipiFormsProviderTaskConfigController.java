@@ -33,7 +33,9 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -41,18 +43,23 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
-import fr.paris.lutece.plugins.forms.business.FormHome;
-import fr.paris.lutece.plugins.forms.business.Question;
-import fr.paris.lutece.plugins.forms.business.QuestionHome;
-import fr.paris.lutece.plugins.forms.business.Step;
-import fr.paris.lutece.plugins.forms.business.StepHome;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
 import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill.TipiFormsBackfillService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.cache.TipiFormsQuestionCatalogCacheService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture.TipiFormsCaptureService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionIndex;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionPage;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionRole;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.validation.TipiFormsProviderConfigValidationService;
 import fr.paris.lutece.plugins.workflowcore.service.config.ITaskConfigService;
 import fr.paris.lutece.plugins.workflowcore.service.task.ITask;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.ReferenceItem;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.html.HtmlTemplate;
@@ -67,21 +74,27 @@ public class TipiFormsProviderTaskConfigController
     // Parameters
     private static final String PARAMETER_APPLY = "apply";
 
+    // Properties
+    private static final String PROPERTY_QUESTION_PAGE_SIZE = "workflow-tipiforms.question.pageSize";
+
     // Actions
     private static final String ACTION_CHANGE_FORM = "changeForm";
+    private static final String ACTION_START_BACKFILL = "startBackfill";
+    private static final String ACTION_STOP_BACKFILL = "stopBackfill";
     private static final String ACTION_DEFAULT = "defaultAction";
 
     // Beans
     private static final String SERVICE_CONFIG = "workflow-tipiforms.taskTipiFormsProviderConfigService";
 
-    // Services
-    private static final ITaskConfigService _taskConfigService = SpringContextService.getBean( SERVICE_CONFIG );
-
     // Other constants
     private static final int ID_UNSET = -1;
+    private static final int DEFAULT_QUESTION_PAGE_SIZE = 50;
+    private static final String NAME_SEPARATOR = " - ";
 
     private final ITask _task;
+    private final ITaskConfigService _taskConfigService;
     private TaskTipiFormsProviderConfig _config;
+    private boolean _bConfigStored;
 
     /**
      * Constructor
@@ -90,8 +103,22 @@ public class TipiFormsProviderTaskConfigController
      *            the task associated to the configuration
      */
     public TipiFormsProviderTaskConfigController( ITask task )
+    {
+        this( task, SpringContextService.<ITaskConfigService> getBean( SERVICE_CONFIG ) );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param task
+     *            the task associated to the configuration
+     * @param taskConfigService
+     *            the service storing the configuration
+     */
+    TipiFormsProviderTaskConfigController( ITask task, ITaskConfigService taskConfigService )
     {
         _task = task;
+        _taskConfigService = taskConfigService;
 
         findConfig( );
     }
@@ -102,6 +129,7 @@ public class TipiFormsProviderTaskConfigController
     private void findConfig( )
     {
         _config = _taskConfigService.findByPrimaryKey( _task.getId( ) );
+        _bConfigStored = _config != null;
 
         if ( _config == null )
         {
@@ -133,13 +161,23 @@ public class TipiFormsProviderTaskConfigController
     {
         String strErrorUrl = null;
         Action action = new Action( request );
-        String strAction = findAction( action, request );
+        String strAction = findAction( request );
 
         if ( ACTION_CHANGE_FORM.equals( strAction ) )
         {
             strErrorUrl = action.changeForm( );
         }
 
+        if ( ACTION_START_BACKFILL.equals( strAction ) )
+        {
+            strErrorUrl = action.startBackfill( );
+        }
+
+        if ( ACTION_STOP_BACKFILL.equals( strAction ) )
+        {
+            TipiFormsBackfillService.getInstance( ).stop( _task.getId( ) );
+        }
+
         if ( ACTION_DEFAULT.equals( strAction ) )
         {
             strErrorUrl = action.save( );
@@ -149,29 +187,121 @@ public class TipiFormsProviderTaskConfigController
     }
 
     /**
-     * Finds the action depending on the specified action and request
+     * Finds the action depending on the specified request. The questions of a newly selected form are loaded by the page through
+     * {@link TipiFormsProviderTaskJspBean}, so the configuration is saved only when the user validates it
      * 
-     * @param action
-     *            the action
      * @param request
      *            the request
      * @return the action
      */
-    private String findAction( Action action, HttpServletRequest request )
+    private String findAction( HttpServletRequest request )
     {
         String strAction = request.getParameter( PARAMETER_APPLY );
 
-        if ( ACTION_CHANGE_FORM.equals( strAction ) || action.isFormChanged( ) )
+        if ( !ACTION_CHANGE_FORM.equals( strAction ) && !ACTION_START_BACKFILL.equals( strAction ) && !ACTION_STOP_BACKFILL.equals( strAction ) )
         {
-            strAction = ACTION_CHANGE_FORM;
+            strAction = ACTION_DEFAULT;
         }
 
-        if ( StringUtils.isBlank( strAction ) )
+        return strAction;
+    }
+
+    /**
+     * Gives the question index of the specified form
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the question index
+     */
+    TipiFormsQuestionIndex getQuestionIndex( int nIdForm )
+    {
+        return TipiFormsQuestionCatalogCacheService.getInstance( ).getQuestionIndex( nIdForm );
+    }
+
+    /**
+     * Removes the values captured for the questions which changed in the configuration of the task. The values of the unchanged questions stay captured
+     * 
+     * @param configBefore
+     *            the configuration stored before the save, or {@code null} if none was stored
+     * @param configAfter
+     *            the saved configuration
+     */
+    void removeCaptures( TaskTipiFormsProviderConfig configBefore, TaskTipiFormsProviderConfig configAfter )
+    {
+        TipiFormsCaptureService.getInstance( ).removeChangedQuestions( configBefore, configAfter );
+    }
+
+    /**
+     * Validates the stored configuration of the specified task
+     * 
+     * @param nIdTask
+     *            the task id
+     */
+    void validateStoredConfig( int nIdTask )
+    {
+        TipiFormsProviderConfigValidationService.getInstance( ).validate( nIdTask );
+    }
+
+    /**
+     * Searches the questions of the specified form eligible for the specified role
+     * 
+     * @param nIdForm
+     *            the form id
+     * @param role
+     *            the role of the question
+     * @param strPrefix
+     *            the prefix of the question title. May be blank
+     * @param nPageIndex
+     *            the page index, starting at 1
+     * @return the requested page of questions
+     */
+    static TipiFormsQuestionPage searchQuestions( int nIdForm, TipiFormsQuestionRole role, String strPrefix, int nPageIndex )
+    {
+        return TipiFormsQuestionCatalogCacheService.getInstance( ).getQuestionIndex( nIdForm ).search( role, strPrefix, nPageIndex, getQuestionPageSize( ) );
+    }
+
+    /**
+     * Gives the number of questions per page
+     * 
+     * @return the page size
+     */
+    private static int getQuestionPageSize( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_QUESTION_PAGE_SIZE, DEFAULT_QUESTION_PAGE_SIZE );
+    }
+
+    /**
+     * Converts the specified questions into a {@code ReferenceList}
+     * 
+     * @param listQuestion
+     *            the questions
+     * @return the questions as a {@code ReferenceList}
+     */
+    static ReferenceList toReferenceList( List<TipiFormsQuestion> listQuestion )
+    {
+        ReferenceList referenceList = new ReferenceList( );
+
+        for ( TipiFormsQuestion question : listQuestion )
         {
-            strAction = ACTION_DEFAULT;
+            referenceList.addItem( question.getIdQuestion( ), buildNameForQuestion( question ) );
         }
 
-        return strAction;
+        return referenceList;
+    }
+
+    /**
+     * Builds the displayed name for the questions
+     * 
+     * @param question
+     *            the question
+     * @return the displayed name
+     */
+    private static String buildNameForQuestion( TipiFormsQuestion question )
+    {
+        StringBuilder sbName = new StringBuilder( question.getStepTitle( ) );
+        sbName.append( NAME_SEPARATOR ).append( question.getTitle( ) );
+
+        return sbName.toString( );
     }
 
     /**
@@ -182,15 +312,17 @@ public class TipiFormsProviderTaskConfigController
     {
         // MARKS
         private static final String MARK_CONFIG = "config";
+        private static final String MARK_CONFIG_STATUS = "config_status";
+        private static final String MARK_BACKFILL_PROGRESS = "backfill_progress";
+        private static final String MARK_TASK_ID = "task_id";
         private static final String MARK_LIST_FORM = "list_form";
-        private static final String MARK_LIST_QUESTION = "list_question";
+        private static final String MARK_LIST_QUESTION_REFDET = "list_question_refdet";
+        private static final String MARK_LIST_QUESTION_AMOUNT = "list_question_amount";
+        private static final String MARK_LIST_QUESTION_EMAIL = "list_question_email";
 
         // TEMPLATE
         private static final String TEMPLATE_TASK_CONFIG = "admin/plugins/workflow/modules/tipiforms/tipiformsprovider_task_config.html";
 
-        // Other constants
-        private static final String NAME_SEPARATOR = " - ";
-
         private final HttpServletRequest _request;
         private final Map<String, Object> _model;
         private final ReferenceItem _referenceItemEmpty;
@@ -218,8 +350,15 @@ public class TipiFormsProviderTaskConfigController
         private HtmlTemplate build( )
         {
             _model.put( MARK_CONFIG, _config );
+            _model.put( MARK_CONFIG_STATUS, TipiFormsProviderConfigValidationService.getInstance( ).getStatus( _task.getId( ) ) );
+            _model.put( MARK_BACKFILL_PROGRESS, TipiFormsBackfillService.getInstance( ).getProgress( _task.getId( ) ) );
+            _model.put( MARK_TASK_ID, _task.getId( ) );
             _model.put( MARK_LIST_FORM, findForms( ) );
-            _model.put( MARK_LIST_QUESTION, findQuestions( ) );
+
+            TipiFormsQuestionIndex index = getQuestionIndex( _config.getIdForm( ) );
+            _model.put( MARK_LIST_QUESTION_REFDET, findQuestions( index, TipiFormsQuestionRole.REFDET, _config.getIdRefDetQuestion( ) ) );
+            _model.put( MARK_LIST_QUESTION_AMOUNT, findQuestions( index, TipiFormsQuestionRole.AMOUNT, _config.getIdAmountQuestion( ) ) );
+            _model.put( MARK_LIST_QUESTION_EMAIL, findQuestions( index, TipiFormsQuestionRole.EMAIL, _config.getIdEmailQuestion( ) ) );
 
             return AppTemplateService.getTemplate( TEMPLATE_TASK_CONFIG, _request.getLocale( ), _model );
         }
@@ -232,7 +371,7 @@ public class TipiFormsProviderTaskConfigController
         private ReferenceList findForms( )
         {
             ReferenceList referenceList = createReferenceListWithEmptyElement( );
-            referenceList.addAll( FormHome.getFormsReferenceList( ) );
+            referenceList.addAll( TipiFormsQuestionCatalogCacheService.getInstance( ).getForms( ) );
 
             return referenceList;
         }
@@ -251,40 +390,30 @@ public class TipiFormsProviderTaskConfigController
         }
 
         /**
-         * finds the questions for the selected form
+         * finds the first page of the questions of the selected form eligible for the specified role. The selected question is always part of the result
          * 
+         * @param index
+         *            the question index of the selected form
+         * @param role
+         *            the role of the question
+         * @param nIdSelectedQuestion
+         *            the id of the selected question
          * @return the questions as a {@code ReferenceList}
          */
-        private ReferenceList findQuestions( )
+        private ReferenceList findQuestions( TipiFormsQuestionIndex index, TipiFormsQuestionRole role, int nIdSelectedQuestion )
         {
-            ReferenceList referenceList = createReferenceListWithEmptyElement( );
+            List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( index.search( role, null, 1, getQuestionPageSize( ) ).getQuestions( ) );
+            TipiFormsQuestion questionSelected = index.getQuestion( nIdSelectedQuestion );
 
-            for ( Step step : StepHome.getStepsListByForm( _config.getIdForm( ) ) )
+            if ( questionSelected != null && !listQuestion.contains( questionSelected ) )
             {
-                for ( Question question : QuestionHome.getQuestionsListByStep( step.getId( ) ) )
-                {
-                    referenceList.addItem( question.getId( ), buildNameForQuestion( step, question ) );
-                }
+                listQuestion.add( 0, questionSelected );
             }
 
-            return referenceList;
-        }
-
-        /**
-         * Builds the displayed name for the questions
-         * 
-         * @param step
-         *            the step of the question
-         * @param question
-         *            the question
-         * @return the displayed name
-         */
-        private String buildNameForQuestion( Step step, Question question )
-        {
-            StringBuilder sbName = new StringBuilder( step.getTitle( ) );
-            sbName.append( NAME_SEPARATOR ).append( question.getTitle( ) );
+            ReferenceList referenceList = createReferenceListWithEmptyElement( );
+            referenceList.addAll( toReferenceList( listQuestion ) );
 
-            return sbName.toString( );
+            return referenceList;
         }
     }
 
@@ -299,6 +428,8 @@ public class TipiFormsProviderTaskConfigController
         private static final String MESSAGE_MANDATORY_QUESTION_REFDET = "module.workflow.tipiforms.task_tipiformsprovider_config.message.mandatory.question.refdet";
         private static final String MESSAGE_MANDATORY_QUESTION_AMOUNT = "module.workflow.tipiforms.task_tipiformsprovider_config.message.mandatory.question.amount";
         private static final String MESSAGE_MANDATORY_QUESTION_EMAIL = "module.workflow.tipiforms.task_tipiformsprovider_config.message.mandatory.question.email";
+        private static final String MESSAGE_QUESTION_NOT_IN_FORM = "module.workflow.tipiforms.task_tipiformsprovider_config.message.question.notInForm";
+        private static final String MESSAGE_BACKFILL_NOT_STARTED = "module.workflow.tipiforms.task_tipiformsprovider_config.message.backfill.notStarted";
 
         // Parameters
         private static final String PARAMETER_FORM_ID = "idForm";
@@ -387,11 +518,28 @@ public class TipiFormsProviderTaskConfigController
 
             fillAllConfig( );
             saveConfig( );
+            validateStoredConfig( _config.getIdTask( ) );
 
             return null;
 
         }
 
+        /**
+         * Starts the backfill of the task, or resumes it
+         * 
+         * @return the URL of the error page if the backfill cannot be started, {@code null} otherwise
+         */
+        private String startBackfill( )
+        {
+            if ( !( _task instanceof TipiFormsProviderTask )
+                    || !TipiFormsBackfillService.getInstance( ).start( (TipiFormsProviderTask) _task, _request.getLocale( ) ) )
+            {
+                return AdminMessageService.getMessageUrl( _request, MESSAGE_BACKFILL_NOT_STARTED, AdminMessage.TYPE_STOP );
+            }
+
+            return null;
+        }
+
         /**
          * Validates that the form is set
          * 
@@ -444,9 +592,61 @@ public class TipiFormsProviderTaskConfigController
                 return strErrorUrl;
             }
 
+            strErrorUrl = validateQuestionsBelongToForm( );
+
+            if ( !StringUtils.isEmpty( strErrorUrl ) )
+            {
+                return strErrorUrl;
+            }
+
             return null;
         }
 
+        /**
+         * Validates that the questions belong to the form and are eligible for their role. The questions may come from another form when the form has been
+         * changed without reloading the questions. A question already stored for a role is accepted even if its entry type is no longer eligible, so that
+         * an existing configuration can still be saved
+         * 
+         * @return the URL of the error page if there is a validation error, {@code null} otherwise
+         */
+        private String validateQuestionsBelongToForm( )
+        {
+            TipiFormsQuestionIndex index = getQuestionIndex( _configFromRequest.getIdForm( ) );
+
+            if ( !isAccepted( index, TipiFormsQuestionRole.REFDET, _configFromRequest.getIdRefDetQuestion( ), _config.getIdRefDetQuestion( ) )
+                    || !isAccepted( index, TipiFormsQuestionRole.AMOUNT, _configFromRequest.getIdAmountQuestion( ), _config.getIdAmountQuestion( ) )
+                    || !isAccepted( index, TipiFormsQuestionRole.EMAIL, _configFromRequest.getIdEmailQuestion( ), _config.getIdEmailQuestion( ) ) )
+            {
+                return AdminMessageService.getMessageUrl( _request, MESSAGE_QUESTION_NOT_IN_FORM, AdminMessage.TYPE_STOP );
+            }
+
+            return null;
+        }
+
+        /**
+         * Tests whether the specified question is accepted for the specified role: it must belong to the form, and be eligible for the role or be the
+         * question already stored for the role
+         * 
+         * @param index
+         *            the question index of the form
+         * @param role
+         *            the role
+         * @param nIdQuestion
+         *            the id of the question
+         * @param nIdStoredQuestion
+         *            the id of the question stored for the role
+         * @return {@code true} if the question is accepted, {@code false} otherwise
+         */
+        private boolean isAccepted( TipiFormsQuestionIndex index, TipiFormsQuestionRole role, int nIdQuestion, int nIdStoredQuestion )
+        {
+            if ( index.isEligible( role, nIdQuestion ) )
+            {
+                return true;
+            }
+
+            return !isFormChanged( ) && nIdQuestion == nIdStoredQuestion && index.getQuestion( nIdQuestion ) != null;
+        }
+
         /**
          * Validates that the RefDet question is set
          * 
@@ -577,26 +777,27 @@ public class TipiFormsProviderTaskConfigController
         }
 
         /**
-         * Saves the configuration of the task
+         * Saves the configuration of the task. The configuration is created if none was stored for the task, whatever its id: the configuration built from
+         * the request already carries the task id. The captures of the questions which changed are then removed
          */
         private void saveConfig( )
         {
-            boolean bCreate = false;
+            _config.setIdTask( _task.getId( ) );
 
-            if ( _config.getIdTask( ) == 0 )
-            {
-                _config.setIdTask( _task.getId( ) );
-                bCreate = true;
-            }
+            TaskTipiFormsProviderConfig configBefore = null;
 
-            if ( bCreate )
+            if ( _bConfigStored )
             {
-                _taskConfigService.create( _config );
+                configBefore = _taskConfigService.findByPrimaryKey( _task.getId( ) );
+                _taskConfigService.update( _config );
             }
             else
             {
-                _taskConfigService.update( _config );
+                _taskConfigService.create( _config );
+                _bConfigStored = true;
             }
+
+            removeCaptures( configBefore, _config );
         }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill.TipiFormsBackfillProgress;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.backfill.TipiFormsBackfillService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.export.TipiFormsExportService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionPage;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionRole;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.web.admin.PluginAdminPageJspBean;
+import fr.paris.lutece.util.json.ErrorJsonResponse;
+import fr.paris.lutece.util.json.JsonResponse;
+import fr.paris.lutece.util.json.JsonUtil;
+
+/**
+ * This class provides the data requested by the configuration page of the task
+ * {@link fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask TipiFormsProviderTask}
+ *
+ */
+public class TipiFormsProviderTaskJspBean extends PluginAdminPageJspBean
+{
+    /**
+     * Right to manage the workflows
+     */
+    public static final String RIGHT_MANAGE_WORKFLOW = "WORKFLOW_MANAGEMENT";
+
+    private static final long serialVersionUID = 1L;
+
+    // Parameters
+    private static final String PARAMETER_FORM_ID = "idForm";
+    private static final String PARAMETER_ROLE = "role";
+    private static final String PARAMETER_SEARCH = "search";
+    private static final String PARAMETER_PAGE_INDEX = "page";
+    private static final String PARAMETER_TASK_ID = "idTask";
+
+    // JSON keys
+    private static final String KEY_QUESTIONS = "questions";
+    private static final String KEY_TOTAL = "total";
+    private static final String KEY_PAGE_INDEX = "page";
+    private static final String KEY_HAS_NEXT_PAGE = "hasNextPage";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_RUNNING = "running";
+    private static final String KEY_LAST_ID_FORM_RESPONSE = "lastIdFormResponse";
+    private static final String KEY_PROCESSED = "processed";
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_THROUGHPUT = "throughput";
+
+    // Beans
+    private static final String BEAN_CONFIG_DAO = "workflow-tipiforms.taskTipiFormsProviderConfigDAO";
+
+    // Errors
+    private static final String ERROR_UNKNOWN_ROLE = "UNKNOWN_ROLE";
+    private static final String ERROR_NO_BACKFILL = "NO_BACKFILL";
+
+    // Other constants
+    private static final int ID_UNSET = -1;
+    private static final String CONTENT_TYPE_CSV = "text/csv; charset=UTF-8";
+    private static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
+    private static final String CONTENT_DISPOSITION_ATTACHMENT = "attachment; filename=\"";
+    private static final String CONTENT_DISPOSITION_END = "\"";
+
+    /**
+     * Gives a page of the questions of the form specified in the request, in JSON. Only the questions eligible for the requested role and whose title
+     * starts with the requested search are given
+     * 
+     * @param request
+     *            the request
+     * @return the questions in JSON
+     */
+    public String getQuestions( HttpServletRequest request )
+    {
+        int nIdForm = NumberUtils.toInt( request.getParameter( PARAMETER_FORM_ID ), ID_UNSET );
+        TipiFormsQuestionRole role = TipiFormsQuestionRole.fromCode( request.getParameter( PARAMETER_ROLE ) );
+        int nPageIndex = NumberUtils.toInt( request.getParameter( PARAMETER_PAGE_INDEX ), 1 );
+
+        if ( role == null )
+        {
+            return JsonUtil.buildJsonResponse( new ErrorJsonResponse( ERROR_UNKNOWN_ROLE ) );
+        }
+
+        TipiFormsQuestionPage page = TipiFormsProviderTaskConfigController.searchQuestions( nIdForm, role, request.getParameter( PARAMETER_SEARCH ),
+                nPageIndex );
+
+        Map<String, Object> mapResult = new HashMap<String, Object>( );
+        mapResult.put( KEY_QUESTIONS, TipiFormsProviderTaskConfigController.toReferenceList( page.getQuestions( ) ) );
+        mapResult.put( KEY_TOTAL, page.getTotal( ) );
+        mapResult.put( KEY_PAGE_INDEX, page.getPageIndex( ) );
+        mapResult.put( KEY_HAS_NEXT_PAGE, page.hasNextPage( ) );
+
+        return JsonUtil.buildJsonResponse( new JsonResponse( mapResult ) );
+    }
+
+    /**
+     * Gives the progress of the backfill of the task specified in the request, in JSON
+     * 
+     * @param request
+     *            the request
+     * @return the progress in JSON
+     */
+    public String getBackfillProgress( HttpServletRequest request )
+    {
+        TipiFormsBackfillProgress progress = TipiFormsBackfillService.getInstance( ).getProgress(
+                NumberUtils.toInt( request.getParameter( PARAMETER_TASK_ID ), ID_UNSET ) );
+
+        if ( progress == null )
+        {
+            return JsonUtil.buildJsonResponse( new ErrorJsonResponse( ERROR_NO_BACKFILL ) );
+        }
+
+        Map<String, Object> mapResult = new HashMap<String, Object>( );
+        mapResult.put( KEY_STATUS, progress.getStatus( ) );
+        mapResult.put( KEY_RUNNING, progress.isRunning( ) );
+        mapResult.put( KEY_LAST_ID_FORM_RESPONSE, progress.getLastIdFormResponse( ) );
+        mapResult.put( KEY_PROCESSED, progress.getProcessedCount( ) );
+        mapResult.put( KEY_FAILED, progress.getFailureCount( ) );
+        mapResult.put( KEY_THROUGHPUT, Math.round( progress.getThroughput( ) * 10 ) / 10.0 );
+
+        return JsonUtil.buildJsonResponse( new JsonResponse( mapResult ) );
+    }
+
+    /**
+     * Writes to the response, in CSV, the TIPI provisioning data of the form of the task specified in the request. The rows are written while they are
+     * read, so that large forms are exported without holding their form responses in memory
+     * 
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @throws IOException
+     *             if an error occurs while writing the response
+     */
+    public void doExportCsv( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        TaskTipiFormsProviderConfigDAO configDAO = SpringContextService.getBean( BEAN_CONFIG_DAO );
+        TaskTipiFormsProviderConfig config = configDAO.load( NumberUtils.toInt( request.getParameter( PARAMETER_TASK_ID ), ID_UNSET ) );
+
+        if ( config == null || config.getIdForm( ) <= 0 )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+
+            return;
+        }
+
+        response.setContentType( CONTENT_TYPE_CSV );
+        response.setHeader( HEADER_CONTENT_DISPOSITION,
+                CONTENT_DISPOSITION_ATTACHMENT + TipiFormsExportService.getFileName( config ) + CONTENT_DISPOSITION_END );
+
+        TipiFormsExportService.getInstance( ).export( config, response.getWriter( ), getLocale( ) );
+    }
+}
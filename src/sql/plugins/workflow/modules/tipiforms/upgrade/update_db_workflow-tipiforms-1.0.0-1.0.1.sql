@@ -0,0 +1,88 @@
+--
+-- Indexes used to find the tasks using a form or a question
+--
+CREATE INDEX index_tipiformsprovider_cf_form ON workflow_task_tipiformsprovider_cf (id_form);
+CREATE INDEX index_tipiformsprovider_cf_refdet ON workflow_task_tipiformsprovider_cf (id_question_refdet);
+CREATE INDEX index_tipiformsprovider_cf_amount ON workflow_task_tipiformsprovider_cf (id_question_amount);
+CREATE INDEX index_tipiformsprovider_cf_email ON workflow_task_tipiformsprovider_cf (id_question_email);
+
+--
+-- Table structure for table workflow_task_tipiformsprovider_exec
+--
+CREATE TABLE workflow_task_tipiformsprovider_exec(
+id_history INT DEFAULT 0 NOT NULL,
+id_task INT DEFAULT 0 NOT NULL,
+status VARCHAR(20) DEFAULT '' NOT NULL,
+error_message VARCHAR(255) DEFAULT NULL,
+date_execution TIMESTAMP NULL,
+ref_det VARCHAR(255) DEFAULT NULL,
+amount VARCHAR(255) DEFAULT NULL,
+email VARCHAR(255) DEFAULT NULL,
+PRIMARY KEY (id_history, id_task)
+);
+
+--
+-- Status of the validation of the configurations
+--
+ALTER TABLE workflow_task_tipiformsprovider_cf ADD COLUMN status VARCHAR(30) DEFAULT 'UNCHECKED' NOT NULL;
+ALTER TABLE workflow_task_tipiformsprovider_cf ADD COLUMN date_validation TIMESTAMP NULL;
+
+--
+-- Table structure for table workflow_task_tipiformsprovider_dedup
+--
+CREATE TABLE workflow_task_tipiformsprovider_dedup(
+id_task INT DEFAULT 0 NOT NULL,
+id_resource INT DEFAULT 0 NOT NULL,
+provisioning_key VARCHAR(64) DEFAULT '' NOT NULL,
+id_history INT DEFAULT 0 NOT NULL,
+date_provisioning TIMESTAMP NULL,
+backfill SMALLINT DEFAULT 0 NOT NULL,
+PRIMARY KEY (id_task, id_resource)
+);
+
+--
+-- Table structure for table workflow_task_tipiformsprovider_capture
+--
+CREATE TABLE workflow_task_tipiformsprovider_capture(
+id_response INT DEFAULT 0 NOT NULL,
+id_task INT DEFAULT 0 NOT NULL,
+ref_det VARCHAR(255) DEFAULT NULL,
+amount VARCHAR(255) DEFAULT NULL,
+email VARCHAR(255) DEFAULT NULL,
+date_capture TIMESTAMP NULL,
+PRIMARY KEY (id_response, id_task)
+);
+
+CREATE INDEX index_tipiformsprovider_capture_task ON workflow_task_tipiformsprovider_capture (id_task);
+
+--
+-- Table structure for table workflow_task_tipiformsprovider_bf
+--
+CREATE TABLE workflow_task_tipiformsprovider_bf(
+id_task INT DEFAULT 0 NOT NULL,
+id_form INT DEFAULT 0 NOT NULL,
+status VARCHAR(20) DEFAULT '' NOT NULL,
+last_id_response INT DEFAULT 0 NOT NULL,
+processed_count INT DEFAULT 0 NOT NULL,
+failure_count INT DEFAULT 0 NOT NULL,
+date_start TIMESTAMP NULL,
+date_update TIMESTAMP NULL,
+run_id VARCHAR(36) DEFAULT NULL,
+PRIMARY KEY (id_task)
+);
+
+--
+-- Version of the configurations, incremented on each store
+--
+ALTER TABLE workflow_task_tipiformsprovider_cf ADD COLUMN version INT DEFAULT 0 NOT NULL;
+
+--
+-- Table structure for table workflow_task_tipiformsprovider_cs
+--
+CREATE TABLE workflow_task_tipiformsprovider_cs(
+id_stamp INT DEFAULT 0 NOT NULL,
+stamp BIGINT DEFAULT 0 NOT NULL,
+PRIMARY KEY (id_stamp)
+);
+
+INSERT INTO workflow_task_tipiformsprovider_cs ( id_stamp, stamp ) VALUES ( 1, 0 );
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the class {@link TipiFormsCallThrottle}
+ *
+ */
+public class TipiFormsCallThrottleTest extends LuteceTestCase
+{
+    private static final int CALLS_PER_SECOND = 50;
+    private static final long INTERVAL_MILLIS = 1000L / CALLS_PER_SECOND;
+    private static final long TOLERANCE_MILLIS = 5L;
+
+    /**
+     * Test of the first call, which does not wait
+     */
+    public void testFirstCallDoesNotWait( )
+    {
+        TipiFormsCallThrottle throttle = new TipiFormsCallThrottle( CALLS_PER_SECOND );
+
+        long lStart = System.nanoTime( );
+        throttle.acquire( );
+
+        assertTrue( elapsedMillis( lStart ) < INTERVAL_MILLIS );
+    }
+
+    /**
+     * Test of the spreading of consecutive calls
+     */
+    public void testCallsAreSpread( )
+    {
+        TipiFormsCallThrottle throttle = new TipiFormsCallThrottle( CALLS_PER_SECOND );
+        int nCalls = 6;
+
+        long lStart = System.nanoTime( );
+
+        for ( int i = 0; i < nCalls; i++ )
+        {
+            throttle.acquire( );
+        }
+
+        assertTrue( elapsedMillis( lStart ) >= ( nCalls - 1 ) * INTERVAL_MILLIS - TOLERANCE_MILLIS );
+    }
+
+    /**
+     * Test of the spreading of calls performed by several threads
+     *
+     * @throws InterruptedException
+     *             if the test is interrupted
+     */
+    public void testConcurrentCallsAreSpread( ) throws InterruptedException
+    {
+        final TipiFormsCallThrottle throttle = new TipiFormsCallThrottle( CALLS_PER_SECOND );
+        final int nCallsPerThread = 3;
+        int nThreads = 4;
+        List<Thread> listThread = new ArrayList<Thread>( );
+
+        long lStart = System.nanoTime( );
+
+        for ( int i = 0; i < nThreads; i++ )
+        {
+            Thread thread = new Thread( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    for ( int j = 0; j < nCallsPerThread; j++ )
+                    {
+                        throttle.acquire( );
+                    }
+                }
+            } );
+            listThread.add( thread );
+            thread.start( );
+        }
+
+        for ( Thread thread : listThread )
+        {
+            thread.join( );
+        }
+
+        assertTrue( elapsedMillis( lStart ) >= ( nThreads * nCallsPerThread - 1 ) * INTERVAL_MILLIS - TOLERANCE_MILLIS );
+    }
+
+    /**
+     * Test of an idle throttle, which does not accumulate calls to perform at once
+     */
+    public void testIdleDoesNotAccumulate( )
+    {
+        TipiFormsCallThrottle throttle = new TipiFormsCallThrottle( CALLS_PER_SECOND );
+        throttle.acquire( );
+
+        try
+        {
+            Thread.sleep( INTERVAL_MILLIS * 5 );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        long lStart = System.nanoTime( );
+        throttle.acquire( );
+        throttle.acquire( );
+
+        assertTrue( elapsedMillis( lStart ) >= INTERVAL_MILLIS - TOLERANCE_MILLIS );
+    }
+
+    /**
+     * Gives the duration elapsed since the specified time
+     *
+     * @param lStartNanos
+     *            the time, as a {@link System#nanoTime()} value
+     * @return the duration in milliseconds
+     */
+    private static long elapsedMillis( long lStartNanos )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStartNanos );
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the state transitions of the class {@link TipiFormsCircuitBreaker}
+ *
+ */
+public class TipiFormsCircuitBreakerTest extends LuteceTestCase
+{
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_DURATION = 200L;
+    private static final long DEADLINE = 10000L;
+
+    /**
+     * Test of the opening of the circuit after consecutive transport errors
+     */
+    public void testOpensAfterConsecutiveFailures( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, FAILURE_THRESHOLD, OPEN_DURATION, DEADLINE );
+
+        for ( int i = 1; i < FAILURE_THRESHOLD; i++ )
+        {
+            executeFailing( breaker, transportError( ) );
+            assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+        }
+
+        executeFailing( breaker, transportError( ) );
+        assertEquals( TipiFormsCircuitBreaker.State.OPEN, breaker.getState( ) );
+
+        CountingCall call = new CountingCall( );
+
+        try
+        {
+            breaker.execute( call, breaker.startDeadline( ) );
+            fail( "The call should fail fast" );
+        }
+        catch( TipiFormsCircuitOpenException e )
+        {
+            assertTrue( e.getRetryDelayMillis( ) > 0 );
+        }
+
+        assertEquals( 0, call.getCount( ) );
+    }
+
+    /**
+     * Test of a success, which resets the count of the consecutive failures
+     */
+    public void testSuccessResetsFailures( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, FAILURE_THRESHOLD, OPEN_DURATION, DEADLINE );
+
+        for ( int i = 1; i < FAILURE_THRESHOLD; i++ )
+        {
+            executeFailing( breaker, transportError( ) );
+        }
+
+        breaker.execute( new CountingCall( ), breaker.startDeadline( ) );
+        executeFailing( breaker, transportError( ) );
+
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the local errors, which are not failures of the TIPI service
+     */
+    public void testLocalErrorsAreNotCounted( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, FAILURE_THRESHOLD, OPEN_DURATION, DEADLINE );
+
+        for ( int i = 0; i < FAILURE_THRESHOLD * 2; i++ )
+        {
+            executeFailing( breaker, new AppException( "The question with the following id does not exist : 1" ) );
+        }
+
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of a call exceeding the deadline of its execution, which is a failure
+     */
+    public void testSlowCallIsFailure( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, 1, OPEN_DURATION, DEADLINE );
+
+        breaker.execute( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                sleep( 50L );
+            }
+        }, System.nanoTime( ) + TimeUnit.MILLISECONDS.toNanos( 10L ) );
+
+        assertEquals( TipiFormsCircuitBreaker.State.OPEN, breaker.getState( ) );
+    }
+
+    /**
+     * Test of an execution whose deadline is exceeded before the call
+     */
+    public void testDeadlineExceededBeforeCall( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, FAILURE_THRESHOLD, OPEN_DURATION, DEADLINE );
+        CountingCall call = new CountingCall( );
+
+        try
+        {
+            breaker.execute( call, System.nanoTime( ) - 1L );
+            fail( "The call should not be performed" );
+        }
+        catch( TipiFormsCircuitOpenException e )
+        {
+            assertEquals( 0, call.getCount( ) );
+        }
+
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the closing of the circuit when the test call succeeds
+     */
+    public void testHalfOpenClosesOnSuccess( )
+    {
+        TipiFormsCircuitBreaker breaker = openedBreaker( );
+
+        sleep( OPEN_DURATION + 50L );
+        assertEquals( TipiFormsCircuitBreaker.State.HALF_OPEN, breaker.getState( ) );
+
+        CountingCall call = new CountingCall( );
+        breaker.execute( call, breaker.startDeadline( ) );
+
+        assertEquals( 1, call.getCount( ) );
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the opening of the circuit when the test call fails
+     */
+    public void testHalfOpenReopensOnFailure( )
+    {
+        TipiFormsCircuitBreaker breaker = openedBreaker( );
+
+        sleep( OPEN_DURATION + 50L );
+        executeFailing( breaker, transportError( ) );
+
+        assertEquals( TipiFormsCircuitBreaker.State.OPEN, breaker.getState( ) );
+    }
+
+    /**
+     * Test of a local error during the test call, which lets the next call test the TIPI service
+     */
+    public void testHalfOpenLocalErrorAllowsNextTest( )
+    {
+        TipiFormsCircuitBreaker breaker = openedBreaker( );
+
+        sleep( OPEN_DURATION + 50L );
+        executeFailing( breaker, new AppException( "Invalid amount" ) );
+
+        assertEquals( TipiFormsCircuitBreaker.State.HALF_OPEN, breaker.getState( ) );
+
+        breaker.execute( new CountingCall( ), breaker.startDeadline( ) );
+
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of a disabled circuit breaker, which performs all the calls
+     */
+    public void testDisabled( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( false, 1, OPEN_DURATION, DEADLINE );
+
+        for ( int i = 0; i < FAILURE_THRESHOLD; i++ )
+        {
+            executeFailing( breaker, transportError( ) );
+        }
+
+        CountingCall call = new CountingCall( );
+        breaker.execute( call, breaker.startDeadline( ) );
+
+        assertEquals( 1, call.getCount( ) );
+        assertEquals( TipiFormsCircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+
+    /**
+     * Test of the detection of the transport errors in the causes
+     */
+    public void testIsTipiFailure( )
+    {
+        assertTrue( TipiFormsCircuitBreaker.isTipiFailure( transportError( ) ) );
+        assertTrue( TipiFormsCircuitBreaker.isTipiFailure( new RuntimeException( new AppException( "TIPI error", new SocketTimeoutException( ) ) ) ) );
+        assertFalse( TipiFormsCircuitBreaker.isTipiFailure( new AppException( "Local error" ) ) );
+        assertFalse( TipiFormsCircuitBreaker.isTipiFailure( new IllegalStateException( ) ) );
+    }
+
+    /**
+     * Creates a circuit breaker whose circuit is open
+     *
+     * @return the circuit breaker
+     */
+    private static TipiFormsCircuitBreaker openedBreaker( )
+    {
+        TipiFormsCircuitBreaker breaker = new TipiFormsCircuitBreaker( true, 1, OPEN_DURATION, DEADLINE );
+        executeFailing( breaker, transportError( ) );
+        assertEquals( TipiFormsCircuitBreaker.State.OPEN, breaker.getState( ) );
+
+        return breaker;
+    }
+
+    /**
+     * Performs a call failing with the specified exception
+     *
+     * @param breaker
+     *            the circuit breaker
+     * @param exception
+     *            the exception thrown by the call
+     */
+    private static void executeFailing( TipiFormsCircuitBreaker breaker, final RuntimeException exception )
+    {
+        try
+        {
+            breaker.execute( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    throw exception;
+                }
+            }, breaker.startDeadline( ) );
+            fail( "The call should fail" );
+        }
+        catch( RuntimeException e )
+        {
+            assertSame( exception, e );
+        }
+    }
+
+    /**
+     * Creates an exception thrown by the TIPI module on a transport error
+     *
+     * @return the exception
+     */
+    private static RuntimeException transportError( )
+    {
+        return new AppException( "TIPI error", new SocketTimeoutException( "Read timed out" ) );
+    }
+
+    /**
+     * Sleeps during the specified duration
+     *
+     * @param lMillis
+     *            the duration in milliseconds
+     */
+    private static void sleep( long lMillis )
+    {
+        try
+        {
+            Thread.sleep( lMillis );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * This class is a call counting its executions
+     */
+    private static final class CountingCall implements Runnable
+    {
+        private final AtomicInteger _nCount = new AtomicInteger( );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            _nCount.incrementAndGet( );
+        }
+
+        /**
+         * Gives the number of executions
+         *
+         * @return the number of executions
+         */
+        int getCount( )
+        {
+            return _nCount.get( );
+        }
+    }
+}
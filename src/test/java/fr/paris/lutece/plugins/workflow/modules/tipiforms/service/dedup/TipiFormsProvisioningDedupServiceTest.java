@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the provisioning keys of the class {@link TipiFormsProvisioningDedupService}, and of the duration of their computation. The number of
+ * iterations is defined by the system property {@value #PROPERTY_ITERATIONS}, and the duration is logged
+ *
+ */
+public class TipiFormsProvisioningDedupServiceTest extends LuteceTestCase
+{
+    private static final String PROPERTY_ITERATIONS = "tipiforms.benchmark.iterations";
+    private static final int DEFAULT_ITERATIONS = 20000;
+    private static final long MAX_NANOS_PER_KEY = 50000L;
+    private static final int KEY_LENGTH = 64;
+
+    /**
+     * Test of the keys built from the same values and from different values
+     */
+    public void testBuildProvisioningKey( )
+    {
+        String strKey = TipiFormsProvisioningDedupService.buildProvisioningKey( "REF-001", "1250", "user@example.org" );
+
+        assertEquals( KEY_LENGTH, strKey.length( ) );
+        assertTrue( strKey.matches( "[0-9a-f]+" ) );
+        assertEquals( strKey, TipiFormsProvisioningDedupService.buildProvisioningKey( "REF-001", "1250", "user@example.org" ) );
+        assertFalse( strKey.equals( TipiFormsProvisioningDedupService.buildProvisioningKey( "REF-001", "1251", "user@example.org" ) ) );
+        assertFalse( strKey.equals( TipiFormsProvisioningDedupService.buildProvisioningKey( "REF-0011", "250", "user@example.org" ) ) );
+        assertEquals( TipiFormsProvisioningDedupService.buildProvisioningKey( "", "", "" ), TipiFormsProvisioningDedupService.buildProvisioningKey( null,
+                null, null ) );
+    }
+
+    /**
+     * Test of the duration of the computation of the keys
+     */
+    public void testBuildProvisioningKeyDuration( )
+    {
+        int nIterations = Math.max( 1, Integer.getInteger( PROPERTY_ITERATIONS, DEFAULT_ITERATIONS ) );
+        long lLength = 0L;
+        long lStart = System.nanoTime( );
+
+        for ( int i = 0; i < nIterations; i++ )
+        {
+            lLength += TipiFormsProvisioningDedupService.buildProvisioningKey( "REF-" + i, Integer.toString( i ), "user" + i + "@example.org" ).length( );
+        }
+
+        long lNanosPerKey = ( System.nanoTime( ) - lStart ) / nIterations;
+
+        AppLogService.info( "TIPI forms benchmark provisioning key : iterations=" + nIterations + " ns_per_key=" + lNanosPerKey );
+
+        assertEquals( (long) KEY_LENGTH * nIterations, lLength );
+        assertTrue( "The computation of the provisioning keys is too slow : " + lNanosPerKey + " ns", lNanosPerKey < MAX_NANOS_PER_KEY );
+    }
+}
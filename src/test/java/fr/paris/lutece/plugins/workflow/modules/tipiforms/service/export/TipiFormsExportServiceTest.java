@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.export;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the CSV escaping of the class {@link TipiFormsExportService}
+ *
+ */
+public class TipiFormsExportServiceTest extends LuteceTestCase
+{
+    /**
+     * Test of the values which are not formulas
+     */
+    public void testPlainValues( )
+    {
+        assertEquals( "", TipiFormsExportService.escape( null ) );
+        assertEquals( "", TipiFormsExportService.escape( "" ) );
+        assertEquals( "\"REF-001\"", TipiFormsExportService.escape( "REF-001" ) );
+        assertEquals( "\"1250\"", TipiFormsExportService.escape( "1250" ) );
+        assertEquals( "\"say \"\"hello\"\"\"", TipiFormsExportService.escape( "say \"hello\"" ) );
+    }
+
+    /**
+     * Test of the values starting like a formula, which are prefixed
+     */
+    public void testFormulas( )
+    {
+        assertEquals( "\"'=SUM(A1:A2)\"", TipiFormsExportService.escape( "=SUM(A1:A2)" ) );
+        assertEquals( "\"'+33 1 23 45 67 89\"", TipiFormsExportService.escape( "+33 1 23 45 67 89" ) );
+        assertEquals( "\"'@SUM(A1)\"", TipiFormsExportService.escape( "@SUM(A1)" ) );
+        assertEquals( "\"'\tvalue\"", TipiFormsExportService.escape( "\tvalue" ) );
+        assertEquals( "\"'\rvalue\"", TipiFormsExportService.escape( "\rvalue" ) );
+        assertEquals( "\"'-2+3\"", TipiFormsExportService.escape( "-2+3" ) );
+        assertEquals( "\"'-A1\"", TipiFormsExportService.escape( "-A1" ) );
+    }
+
+    /**
+     * Test of the negative numbers, which are not prefixed
+     */
+    public void testNegativeNumbers( )
+    {
+        assertEquals( "\"-12.50\"", TipiFormsExportService.escape( "-12.50" ) );
+        assertEquals( "\"-12,50\"", TipiFormsExportService.escape( "-12,50" ) );
+        assertEquals( "\"-7\"", TipiFormsExportService.escape( "-7" ) );
+    }
+}
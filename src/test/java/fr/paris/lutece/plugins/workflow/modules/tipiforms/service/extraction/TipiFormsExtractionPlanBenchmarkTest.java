@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.extraction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Timed test of the class {@link TipiFormsExtractionPlan}: the response values of the simple entry types are converted by the raw value fast path of
+ * {@link TipiFormsValueExtractor}, without loading their entry nor their response. The questions of the configuration do not exist, so no extractor is
+ * compiled and any value not taken by the fast path fails. The number of iterations is defined by the system property {@value #PROPERTY_ITERATIONS}, and
+ * the durations are logged
+ *
+ */
+public class TipiFormsExtractionPlanBenchmarkTest extends LuteceTestCase
+{
+    private static final String PROPERTY_ITERATIONS = "tipiforms.benchmark.iterations";
+    private static final int DEFAULT_ITERATIONS = 20000;
+    private static final long MAX_NANOS_PER_VALUE = 20000L;
+    private static final long MAX_NANOS_PER_LOOKUP = 2000L;
+    private static final int ID_FORM = 990021;
+    private static final int ID_QUESTION_REFDET = 990031;
+    private static final int ID_QUESTION_AMOUNT = 990032;
+    private static final int ID_QUESTION_EMAIL = 990033;
+    private static final String ENTRY_TYPE_TEXT = "forms.entryTypeText";
+    private static final String ENTRY_TYPE_CHECKBOX = "forms.entryTypeCheckBox";
+
+    private int _nIterations;
+    private int _nIdQuestionResponse;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _nIterations = Math.max( 1, Integer.getInteger( PROPERTY_ITERATIONS, DEFAULT_ITERATIONS ) );
+    }
+
+    /**
+     * Test of the entry types taken by the raw value fast path, and of the duration of the lookup
+     */
+    public void testRawValueEntryTypes( )
+    {
+        assertTrue( TipiFormsValueExtractor.isRawValueEntryType( ENTRY_TYPE_TEXT ) );
+        assertFalse( TipiFormsValueExtractor.isRawValueEntryType( ENTRY_TYPE_CHECKBOX ) );
+        assertFalse( TipiFormsValueExtractor.isRawValueEntryType( "" ) );
+        assertFalse( TipiFormsValueExtractor.isRawValueEntryType( null ) );
+
+        int nRawValues = 0;
+        long lStart = System.nanoTime( );
+
+        for ( int i = 0; i < _nIterations; i++ )
+        {
+            if ( TipiFormsValueExtractor.isRawValueEntryType( ( i % 2 == 0 ) ? ENTRY_TYPE_TEXT : ENTRY_TYPE_CHECKBOX ) )
+            {
+                nRawValues++;
+            }
+        }
+
+        long lNanosPerLookup = ( System.nanoTime( ) - lStart ) / _nIterations;
+
+        AppLogService.info( "TIPI forms benchmark raw value lookup : iterations=" + _nIterations + " ns_per_lookup=" + lNanosPerLookup );
+
+        assertEquals( ( _nIterations + 1 ) / 2, nRawValues );
+        assertTrue( "The lookup of the raw value entry types is too slow : " + lNanosPerLookup + " ns", lNanosPerLookup < MAX_NANOS_PER_LOOKUP );
+    }
+
+    /**
+     * Test of the duration of the extraction of the values of a form response whose questions are iterated: the value of the last iteration is used
+     */
+    public void testExtractValues( )
+    {
+        TipiFormsExtractionPlan plan = TipiFormsExtractionPlan.compile( createConfig( ) );
+        List<TipiFormsResponseValue> listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+
+        for ( int nIteration = 1; nIteration <= 2; nIteration++ )
+        {
+            listResponseValue.add( createResponseValue( ID_QUESTION_REFDET, "REF-" + nIteration ) );
+            listResponseValue.add( createResponseValue( ID_QUESTION_AMOUNT, "100" + nIteration ) );
+            listResponseValue.add( createResponseValue( ID_QUESTION_EMAIL, "user" + nIteration + "@example.org" ) );
+        }
+
+        Map<Integer, String> mapValues = plan.extractValues( listResponseValue );
+
+        assertEquals( 3, mapValues.size( ) );
+        assertEquals( "REF-2", mapValues.get( ID_QUESTION_REFDET ) );
+        assertEquals( "1002", mapValues.get( ID_QUESTION_AMOUNT ) );
+        assertEquals( "user2@example.org", mapValues.get( ID_QUESTION_EMAIL ) );
+
+        int nValues = 0;
+        long lStart = System.nanoTime( );
+
+        for ( int i = 0; i < _nIterations; i++ )
+        {
+            nValues += plan.extractValues( listResponseValue ).size( );
+        }
+
+        long lNanosPerValue = ( System.nanoTime( ) - lStart ) / ( (long) _nIterations * listResponseValue.size( ) );
+
+        AppLogService.info( "TIPI forms benchmark extraction : iterations=" + _nIterations + " response_values=" + listResponseValue.size( )
+                + " ns_per_value=" + lNanosPerValue );
+
+        assertEquals( 3 * _nIterations, nValues );
+        assertTrue( "The extraction of the raw values is too slow : " + lNanosPerValue + " ns", lNanosPerValue < MAX_NANOS_PER_VALUE );
+    }
+
+    /**
+     * Creates the configuration of the test, whose questions do not exist
+     *
+     * @return the configuration
+     */
+    private static TaskTipiFormsProviderConfig createConfig( )
+    {
+        TaskTipiFormsProviderConfig config = new TaskTipiFormsProviderConfig( );
+        config.setIdForm( ID_FORM );
+        config.setIdRefDetQuestion( ID_QUESTION_REFDET );
+        config.setIdAmountQuestion( ID_QUESTION_AMOUNT );
+        config.setIdEmailQuestion( ID_QUESTION_EMAIL );
+
+        return config;
+    }
+
+    /**
+     * Creates a response value of a text entry
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @param strValue
+     *            the value
+     * @return the response value
+     */
+    private TipiFormsResponseValue createResponseValue( int nIdQuestion, String strValue )
+    {
+        TipiFormsResponseValue responseValue = new TipiFormsResponseValue( );
+        responseValue.setIdQuestion( nIdQuestion );
+        responseValue.setIdQuestionResponse( ++_nIdQuestionResponse );
+        responseValue.setEntryType( ENTRY_TYPE_TEXT );
+        responseValue.setValue( strValue );
+
+        return responseValue;
+    }
+}
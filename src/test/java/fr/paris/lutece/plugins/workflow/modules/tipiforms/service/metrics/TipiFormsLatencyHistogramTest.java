@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the class {@link TipiFormsLatencyHistogram}
+ *
+ */
+public class TipiFormsLatencyHistogramTest extends LuteceTestCase
+{
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    /**
+     * Test of an empty histogram
+     */
+    public void testEmpty( )
+    {
+        TipiFormsLatencyHistogram histogram = new TipiFormsLatencyHistogram( );
+
+        assertEquals( 0L, histogram.getCount( ) );
+        assertEquals( 0L, histogram.getMeanMicros( ) );
+        assertEquals( 0L, histogram.getMaxMicros( ) );
+        assertEquals( 0L, histogram.getPercentileMicros( 50.0 ) );
+    }
+
+    /**
+     * Test of the count, the mean and the maximum
+     */
+    public void testCountMeanMax( )
+    {
+        TipiFormsLatencyHistogram histogram = recordOneToHundred( );
+
+        assertEquals( 100L, histogram.getCount( ) );
+        assertEquals( 50L, histogram.getMeanMicros( ) );
+        assertEquals( 100L, histogram.getMaxMicros( ) );
+    }
+
+    /**
+     * Test of the percentiles: they are the upper bound of their bucket, capped by the maximum
+     */
+    public void testPercentiles( )
+    {
+        TipiFormsLatencyHistogram histogram = recordOneToHundred( );
+
+        // the 50th value falls in the bucket [48, 55]
+        assertEquals( 55L, histogram.getPercentileMicros( 50.0 ) );
+        // the 99th value falls in the bucket [96, 111], capped by the maximum
+        assertEquals( 100L, histogram.getPercentileMicros( 99.0 ) );
+        assertEquals( 100L, histogram.getPercentileMicros( 100.0 ) );
+    }
+
+    /**
+     * Test of the relative error of the percentiles, which must stay lower than 25%
+     */
+    public void testRelativeError( )
+    {
+        for ( long lMicros = 1L; lMicros < 100000000L; lMicros = lMicros * 3 + 1 )
+        {
+            TipiFormsLatencyHistogram histogram = new TipiFormsLatencyHistogram( );
+            histogram.record( lMicros * NANOS_PER_MICRO );
+            histogram.record( lMicros * 10 * NANOS_PER_MICRO );
+
+            long lPercentile = histogram.getPercentileMicros( 50.0 );
+
+            assertTrue( "Percentile lower than the value " + lMicros, lPercentile >= lMicros );
+            assertTrue( "Percentile too far from the value " + lMicros, lPercentile <= lMicros + lMicros / 4 );
+        }
+    }
+
+    /**
+     * Test of a negative duration, recorded as zero
+     */
+    public void testNegativeDuration( )
+    {
+        TipiFormsLatencyHistogram histogram = new TipiFormsLatencyHistogram( );
+        histogram.record( -5L * NANOS_PER_MICRO );
+
+        assertEquals( 1L, histogram.getCount( ) );
+        assertEquals( 0L, histogram.getMaxMicros( ) );
+        assertEquals( 0L, histogram.getPercentileMicros( 100.0 ) );
+    }
+
+    /**
+     * Test of the reset
+     */
+    public void testReset( )
+    {
+        TipiFormsLatencyHistogram histogram = recordOneToHundred( );
+        histogram.reset( );
+
+        assertEquals( 0L, histogram.getCount( ) );
+        assertEquals( 0L, histogram.getMeanMicros( ) );
+        assertEquals( 0L, histogram.getMaxMicros( ) );
+        assertEquals( 0L, histogram.getPercentileMicros( 99.0 ) );
+    }
+
+    /**
+     * Creates a histogram containing the latencies from 1 to 100 microseconds
+     *
+     * @return the histogram
+     */
+    private static TipiFormsLatencyHistogram recordOneToHundred( )
+    {
+        TipiFormsLatencyHistogram histogram = new TipiFormsLatencyHistogram( );
+
+        for ( long lMicros = 1L; lMicros <= 100L; lMicros++ )
+        {
+            histogram.record( lMicros * NANOS_PER_MICRO );
+        }
+
+        return histogram;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the paging and the search by title prefix of the class {@link TipiFormsQuestionIndex}. The eligible entry types are the ones of the properties
+ * of the plugin
+ *
+ */
+public class TipiFormsQuestionIndexTest extends LuteceTestCase
+{
+    private static final String ENTRY_TYPE_TEXT = "forms.entryTypeText";
+    private static final String ENTRY_TYPE_NUMBERING = "forms.entryTypeNumbering";
+    private static final String ENTRY_TYPE_CHECKBOX = "forms.entryTypeCheckBox";
+
+    /**
+     * Test of the paging without prefix, in the order of the form
+     */
+    public void testPagingInFormOrder( )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+
+        for ( int i = 1; i <= 7; i++ )
+        {
+            listQuestion.add( createQuestion( i, "Question " + ( 8 - i ), ENTRY_TYPE_TEXT ) );
+            listQuestion.add( createQuestion( 100 + i, "Choice " + i, ENTRY_TYPE_CHECKBOX ) );
+        }
+
+        TipiFormsQuestionIndex index = new TipiFormsQuestionIndex( listQuestion );
+
+        TipiFormsQuestionPage page = index.search( TipiFormsQuestionRole.EMAIL, null, 1, 3 );
+        assertEquals( 7, page.getTotal( ) );
+        assertEquals( ids( 1, 2, 3 ), idsOf( page ) );
+        assertTrue( page.hasNextPage( ) );
+
+        page = index.search( TipiFormsQuestionRole.EMAIL, " ", 2, 3 );
+        assertEquals( ids( 4, 5, 6 ), idsOf( page ) );
+        assertTrue( page.hasNextPage( ) );
+
+        page = index.search( TipiFormsQuestionRole.EMAIL, null, 3, 3 );
+        assertEquals( ids( 7 ), idsOf( page ) );
+        assertFalse( page.hasNextPage( ) );
+
+        page = index.search( TipiFormsQuestionRole.EMAIL, null, 4, 3 );
+        assertTrue( page.getQuestions( ).isEmpty( ) );
+        assertEquals( 7, page.getTotal( ) );
+        assertFalse( page.hasNextPage( ) );
+    }
+
+    /**
+     * Test of the paging with an invalid page index or page size
+     */
+    public void testPagingBounds( )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+        listQuestion.add( createQuestion( 1, "First", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 2, "Second", ENTRY_TYPE_TEXT ) );
+
+        TipiFormsQuestionIndex index = new TipiFormsQuestionIndex( listQuestion );
+
+        TipiFormsQuestionPage page = index.search( TipiFormsQuestionRole.REFDET, null, 0, 0 );
+        assertEquals( 1, page.getPageIndex( ) );
+        assertEquals( 1, page.getPageSize( ) );
+        assertEquals( ids( 1 ), idsOf( page ) );
+        assertTrue( page.hasNextPage( ) );
+
+        page = index.search( TipiFormsQuestionRole.REFDET, null, Integer.MAX_VALUE, Integer.MAX_VALUE );
+        assertTrue( page.getQuestions( ).isEmpty( ) );
+        assertFalse( page.hasNextPage( ) );
+    }
+
+    /**
+     * Test of the search by title prefix, case and accent insensitive, sorted by title
+     */
+    public void testPrefixSearch( )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+        listQuestion.add( createQuestion( 1, "R\u00e9f\u00e9rence", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 2, "Montant", ENTRY_TYPE_NUMBERING ) );
+        listQuestion.add( createQuestion( 3, "reference client", ENTRY_TYPE_NUMBERING ) );
+        listQuestion.add( createQuestion( 4, "Email", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 5, "REF dossier", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 6, "R\u00e9f\u00e9rences", ENTRY_TYPE_CHECKBOX ) );
+        listQuestion.add( createQuestion( 7, "Prefix", ENTRY_TYPE_TEXT ) );
+
+        TipiFormsQuestionIndex index = new TipiFormsQuestionIndex( listQuestion );
+
+        TipiFormsQuestionPage page = index.search( TipiFormsQuestionRole.REFDET, "ref", 1, 10 );
+        assertEquals( 3, page.getTotal( ) );
+        assertEquals( ids( 5, 1, 3 ), idsOf( page ) );
+
+        page = index.search( TipiFormsQuestionRole.REFDET, "  R\u00c9F\u00c9 ", 1, 10 );
+        assertEquals( ids( 1, 3 ), idsOf( page ) );
+
+        page = index.search( TipiFormsQuestionRole.REFDET, "ref", 2, 2 );
+        assertEquals( 3, page.getTotal( ) );
+        assertEquals( ids( 3 ), idsOf( page ) );
+
+        page = index.search( TipiFormsQuestionRole.EMAIL, "ref", 1, 10 );
+        assertEquals( ids( 5, 1 ), idsOf( page ) );
+
+        page = index.search( TipiFormsQuestionRole.REFDET, "unknown", 1, 10 );
+        assertEquals( 0, page.getTotal( ) );
+        assertTrue( page.getQuestions( ).isEmpty( ) );
+    }
+
+    /**
+     * Test of the search of questions with the same title
+     */
+    public void testPrefixSearchSameTitle( )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+        listQuestion.add( createQuestion( 1, "Email", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 2, "E-mail", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 3, "email", ENTRY_TYPE_TEXT ) );
+
+        TipiFormsQuestionIndex index = new TipiFormsQuestionIndex( listQuestion );
+
+        TipiFormsQuestionPage page = index.search( TipiFormsQuestionRole.EMAIL, "em", 1, 10 );
+        assertEquals( ids( 1, 3 ), idsOf( page ) );
+
+        page = index.search( TipiFormsQuestionRole.EMAIL, "e", 1, 10 );
+        assertEquals( ids( 2, 1, 3 ), idsOf( page ) );
+    }
+
+    /**
+     * Test of the lookup and the eligibility of the questions
+     */
+    public void testEligibility( )
+    {
+        List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+        listQuestion.add( createQuestion( 1, "Montant", ENTRY_TYPE_TEXT ) );
+        listQuestion.add( createQuestion( 2, "Choix", ENTRY_TYPE_CHECKBOX ) );
+        listQuestion.add( createQuestion( 4, "Num\u00e9ro", ENTRY_TYPE_NUMBERING ) );
+
+        TipiFormsQuestionIndex index = new TipiFormsQuestionIndex( listQuestion );
+
+        assertEquals( "Montant", index.getQuestion( 1 ).getTitle( ) );
+        assertNotNull( index.getQuestion( 2 ) );
+        assertNull( index.getQuestion( 3 ) );
+        assertTrue( index.isEligible( TipiFormsQuestionRole.AMOUNT, 1 ) );
+        assertFalse( index.isEligible( TipiFormsQuestionRole.AMOUNT, 2 ) );
+        assertFalse( index.isEligible( TipiFormsQuestionRole.AMOUNT, 3 ) );
+        assertTrue( index.isEligible( TipiFormsQuestionRole.REFDET, 4 ) );
+        assertFalse( index.isEligible( TipiFormsQuestionRole.AMOUNT, 4 ) );
+        assertFalse( index.isEligible( TipiFormsQuestionRole.EMAIL, 4 ) );
+    }
+
+    /**
+     * Creates a question
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @param strTitle
+     *            the title
+     * @param strEntryType
+     *            the bean name of the entry type
+     * @return the question
+     */
+    private static TipiFormsQuestion createQuestion( int nIdQuestion, String strTitle, String strEntryType )
+    {
+        TipiFormsQuestion question = new TipiFormsQuestion( );
+        question.setIdQuestion( nIdQuestion );
+        question.setTitle( strTitle );
+        question.setEntryType( strEntryType );
+
+        return question;
+    }
+
+    /**
+     * Gives the question ids of the specified page
+     *
+     * @param page
+     *            the page
+     * @return the question ids
+     */
+    private static List<Integer> idsOf( TipiFormsQuestionPage page )
+    {
+        List<Integer> listId = new ArrayList<Integer>( );
+
+        for ( TipiFormsQuestion question : page.getQuestions( ) )
+        {
+            listId.add( question.getIdQuestion( ) );
+        }
+
+        return listId;
+    }
+
+    /**
+     * Gives the specified question ids as a list
+     *
+     * @param nIdQuestions
+     *            the question ids
+     * @return the list
+     */
+    private static List<Integer> ids( int... nIdQuestions )
+    {
+        List<Integer> listId = new ArrayList<Integer>( );
+
+        for ( int nIdQuestion : nIdQuestions )
+        {
+            listId.add( nIdQuestion );
+        }
+
+        return listId;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.ITipiFormsProvisioningCallback;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.TipiFormsProvisioningExecutor;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitBreaker;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture.TipiFormsCaptureService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup.TipiFormsProvisioningDedupService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.metrics.TipiFormsLatencyHistogram;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Load harness of the class {@link TipiFormsProviderTask}: a batch of resource histories is provisioned in parallel through
+ * {@link TipiFormsProviderTask#processTasks(List, Locale, ForkJoinPool, fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCallThrottle, ITipiFormsProvisioningCallback)
+ * processTasks}, then through the {@link TipiFormsProvisioningExecutor}. The TIPI call is stubbed: it reads the values to transmit and waits during a
+ * simulated latency. The DAOs and the resource history service are the stubs of {@link TipiFormsProviderTaskTest}. The size of the load is defined by
+ * the system properties {@value #PROPERTY_RESOURCE_HISTORIES}, {@value #PROPERTY_TIPI_LATENCY} (in milliseconds) and {@value #PROPERTY_CONCURRENCY}.
+ * The throughput and the latencies are logged
+ *
+ */
+public class TipiFormsProviderTaskLoadTest extends LuteceTestCase
+{
+    private static final String PROPERTY_RESOURCE_HISTORIES = "tipiforms.load.resourceHistories";
+    private static final String PROPERTY_TIPI_LATENCY = "tipiforms.load.tipiLatency";
+    private static final String PROPERTY_CONCURRENCY = "tipiforms.load.concurrency";
+    private static final int DEFAULT_RESOURCE_HISTORIES = 400;
+    private static final int DEFAULT_TIPI_LATENCY = 5;
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int ID_TASK = 990002;
+    private static final int ID_RESOURCE_BASE = 100000;
+    private static final long DEADLINE = 10000L;
+
+    private final TipiFormsProviderTaskTest.CountingConfigDAO _configDAO = new TipiFormsProviderTaskTest.CountingConfigDAO( );
+    private final TipiFormsProviderTaskTest.CountingResponseValueDAO _responseValueDAO = new TipiFormsProviderTaskTest.CountingResponseValueDAO( );
+    private final TipiFormsProviderTaskTest.StubResourceHistoryService _resourceHistoryService = new TipiFormsProviderTaskTest.StubResourceHistoryService( );
+    private int _nResourceHistories;
+    private int _nTipiLatencyMillis;
+    private int _nConcurrency;
+    private int _nIdQuestionResponse;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _nResourceHistories = Math.max( 1, Integer.getInteger( PROPERTY_RESOURCE_HISTORIES, DEFAULT_RESOURCE_HISTORIES ) );
+        _nTipiLatencyMillis = Math.max( 1, Integer.getInteger( PROPERTY_TIPI_LATENCY, DEFAULT_TIPI_LATENCY ) );
+        _nConcurrency = Math.max( 2, Integer.getInteger( PROPERTY_CONCURRENCY, DEFAULT_CONCURRENCY ) );
+    }
+
+    /**
+     * Load of a batch provisioned in parallel: each resource history is provisioned once with its own values, and the TIPI calls overlap
+     */
+    public void testBatchLoad( )
+    {
+        List<ResourceHistory> listResourceHistory = createResourceHistories( );
+        LoadTask task = new LoadTask( null );
+        final AtomicInteger nSucceeded = new AtomicInteger( );
+        final AtomicInteger nFailed = new AtomicInteger( );
+        ForkJoinPool pool = new ForkJoinPool( _nConcurrency );
+
+        long lStart = System.nanoTime( );
+
+        try
+        {
+            task.processTasks( listResourceHistory, Locale.FRENCH, pool, null, new ITipiFormsProvisioningCallback( )
+            {
+                @Override
+                public void onSuccess( int nIdResourceHistory )
+                {
+                    nSucceeded.incrementAndGet( );
+                }
+
+                @Override
+                public void onFailure( int nIdResourceHistory, Exception exception )
+                {
+                    nFailed.incrementAndGet( );
+                }
+            } );
+        }
+        finally
+        {
+            pool.shutdown( );
+        }
+
+        long lElapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart );
+        report( "batch", task, lElapsedMillis );
+
+        assertEquals( 0, nFailed.get( ) );
+        assertEquals( _nResourceHistories, nSucceeded.get( ) );
+        assertProvisioned( task, listResourceHistory );
+        assertEquals( 0, _responseValueDAO.getSelectCount( ) );
+        assertTrue( "The TIPI calls are not performed in parallel : " + lElapsedMillis + " ms", lElapsedMillis < getSequentialMillis( ) / 2 );
+    }
+
+    /**
+     * Load of provisionings submitted to the asynchronous executor: the submission does not wait for the TIPI calls, and each resource history is
+     * provisioned once with its own values
+     */
+    public void testAsyncLoad( )
+    {
+        List<ResourceHistory> listResourceHistory = createResourceHistories( );
+        TipiFormsProvisioningExecutor executor = new TipiFormsProvisioningExecutor( _nConcurrency, _nResourceHistories, 0 );
+        LoadTask task = new LoadTask( executor );
+
+        long lStart = System.nanoTime( );
+
+        for ( ResourceHistory resourceHistory : listResourceHistory )
+        {
+            task.submitted( resourceHistory.getId( ) );
+            task.processTask( resourceHistory.getId( ), null, Locale.FRENCH );
+        }
+
+        long lSubmitMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart );
+
+        // the waiting provisionings are executed before the executor stops
+        executor.shutdown( );
+
+        long lElapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart );
+        report( "async", task, lElapsedMillis );
+        AppLogService.info( "TIPI forms load test async : submission_ms=" + lSubmitMillis );
+
+        assertProvisioned( task, listResourceHistory );
+        assertEquals( _nResourceHistories, task.getQueueLatencies( ).getCount( ) );
+        assertTrue( "The submission waits for the TIPI calls : " + lSubmitMillis + " ms", lSubmitMillis < getSequentialMillis( ) / 4 );
+        assertTrue( "The TIPI calls are not performed in parallel : " + lElapsedMillis + " ms", lElapsedMillis < getSequentialMillis( ) / 2 );
+    }
+
+    /**
+     * Checks that each resource history has been provisioned once, with its own values
+     *
+     * @param task
+     *            the task
+     * @param listResourceHistory
+     *            the resource histories
+     */
+    private void assertProvisioned( LoadTask task, List<ResourceHistory> listResourceHistory )
+    {
+        assertEquals( _nResourceHistories, task.getCallCount( ) );
+
+        for ( ResourceHistory resourceHistory : listResourceHistory )
+        {
+            assertEquals( "REF-" + resourceHistory.getIdResource( ), task.getRefDet( resourceHistory.getId( ) ) );
+        }
+    }
+
+    /**
+     * Logs the throughput and the latencies of the TIPI calls of the specified task
+     *
+     * @param strMode
+     *            the mode of the provisionings
+     * @param task
+     *            the task
+     * @param lElapsedMillis
+     *            the duration of the load
+     */
+    private void report( String strMode, LoadTask task, long lElapsedMillis )
+    {
+        TipiFormsLatencyHistogram histogram = task.getQueueLatencies( );
+
+        AppLogService.info( "TIPI forms load test " + strMode + " : resource_histories=" + _nResourceHistories + " tipi_latency_ms=" + _nTipiLatencyMillis
+                + " concurrency=" + _nConcurrency + " elapsed_ms=" + lElapsedMillis + " throughput_per_s=" + ( _nResourceHistories * 1000L / Math.max( 1L,
+                        lElapsedMillis ) ) + " queue_p50_us=" + histogram.getPercentileMicros( 50.0 ) + " queue_p99_us="
+                + histogram.getPercentileMicros( 99.0 ) + " queue_max_us=" + histogram.getMaxMicros( ) );
+    }
+
+    /**
+     * Gives the duration of the TIPI calls if they were performed one after the other
+     *
+     * @return the duration in milliseconds
+     */
+    private long getSequentialMillis( )
+    {
+        return (long) _nResourceHistories * _nTipiLatencyMillis;
+    }
+
+    /**
+     * Creates the resource histories of the load, with their response values
+     *
+     * @return the resource histories
+     */
+    private List<ResourceHistory> createResourceHistories( )
+    {
+        List<ResourceHistory> listResourceHistory = new ArrayList<ResourceHistory>( _nResourceHistories );
+
+        for ( int i = 1; i <= _nResourceHistories; i++ )
+        {
+            int nIdResource = ID_RESOURCE_BASE + i;
+
+            ResourceHistory resourceHistory = new ResourceHistory( );
+            resourceHistory.setId( nIdResource );
+            resourceHistory.setIdResource( nIdResource );
+            resourceHistory.setResourceType( FormResponse.RESOURCE_TYPE );
+            _resourceHistoryService.add( resourceHistory );
+
+            _responseValueDAO.add( createResponseValue( nIdResource, TipiFormsProviderTaskTest.ID_QUESTION_REFDET, "REF-" + nIdResource ) );
+            _responseValueDAO.add( createResponseValue( nIdResource, TipiFormsProviderTaskTest.ID_QUESTION_AMOUNT, "1000" ) );
+            _responseValueDAO.add( createResponseValue( nIdResource, TipiFormsProviderTaskTest.ID_QUESTION_EMAIL, "user" + nIdResource + "@example.org" ) );
+
+            listResourceHistory.add( resourceHistory );
+        }
+
+        return listResourceHistory;
+    }
+
+    /**
+     * Creates a response value of a text entry
+     *
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdQuestion
+     *            the question id
+     * @param strValue
+     *            the value
+     * @return the response value
+     */
+    private TipiFormsResponseValue createResponseValue( int nIdFormResponse, int nIdQuestion, String strValue )
+    {
+        TipiFormsResponseValue responseValue = new TipiFormsResponseValue( );
+        responseValue.setIdFormResponse( nIdFormResponse );
+        responseValue.setIdQuestion( nIdQuestion );
+        responseValue.setIdQuestionResponse( ++_nIdQuestionResponse );
+        responseValue.setEntryType( TipiFormsProviderTaskTest.ENTRY_TYPE_TEXT );
+        responseValue.setValue( strValue );
+
+        return responseValue;
+    }
+
+    /**
+     * This class is a task whose TIPI call reads the values to transmit and waits during the simulated latency. It is isolated from the shared services:
+     * it uses its own executor and circuit breaker, without capture nor detection of the replays
+     */
+    private final class LoadTask extends TipiFormsProviderTask
+    {
+        private final TipiFormsProvisioningExecutor _executor;
+        private final TipiFormsCircuitBreaker _circuitBreaker = new TipiFormsCircuitBreaker( false, 1, 0L, DEADLINE );
+        private final AtomicInteger _nCallCount = new AtomicInteger( );
+        private final Map<Integer, String> _mapRefDet = new ConcurrentHashMap<Integer, String>( );
+        private final Map<Integer, Long> _mapSubmission = new ConcurrentHashMap<Integer, Long>( );
+        private final TipiFormsLatencyHistogram _queueLatencies = new TipiFormsLatencyHistogram( );
+
+        /**
+         * Constructor
+         *
+         * @param executor
+         *            the executor of the asynchronous provisionings, or {@code null} to provision in the calling thread
+         */
+        LoadTask( TipiFormsProvisioningExecutor executor )
+        {
+            super( _configDAO, _responseValueDAO, new TipiFormsProviderTaskTest.NoopExecutionDAO( ), _resourceHistoryService, null, null );
+
+            _executor = executor;
+            setId( ID_TASK );
+        }
+
+        /**
+         * Records the submission of the provisioning of the specified resource history
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         */
+        void submitted( int nIdResourceHistory )
+        {
+            _mapSubmission.put( nIdResourceHistory, System.nanoTime( ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void performTipiCall( int nIdResourceHistory, HttpServletRequest request, Locale locale )
+        {
+            Long lSubmission = _mapSubmission.get( nIdResourceHistory );
+
+            if ( lSubmission != null )
+            {
+                _queueLatencies.record( System.nanoTime( ) - lSubmission );
+            }
+
+            ResourceHistory resourceHistory = _resourceHistoryService.get( nIdResourceHistory );
+            _mapRefDet.put( nIdResourceHistory, provideRefDet( resourceHistory ) );
+            provideAmount( resourceHistory );
+            provideEmail( resourceHistory );
+
+            try
+            {
+                Thread.sleep( _nTipiLatencyMillis );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+
+            _nCallCount.incrementAndGet( );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsProvisioningExecutor getExecutor( )
+        {
+            return _executor;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsCircuitBreaker getCircuitBreaker( )
+        {
+            return _circuitBreaker;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsProvisioningDedupService getDedupService( )
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsCaptureService getCaptureService( )
+        {
+            return null;
+        }
+
+        /**
+         * Gives the number of TIPI calls
+         *
+         * @return the number of calls
+         */
+        int getCallCount( )
+        {
+            return _nCallCount.get( );
+        }
+
+        /**
+         * Gives the RefDet transmitted for the specified resource history
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @return the RefDet
+         */
+        String getRefDet( int nIdResourceHistory )
+        {
+            return _mapRefDet.get( nIdResourceHistory );
+        }
+
+        /**
+         * Gives the latencies between the submission of the provisionings and their TIPI call. Only the submitted provisionings are recorded
+         *
+         * @return the latencies
+         */
+        TipiFormsLatencyHistogram getQueueLatencies( )
+        {
+            return _queueLatencies;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecution;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.execution.TipiFormsProviderExecutionDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValue;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.response.TipiFormsResponseValueDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfigDAO;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.async.TipiFormsProvisioningExecutor;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.breaker.TipiFormsCircuitBreaker;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.capture.TipiFormsCaptureService;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.dedup.TipiFormsProvisioningDedupService;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
+import fr.paris.lutece.plugins.workflowcore.service.resource.ResourceHistoryService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the database round trips of the class {@link TipiFormsProviderTask}: the values of a form response are resolved once per execution, whatever
+ * the number of values read by the TIPI call. The DAOs count their calls instead of reaching the database, and the TIPI call only reads the values. The
+ * task is isolated from the shared services: it runs synchronously, through its own circuit breaker, without capture nor detection of the replays. The
+ * stubs are shared with {@link TipiFormsProviderTaskLoadTest}
+ *
+ */
+public class TipiFormsProviderTaskTest extends LuteceTestCase
+{
+    private static final int ID_TASK = 990001;
+    private static final int ID_FORM = 990001;
+    static final int ID_QUESTION_REFDET = 990011;
+    static final int ID_QUESTION_AMOUNT = 990012;
+    static final int ID_QUESTION_EMAIL = 990013;
+    private static final int ID_RESOURCE_BASE = 1000;
+    private static final long DEADLINE = 10000L;
+    static final String ENTRY_TYPE_TEXT = "forms.entryTypeText";
+
+    private final CountingConfigDAO _configDAO = new CountingConfigDAO( );
+    private final CountingResponseValueDAO _responseValueDAO = new CountingResponseValueDAO( );
+    private final StubResourceHistoryService _resourceHistoryService = new StubResourceHistoryService( );
+    private ReadingTask _task;
+    private int _nIdQuestionResponse;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _task = new ReadingTask( _configDAO, _responseValueDAO, _resourceHistoryService );
+        _task.setId( ID_TASK );
+    }
+
+    /**
+     * Test of an execution: the configuration and the response values are read once for the three values
+     */
+    public void testProcessTaskRoundTrips( )
+    {
+        ResourceHistory resourceHistory = createResourceHistory( 1 );
+
+        _task.processTask( resourceHistory.getId( ), null, Locale.FRENCH );
+
+        assertEquals( 1, _resourceHistoryService.getFindCount( ) );
+        assertEquals( 1, _configDAO.getLoadCount( ) );
+        assertEquals( 1, _responseValueDAO.getSelectCount( ) );
+        assertEquals( 0, _responseValueDAO.getSelectListCount( ) );
+        assertEquals( 3, _task.getReadCount( ) );
+        assertEquals( "REF-" + resourceHistory.getIdResource( ), _task.getRefDet( resourceHistory.getId( ) ) );
+        assertEquals( Integer.valueOf( 1000 ), _task.getAmount( resourceHistory.getId( ) ) );
+        assertEquals( "user" + resourceHistory.getIdResource( ) + "@example.org", _task.getEmail( resourceHistory.getId( ) ) );
+    }
+
+    /**
+     * Test of a batch execution: the configuration is read once, and the response values of all the form responses are read with one query
+     */
+    public void testProcessTasksRoundTrips( )
+    {
+        List<ResourceHistory> listResourceHistory = new ArrayList<ResourceHistory>( );
+
+        for ( int i = 1; i <= 5; i++ )
+        {
+            listResourceHistory.add( createResourceHistory( i ) );
+        }
+
+        TipiFormsProviderBatchResult result = _task.processTasks( listResourceHistory, null, Locale.FRENCH );
+
+        assertFalse( result.hasFailures( ) );
+        assertEquals( listResourceHistory.size( ), result.getSucceeded( ).size( ) );
+        assertEquals( 1, _configDAO.getLoadCount( ) );
+        assertEquals( 0, _responseValueDAO.getSelectCount( ) );
+        assertEquals( 1, _responseValueDAO.getSelectListCount( ) );
+        assertEquals( 3 * listResourceHistory.size( ), _task.getReadCount( ) );
+
+        for ( ResourceHistory resourceHistory : listResourceHistory )
+        {
+            assertEquals( "REF-" + resourceHistory.getIdResource( ), _task.getRefDet( resourceHistory.getId( ) ) );
+        }
+    }
+
+    /**
+     * Creates a resource history of a form response, with its response values
+     *
+     * @param nIndex
+     *            the index of the resource history in the test
+     * @return the resource history
+     */
+    private ResourceHistory createResourceHistory( int nIndex )
+    {
+        int nIdResource = ID_RESOURCE_BASE + nIndex;
+
+        ResourceHistory resourceHistory = new ResourceHistory( );
+        resourceHistory.setId( nIdResource );
+        resourceHistory.setIdResource( nIdResource );
+        resourceHistory.setResourceType( FormResponse.RESOURCE_TYPE );
+        _resourceHistoryService.add( resourceHistory );
+
+        _responseValueDAO.add( createResponseValue( nIdResource, ID_QUESTION_REFDET, "REF-" + nIdResource ) );
+        _responseValueDAO.add( createResponseValue( nIdResource, ID_QUESTION_AMOUNT, "1000" ) );
+        _responseValueDAO.add( createResponseValue( nIdResource, ID_QUESTION_EMAIL, "user" + nIdResource + "@example.org" ) );
+
+        return resourceHistory;
+    }
+
+    /**
+     * Creates a response value of a text entry
+     *
+     * @param nIdFormResponse
+     *            the form response id
+     * @param nIdQuestion
+     *            the question id
+     * @param strValue
+     *            the value
+     * @return the response value
+     */
+    private TipiFormsResponseValue createResponseValue( int nIdFormResponse, int nIdQuestion, String strValue )
+    {
+        TipiFormsResponseValue responseValue = new TipiFormsResponseValue( );
+        responseValue.setIdFormResponse( nIdFormResponse );
+        responseValue.setIdQuestion( nIdQuestion );
+        responseValue.setIdQuestionResponse( ++_nIdQuestionResponse );
+        responseValue.setEntryType( ENTRY_TYPE_TEXT );
+        responseValue.setValue( strValue );
+
+        return responseValue;
+    }
+
+    /**
+     * This class is a task whose TIPI call only reads the values to transmit
+     */
+    private static final class ReadingTask extends TipiFormsProviderTask
+    {
+        private final StubResourceHistoryService _resourceHistoryService;
+        private final TipiFormsCircuitBreaker _circuitBreaker = new TipiFormsCircuitBreaker( false, 1, 0L, DEADLINE );
+        private final AtomicInteger _nReadCount = new AtomicInteger( );
+        private final Map<Integer, String> _mapRefDet = new HashMap<Integer, String>( );
+        private final Map<Integer, Integer> _mapAmount = new HashMap<Integer, Integer>( );
+        private final Map<Integer, String> _mapEmail = new HashMap<Integer, String>( );
+
+        /**
+         * Constructor
+         *
+         * @param configDAO
+         *            the configuration DAO
+         * @param responseValueDAO
+         *            the response value DAO
+         * @param resourceHistoryService
+         *            the resource history service
+         */
+        ReadingTask( TaskTipiFormsProviderConfigDAO configDAO, TipiFormsResponseValueDAO responseValueDAO, StubResourceHistoryService resourceHistoryService )
+        {
+            super( configDAO, responseValueDAO, new NoopExecutionDAO( ), resourceHistoryService, null, null );
+
+            _resourceHistoryService = resourceHistoryService;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void performTipiCall( int nIdResourceHistory, HttpServletRequest request, Locale locale )
+        {
+            ResourceHistory resourceHistory = _resourceHistoryService.get( nIdResourceHistory );
+
+            synchronized( this )
+            {
+                _mapRefDet.put( nIdResourceHistory, provideRefDet( resourceHistory ) );
+                _mapAmount.put( nIdResourceHistory, provideAmount( resourceHistory ) );
+                _mapEmail.put( nIdResourceHistory, provideEmail( resourceHistory ) );
+            }
+
+            _nReadCount.addAndGet( 3 );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsProvisioningExecutor getExecutor( )
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsCircuitBreaker getCircuitBreaker( )
+        {
+            return _circuitBreaker;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsProvisioningDedupService getDedupService( )
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsCaptureService getCaptureService( )
+        {
+            return null;
+        }
+
+        /**
+         * Gives the number of values read by the TIPI calls
+         *
+         * @return the number of values
+         */
+        int getReadCount( )
+        {
+            return _nReadCount.get( );
+        }
+
+        /**
+         * Gives the RefDet read for the specified resource history
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @return the RefDet
+         */
+        synchronized String getRefDet( int nIdResourceHistory )
+        {
+            return _mapRefDet.get( nIdResourceHistory );
+        }
+
+        /**
+         * Gives the amount read for the specified resource history
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @return the amount
+         */
+        synchronized Integer getAmount( int nIdResourceHistory )
+        {
+            return _mapAmount.get( nIdResourceHistory );
+        }
+
+        /**
+         * Gives the email read for the specified resource history
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @return the email
+         */
+        synchronized String getEmail( int nIdResourceHistory )
+        {
+            return _mapEmail.get( nIdResourceHistory );
+        }
+    }
+
+    /**
+     * This class is a configuration DAO counting the loads
+     */
+    static final class CountingConfigDAO extends TaskTipiFormsProviderConfigDAO
+    {
+        private final AtomicInteger _nLoadCount = new AtomicInteger( );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public TaskTipiFormsProviderConfig load( int nIdTask )
+        {
+            _nLoadCount.incrementAndGet( );
+
+            TaskTipiFormsProviderConfig config = new TaskTipiFormsProviderConfig( );
+            config.setIdTask( nIdTask );
+            config.setIdForm( ID_FORM );
+            config.setIdRefDetQuestion( ID_QUESTION_REFDET );
+            config.setIdAmountQuestion( ID_QUESTION_AMOUNT );
+            config.setIdEmailQuestion( ID_QUESTION_EMAIL );
+
+            return config;
+        }
+
+        /**
+         * Gives the number of loads
+         *
+         * @return the number of loads
+         */
+        int getLoadCount( )
+        {
+            return _nLoadCount.get( );
+        }
+    }
+
+    /**
+     * This class is a response value DAO counting the queries
+     */
+    static final class CountingResponseValueDAO extends TipiFormsResponseValueDAO
+    {
+        private final List<TipiFormsResponseValue> _listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+        private final AtomicInteger _nSelectCount = new AtomicInteger( );
+        private final AtomicInteger _nSelectListCount = new AtomicInteger( );
+
+        /**
+         * Adds a response value
+         *
+         * @param responseValue
+         *            the response value
+         */
+        void add( TipiFormsResponseValue responseValue )
+        {
+            _listResponseValue.add( responseValue );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<TipiFormsResponseValue> selectByFormResponse( int nIdFormResponse, int nIdRefDetQuestion, int nIdAmountQuestion, int nIdEmailQuestion )
+        {
+            _nSelectCount.incrementAndGet( );
+
+            List<TipiFormsResponseValue> listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+
+            for ( TipiFormsResponseValue responseValue : _listResponseValue )
+            {
+                if ( responseValue.getIdFormResponse( ) == nIdFormResponse )
+                {
+                    listResponseValue.add( responseValue );
+                }
+            }
+
+            return listResponseValue;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<TipiFormsResponseValue> selectByFormResponseList( List<Integer> listIdFormResponse, int nIdRefDetQuestion, int nIdAmountQuestion,
+                int nIdEmailQuestion )
+        {
+            _nSelectListCount.incrementAndGet( );
+
+            List<TipiFormsResponseValue> listResponseValue = new ArrayList<TipiFormsResponseValue>( );
+
+            for ( TipiFormsResponseValue responseValue : _listResponseValue )
+            {
+                if ( listIdFormResponse.contains( responseValue.getIdFormResponse( ) ) )
+                {
+                    listResponseValue.add( responseValue );
+                }
+            }
+
+            return listResponseValue;
+        }
+
+        /**
+         * Gives the number of queries for one form response
+         *
+         * @return the number of queries
+         */
+        int getSelectCount( )
+        {
+            return _nSelectCount.get( );
+        }
+
+        /**
+         * Gives the number of queries for several form responses
+         *
+         * @return the number of queries
+         */
+        int getSelectListCount( )
+        {
+            return _nSelectListCount.get( );
+        }
+    }
+
+    /**
+     * This class is an execution DAO which records nothing
+     */
+    static final class NoopExecutionDAO extends TipiFormsProviderExecutionDAO
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void insert( TipiFormsProviderExecution execution )
+        {
+            // nothing to record
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public TipiFormsProviderExecution load( int nIdHistory, int nIdTask )
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void store( TipiFormsProviderExecution execution )
+        {
+            // nothing to record
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void delete( int nIdHistory, int nIdTask )
+        {
+            // nothing to record
+        }
+    }
+
+    /**
+     * This class is a resource history service serving the resource histories of the test and counting the loads
+     */
+    static final class StubResourceHistoryService extends ResourceHistoryService
+    {
+        private final Map<Integer, ResourceHistory> _mapResourceHistory = new HashMap<Integer, ResourceHistory>( );
+        private final AtomicInteger _nFindCount = new AtomicInteger( );
+
+        /**
+         * Adds a resource history
+         *
+         * @param resourceHistory
+         *            the resource history
+         */
+        void add( ResourceHistory resourceHistory )
+        {
+            _mapResourceHistory.put( resourceHistory.getId( ), resourceHistory );
+        }
+
+        /**
+         * Gives the specified resource history without counting a load
+         *
+         * @param nIdResourceHistory
+         *            the resource history id
+         * @return the resource history
+         */
+        ResourceHistory get( int nIdResourceHistory )
+        {
+            return _mapResourceHistory.get( nIdResourceHistory );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ResourceHistory findByPrimaryKey( int nIdResourceHistory )
+        {
+            _nFindCount.incrementAndGet( );
+
+            return _mapResourceHistory.get( nIdResourceHistory );
+        }
+
+        /**
+         * Gives the number of loads
+         *
+         * @return the number of loads
+         */
+        int getFindCount( )
+        {
+            return _nFindCount.get( );
+        }
+    }
+}
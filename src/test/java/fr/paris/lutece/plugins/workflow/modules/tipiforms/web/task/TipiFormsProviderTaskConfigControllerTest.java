@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.question.TipiFormsQuestion;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.business.task.TaskTipiFormsProviderConfig;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.question.TipiFormsQuestionIndex;
+import fr.paris.lutece.plugins.workflow.modules.tipiforms.service.task.TipiFormsProviderTask;
+import fr.paris.lutece.plugins.workflowcore.business.config.ITaskConfig;
+import fr.paris.lutece.plugins.workflowcore.service.config.ITaskConfigService;
+import fr.paris.lutece.plugins.workflowcore.service.task.ITask;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ *
+ * Test of the storage of the configuration by the class {@link TipiFormsProviderTaskConfigController}. The configurations are stored in memory, and the
+ * questions of the form are given by the test
+ *
+ */
+public class TipiFormsProviderTaskConfigControllerTest extends LuteceTestCase
+{
+    private static final int ID_TASK = 1;
+    private static final int ID_FORM = 10;
+    private static final int ID_OTHER_FORM = 20;
+    private static final int ID_QUESTION_REFDET = 101;
+    private static final int ID_QUESTION_AMOUNT = 102;
+    private static final int ID_QUESTION_EMAIL = 103;
+    private static final int ID_QUESTION_OTHER_EMAIL = 104;
+    private static final String ENTRY_TYPE_TEXT = "forms.entryTypeText";
+    private static final String PARAMETER_APPLY = "apply";
+    private static final String ACTION_CHANGE_FORM = "changeForm";
+
+    private InMemoryTaskConfigService _taskConfigService;
+    private ITask _task;
+    private List<TaskTipiFormsProviderConfig [ ]> _listRemovedCaptures;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        _taskConfigService = new InMemoryTaskConfigService( );
+        _listRemovedCaptures = new ArrayList<TaskTipiFormsProviderConfig [ ]>( );
+        _task = new TipiFormsProviderTask( null, null, null, null, null, null );
+        _task.setId( ID_TASK );
+    }
+
+    /**
+     * Test of the save of the configuration of a brand-new task: the configuration is created, then read back
+     */
+    public void testSaveNewConfig( )
+    {
+        String strErrorUrl = createController( ).performAction( createSaveRequest( ) );
+
+        assertNull( strErrorUrl );
+        assertEquals( 1, _taskConfigService.getCreateCount( ) );
+        assertEquals( 0, _taskConfigService.getUpdateCount( ) );
+
+        TaskTipiFormsProviderConfig config = _taskConfigService.findByPrimaryKey( ID_TASK );
+        assertNotNull( config );
+        assertEquals( ID_TASK, config.getIdTask( ) );
+        assertEquals( ID_FORM, config.getIdForm( ) );
+        assertEquals( ID_QUESTION_REFDET, config.getIdRefDetQuestion( ) );
+        assertEquals( ID_QUESTION_AMOUNT, config.getIdAmountQuestion( ) );
+        assertEquals( ID_QUESTION_EMAIL, config.getIdEmailQuestion( ) );
+
+        assertEquals( 1, _listRemovedCaptures.size( ) );
+        assertNull( _listRemovedCaptures.get( 0 ) [0] );
+    }
+
+    /**
+     * Test of the save of the configuration of a task already configured: the stored configuration is updated
+     */
+    public void testSaveStoredConfig( )
+    {
+        createController( ).performAction( createSaveRequest( ) );
+        String strErrorUrl = createController( ).performAction( createSaveRequest( ) );
+
+        assertNull( strErrorUrl );
+        assertEquals( 1, _taskConfigService.getCreateCount( ) );
+        assertEquals( 1, _taskConfigService.getUpdateCount( ) );
+        assertNotNull( _taskConfigService.findByPrimaryKey( ID_TASK ) );
+    }
+
+    /**
+     * Test of the save of a configuration whose email question changes: the captures are removed with the stored configuration and the saved one
+     */
+    public void testSaveChangedQuestion( )
+    {
+        createController( ).performAction( createSaveRequest( ) );
+
+        MockHttpServletRequest request = createSaveRequest( );
+        request.setParameter( "idEmailQuestion", String.valueOf( ID_QUESTION_OTHER_EMAIL ) );
+        assertNull( createController( ).performAction( request ) );
+
+        assertEquals( 2, _listRemovedCaptures.size( ) );
+
+        TaskTipiFormsProviderConfig configBefore = _listRemovedCaptures.get( 1 ) [0];
+        TaskTipiFormsProviderConfig configAfter = _listRemovedCaptures.get( 1 ) [1];
+        assertNotNull( configBefore );
+        assertEquals( ID_QUESTION_EMAIL, configBefore.getIdEmailQuestion( ) );
+        assertEquals( ID_QUESTION_OTHER_EMAIL, configAfter.getIdEmailQuestion( ) );
+        assertEquals( configBefore.getIdRefDetQuestion( ), configAfter.getIdRefDetQuestion( ) );
+        assertEquals( configBefore.getIdAmountQuestion( ), configAfter.getIdAmountQuestion( ) );
+    }
+
+    /**
+     * Test of the change of form of a brand-new task, followed by the save of the configuration in the same page
+     */
+    public void testChangeFormThenSave( )
+    {
+        TipiFormsProviderTaskConfigController controller = createController( );
+
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        request.addParameter( PARAMETER_APPLY, ACTION_CHANGE_FORM );
+        request.addParameter( "idForm", String.valueOf( ID_OTHER_FORM ) );
+        assertNull( controller.performAction( request ) );
+
+        TaskTipiFormsProviderConfig config = _taskConfigService.findByPrimaryKey( ID_TASK );
+        assertEquals( ID_OTHER_FORM, config.getIdForm( ) );
+        assertEquals( -1, config.getIdRefDetQuestion( ) );
+
+        assertNull( controller.performAction( createSaveRequest( ) ) );
+        assertEquals( 1, _taskConfigService.getCreateCount( ) );
+        assertEquals( 1, _taskConfigService.getUpdateCount( ) );
+        assertEquals( ID_FORM, ( (TaskTipiFormsProviderConfig) _taskConfigService.findByPrimaryKey( ID_TASK ) ).getIdForm( ) );
+    }
+
+    /**
+     * Creates a controller for the task of the test
+     *
+     * @return the controller
+     */
+    private TipiFormsProviderTaskConfigController createController( )
+    {
+        return new TestController( _task, _taskConfigService, _listRemovedCaptures );
+    }
+
+    /**
+     * Creates a request saving a complete configuration
+     *
+     * @return the request
+     */
+    private static MockHttpServletRequest createSaveRequest( )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        request.addParameter( "idForm", String.valueOf( ID_FORM ) );
+        request.addParameter( "idRefDetQuestion", String.valueOf( ID_QUESTION_REFDET ) );
+        request.addParameter( "idAmountQuestion", String.valueOf( ID_QUESTION_AMOUNT ) );
+        request.addParameter( "idEmailQuestion", String.valueOf( ID_QUESTION_EMAIL ) );
+
+        return request;
+    }
+
+    /**
+     * Creates a question of text entry
+     *
+     * @param nIdQuestion
+     *            the question id
+     * @return the question
+     */
+    private static TipiFormsQuestion createQuestion( int nIdQuestion )
+    {
+        TipiFormsQuestion question = new TipiFormsQuestion( );
+        question.setIdQuestion( nIdQuestion );
+        question.setTitle( "Question " + nIdQuestion );
+        question.setEntryType( ENTRY_TYPE_TEXT );
+
+        return question;
+    }
+
+    /**
+     * Copies the specified configuration, as the database does
+     *
+     * @param config
+     *            the configuration
+     * @return the copy
+     */
+    private static TaskTipiFormsProviderConfig copy( TaskTipiFormsProviderConfig config )
+    {
+        TaskTipiFormsProviderConfig configCopy = new TaskTipiFormsProviderConfig( );
+        configCopy.setIdTask( config.getIdTask( ) );
+        configCopy.setIdForm( config.getIdForm( ) );
+        configCopy.setIdRefDetQuestion( config.getIdRefDetQuestion( ) );
+        configCopy.setIdAmountQuestion( config.getIdAmountQuestion( ) );
+        configCopy.setIdEmailQuestion( config.getIdEmailQuestion( ) );
+
+        return configCopy;
+    }
+
+    /**
+     * This class is a controller whose questions are given by the test, which records the removals of captures instead of performing them, and which does
+     * not validate the configuration
+     */
+    private static final class TestController extends TipiFormsProviderTaskConfigController
+    {
+        private final List<TaskTipiFormsProviderConfig [ ]> _listRemovedCaptures;
+
+        /**
+         * Constructor
+         *
+         * @param task
+         *            the task
+         * @param taskConfigService
+         *            the service storing the configuration
+         * @param listRemovedCaptures
+         *            the list recording the configurations given to each removal of captures
+         */
+        TestController( ITask task, ITaskConfigService taskConfigService, List<TaskTipiFormsProviderConfig [ ]> listRemovedCaptures )
+        {
+            super( task, taskConfigService );
+            _listRemovedCaptures = listRemovedCaptures;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        TipiFormsQuestionIndex getQuestionIndex( int nIdForm )
+        {
+            List<TipiFormsQuestion> listQuestion = new ArrayList<TipiFormsQuestion>( );
+
+            if ( nIdForm == ID_FORM )
+            {
+                listQuestion.add( createQuestion( ID_QUESTION_REFDET ) );
+                listQuestion.add( createQuestion( ID_QUESTION_AMOUNT ) );
+                listQuestion.add( createQuestion( ID_QUESTION_EMAIL ) );
+                listQuestion.add( createQuestion( ID_QUESTION_OTHER_EMAIL ) );
+            }
+
+            return new TipiFormsQuestionIndex( listQuestion );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void removeCaptures( TaskTipiFormsProviderConfig configBefore, TaskTipiFormsProviderConfig configAfter )
+        {
+            _listRemovedCaptures.add( new TaskTipiFormsProviderConfig [ ] {
+                    configBefore, copy( configAfter )
+            } );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void validateStoredConfig( int nIdTask )
+        {
+            // the validation reads the forms from the database
+        }
+    }
+
+    /**
+     * This class is a configuration service storing copies of the configurations in memory. Like the database, it refuses to update a configuration which
+     * is not stored
+     */
+    private static final class InMemoryTaskConfigService implements ITaskConfigService
+    {
+        private final Map<Integer, TaskTipiFormsProviderConfig> _mapConfig = new HashMap<Integer, TaskTipiFormsProviderConfig>( );
+        private int _nCreateCount;
+        private int _nUpdateCount;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void create( ITaskConfig config )
+        {
+            assertFalse( "The configuration is already stored", _mapConfig.containsKey( config.getIdTask( ) ) );
+            _mapConfig.put( config.getIdTask( ), copy( (TaskTipiFormsProviderConfig) config ) );
+            _nCreateCount++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void update( ITaskConfig config )
+        {
+            assertTrue( "The configuration is not stored", _mapConfig.containsKey( config.getIdTask( ) ) );
+            _mapConfig.put( config.getIdTask( ), copy( (TaskTipiFormsProviderConfig) config ) );
+            _nUpdateCount++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove( int nIdTask )
+        {
+            _mapConfig.remove( nIdTask );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public <T> T findByPrimaryKey( int nIdTask )
+        {
+            TaskTipiFormsProviderConfig config = _mapConfig.get( nIdTask );
+
+            return ( config != null ) ? (T) copy( config ) : null;
+        }
+
+        /**
+         * Gives the number of created configurations
+         *
+         * @return the number of creations
+         */
+        int getCreateCount( )
+        {
+            return _nCreateCount;
+        }
+
+        /**
+         * Gives the number of updated configurations
+         *
+         * @return the number of updates
+         */
+        int getUpdateCount( )
+        {
+            return _nUpdateCount;
+        }
+    }
+}
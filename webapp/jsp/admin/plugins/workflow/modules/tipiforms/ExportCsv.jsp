@@ -0,0 +1,6 @@
+<%@ page errorPage="../../../../ErrorPage.jsp" trimDirectiveWhitespaces="true" %>
+<jsp:useBean id="tipiFormsProviderTask" scope="request" class="fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task.TipiFormsProviderTaskJspBean" />
+<%
+    tipiFormsProviderTask.init( request, fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task.TipiFormsProviderTaskJspBean.RIGHT_MANAGE_WORKFLOW );
+    tipiFormsProviderTask.doExportCsv( request, response );
+%>
@@ -0,0 +1,6 @@
+<%@ page errorPage="../../../../ErrorPage.jsp" contentType="application/json; charset=UTF-8" trimDirectiveWhitespaces="true" %>
+<jsp:useBean id="tipiFormsProviderTask" scope="request" class="fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task.TipiFormsProviderTaskJspBean" />
+<%
+    tipiFormsProviderTask.init( request, fr.paris.lutece.plugins.workflow.modules.tipiforms.web.task.TipiFormsProviderTaskJspBean.RIGHT_MANAGE_WORKFLOW );
+%>
+<%= tipiFormsProviderTask.getQuestions( request ) %>